@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Zip output stream for generated application archives that only compresses
+ * entries that are likely to compress. Entries that are already compressed,
+ * like nested jars, images or compressed archives, are written without
+ * compression, as deflating them again costs CPU time without making the
+ * archive smaller.
+ * <p/>
+ * Whether an entry is compressible is decided by its file extension, or for
+ * other entries at least as large as the sample size, by deflating a sample
+ * from the beginning of the entry. Compressible entries are deflated at the
+ * compression level set in the publish compression level preference.
+ * <p/>
+ * All entries use the deflated method, with a deflate level of
+ * {@link Deflater#NO_COMPRESSION} for incompressible entries, so that their
+ * size and CRC are not needed before they are written. The contents of each
+ * entry are read once, and the sample is written as the start of the entry.
+ */
+public class AdaptiveZipOutputStream extends ZipOutputStream {
+
+	/**
+	 * Contents of a zip entry, opened when the entry is written.
+	 */
+	public interface EntryContents {
+
+		public InputStream open() throws IOException, CoreException;
+
+	}
+
+	private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(new String[] {
+			"jar", "war", "ear", "zip", "gz", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"tgz", "bz2", "xz", "7z", "png", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"jpg", "jpeg", "gif", "ico", "webp", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"mp3", "mp4", "ogg", "woff", "woff2" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	/**
+	 * Size of the sample that is deflated to decide whether an entry with an
+	 * unknown extension is compressible. Smaller entries are always deflated.
+	 */
+	protected static final int SAMPLE_SIZE = 64 * 1024;
+
+	/**
+	 * Entries whose sample is not reduced by at least this ratio are not
+	 * compressed.
+	 */
+	protected static final double MIN_COMPRESSION_SAVING = 0.05;
+
+	private final int level;
+
+	private final byte[] buffer = new byte[SAMPLE_SIZE];
+
+	private final byte[] deflated = new byte[8192];
+
+	public AdaptiveZipOutputStream(OutputStream out) {
+		this(out, getDefaultLevel());
+	}
+
+	/**
+	 * 
+	 * @param out
+	 * @param level deflate level between {@link Deflater#NO_COMPRESSION} and
+	 * {@link Deflater#BEST_COMPRESSION}, or
+	 * {@link Deflater#DEFAULT_COMPRESSION}. With no compression, no entry is
+	 * compressed.
+	 */
+	public AdaptiveZipOutputStream(OutputStream out, int level) {
+		super(out);
+		this.level = level;
+		setLevel(level);
+	}
+
+	public static int getDefaultLevel() {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		return plugin != null ? plugin.getPublishCompressionLevel()
+				: CloudFoundryPlugin.DEFAULT_PUBLISH_COMPRESSION_LEVEL_PREFERENCE_VAL;
+	}
+
+	/**
+	 * Writes a complete file entry, choosing whether the entry is compressed.
+	 * @param entry new entry. Its method is set by this method.
+	 * @param contents of the entry
+	 */
+	public void writeEntry(ZipEntry entry, EntryContents contents) throws IOException, CoreException {
+		InputStream input = contents.open();
+		try {
+			int length = 0;
+			boolean compress;
+			if (level == Deflater.NO_COMPRESSION || COMPRESSED_EXTENSIONS.contains(getExtension(entry.getName()))) {
+				compress = false;
+			}
+			else {
+				// The sample is kept in the buffer and written as the start
+				// of the entry
+				int n;
+				while (length < SAMPLE_SIZE && (n = input.read(buffer, length, SAMPLE_SIZE - length)) != -1) {
+					length += n;
+				}
+				compress = length < SAMPLE_SIZE || isCompressible(buffer, length);
+			}
+
+			entry.setMethod(ZipEntry.DEFLATED);
+			setLevel(compress ? level : Deflater.NO_COMPRESSION);
+			try {
+				putNextEntry(entry);
+				write(buffer, 0, length);
+				int n;
+				while ((n = input.read(buffer)) != -1) {
+					write(buffer, 0, n);
+				}
+				closeEntry();
+			}
+			finally {
+				setLevel(level);
+			}
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * 
+	 * @param sample from the beginning of an entry
+	 * @param length of the sample
+	 * @return true if deflating the sample saves at least
+	 * {@link #MIN_COMPRESSION_SAVING}
+	 */
+	protected boolean isCompressible(byte[] sample, int length) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(sample, 0, length);
+			deflater.finish();
+			long compressed = 0;
+			while (!deflater.finished()) {
+				compressed += deflater.deflate(deflated);
+			}
+			return compressed <= length * (1 - MIN_COMPRESSION_SAVING);
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	protected static String getExtension(String name) {
+		int index = name.lastIndexOf('.');
+		if (index < 0 || index < name.lastIndexOf('/')) {
+			return ""; //$NON-NLS-1$
+		}
+		return name.substring(index + 1).toLowerCase();
+	}
+}
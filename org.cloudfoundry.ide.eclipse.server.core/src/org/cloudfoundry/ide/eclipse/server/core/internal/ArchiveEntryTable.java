@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.Arrays;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.Node;
+import org.eclipse.wst.server.core.model.IModuleResource;
+
+/**
+ * Columnar table of the entries of a module resource archive. Each entry is
+ * a row, and each entry attribute is a column in an array: the path, which is
+ * a node of the {@link ModulePathIndex} of the module and therefore shared
+ * between publishes, the module resource, the file size and modification
+ * time, and flags. The sha1 codes of all entries are packed into a single
+ * array.
+ * <p/>
+ * Compared to an entry object per resource, each holding its own name, file,
+ * sizes and sha1 array, this keeps the memory used by archives of modules with
+ * hundreds of thousands of files low, and creates far fewer objects that need
+ * to be garbage collected after each publish.
+ * <p/>
+ * Rows are added while the table is built by a single thread. Once built,
+ * entry attributes of different rows may be resolved concurrently.
+ */
+public class ArchiveEntryTable {
+
+	public static final int SHA1_LENGTH = 20;
+
+	public static final long UNDEFINED_SIZE = -1;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final byte DIRECTORY = 1;
+
+	private static final byte CHANGED = 2;
+
+	private static final byte RESOLVED = 4;
+
+	private static final byte HAS_SHA1 = 8;
+
+	private int size;
+
+	private Node[] paths;
+
+	private IModuleResource[] resources;
+
+	private long[] fileSizes;
+
+	private long[] lastModified;
+
+	private byte[] sha1s;
+
+	private byte[] flags;
+
+	public ArchiveEntryTable() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public ArchiveEntryTable(int capacity) {
+		capacity = Math.max(1, capacity);
+		paths = new Node[capacity];
+		resources = new IModuleResource[capacity];
+		fileSizes = new long[capacity];
+		lastModified = new long[capacity];
+		sha1s = new byte[capacity * SHA1_LENGTH];
+		flags = new byte[capacity];
+	}
+
+	/**
+	 * Adds an unresolved entry to the table
+	 * @param path of the entry in the module path index
+	 * @param resource of the entry
+	 * @param directory true if the entry is a folder
+	 * @param changed true if the resource changed since the last publish
+	 * @return row of the entry
+	 */
+	public int add(Node path, IModuleResource resource, boolean directory, boolean changed) {
+		if (size == paths.length) {
+			// A trimmed table may have no capacity left
+			grow(Math.max(1, size * 2));
+		}
+		int row = size++;
+		paths[row] = path;
+		resources[row] = resource;
+		fileSizes[row] = UNDEFINED_SIZE;
+		flags[row] = (byte) ((directory ? DIRECTORY : 0) | (changed ? CHANGED : 0));
+		return row;
+	}
+
+	/**
+	 * Releases the capacity that is not used by any row. Called once all rows
+	 * have been added.
+	 */
+	public void trim() {
+		if (size < paths.length) {
+			grow(size);
+		}
+	}
+
+	protected void grow(int capacity) {
+		paths = Arrays.copyOf(paths, capacity);
+		resources = Arrays.copyOf(resources, capacity);
+		fileSizes = Arrays.copyOf(fileSizes, capacity);
+		lastModified = Arrays.copyOf(lastModified, capacity);
+		sha1s = Arrays.copyOf(sha1s, capacity * SHA1_LENGTH);
+		flags = Arrays.copyOf(flags, capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getName(int row) {
+		return paths[row].getZipName(isDirectory(row));
+	}
+
+	public IModuleResource getResource(int row) {
+		return resources[row];
+	}
+
+	public boolean isDirectory(int row) {
+		return (flags[row] & DIRECTORY) != 0;
+	}
+
+	public boolean isChanged(int row) {
+		return (flags[row] & CHANGED) != 0;
+	}
+
+	public synchronized boolean isResolved(int row) {
+		return (flags[row] & RESOLVED) != 0;
+	}
+
+	/**
+	 * Records the attributes of the file of an entry. Only the first
+	 * resolution of an entry is recorded.
+	 * @param row
+	 * @param fileSize size of the file, or {@link #UNDEFINED_SIZE}
+	 * @param modified modification time of the file
+	 * @param sha1 of the file content. May be null.
+	 */
+	public synchronized void setResolved(int row, long fileSize, long modified, byte[] sha1) {
+		if ((flags[row] & RESOLVED) != 0) {
+			return;
+		}
+		fileSizes[row] = fileSize;
+		lastModified[row] = modified;
+		if (sha1 != null && sha1.length == SHA1_LENGTH) {
+			System.arraycopy(sha1, 0, sha1s, row * SHA1_LENGTH, SHA1_LENGTH);
+			flags[row] |= HAS_SHA1;
+		}
+		flags[row] |= RESOLVED;
+	}
+
+	public synchronized long getFileSize(int row) {
+		return fileSizes[row];
+	}
+
+	public synchronized long getLastModified(int row) {
+		return lastModified[row];
+	}
+
+	/**
+	 * 
+	 * @param row
+	 * @return copy of the sha1 code of the entry, or null if none was resolved
+	 */
+	public synchronized byte[] getSha1(int row) {
+		if ((flags[row] & HAS_SHA1) == 0) {
+			return null;
+		}
+		return Arrays.copyOfRange(sha1s, row * SHA1_LENGTH, (row + 1) * SHA1_LENGTH);
+	}
+}
@@ -0,0 +1,475 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+
+/**
+ * Managed location for archives generated for publishing, like war files,
+ * child module jars and packaged Java applications. Archives are kept between
+ * publishes, so that an archive generated from inputs with the same
+ * fingerprint can be published again without being regenerated.
+ * <p/>
+ * Each first level folder of the store is an entry that is evicted as a whole.
+ * The last modified time of an entry records when it was last used. Entries
+ * that were not used for longer than the maximum age are deleted, and the
+ * least recently used entries are deleted while the store exceeds its quota.
+ * Temporary entries, created for archives that cannot be reused, are deleted
+ * at the first cleanup after they were used. Entries used within the in use
+ * period are never deleted, as their archives may still be uploaded. For the
+ * same reason, the archives generated from other inputs of an entry are only
+ * deleted once they were not used within the in use period. Archives that are
+ * uploaded for longer than that are marked as open until they are released,
+ * and are not deleted while they are open.
+ */
+public class ArchiveStore {
+
+	private static final String ARCHIVES_FOLDER = "archives"; //$NON-NLS-1$
+
+	private static final String TEMPORARY_PREFIX = "tmp-"; //$NON-NLS-1$
+
+	private static final String COMPLETE_MARKER_EXTENSION = ".complete"; //$NON-NLS-1$
+
+	private static final int FINGERPRINT_VERSION = 1;
+
+	/**
+	 * Time after an entry was last used during which it is not evicted
+	 */
+	protected static final long IN_USE_PERIOD = 10 * 60 * 1000;
+
+	private static final Map<File, Object> LOCKS = new HashMap<File, Object>();
+
+	/**
+	 * Number of times the archives in each archive folder were opened and not
+	 * released yet. Shared by all stores, like the locks.
+	 */
+	private static final Map<File, Integer> OPEN_FOLDERS = new HashMap<File, Integer>();
+
+	private final File root;
+
+	private final long quota;
+
+	private final long maxAge;
+
+	/**
+	 * 
+	 * @param root folder of the store
+	 * @param quota maximum total size of the store in bytes
+	 * @param maxAge time in milliseconds after which an unused entry is
+	 * deleted
+	 */
+	public ArchiveStore(File root, long quota, long maxAge) {
+		this.root = root;
+		this.quota = quota;
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * 
+	 * @return store in the plugin state location, with the quota and maximum
+	 * age set in the preferences. If the plugin is not running, the store is
+	 * in the temporary folder with default limits.
+	 */
+	public static ArchiveStore getDefault() {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		if (plugin == null) {
+			return new ArchiveStore(new File(System.getProperty("java.io.tmpdir"), "cloudfoundry-" //$NON-NLS-1$ //$NON-NLS-2$
+					+ ARCHIVES_FOLDER), CloudFoundryPlugin.DEFAULT_ARCHIVE_STORE_QUOTA_PREFERENCE_VAL * 1024L * 1024L,
+					CloudFoundryPlugin.DEFAULT_ARCHIVE_STORE_MAX_AGE_PREFERENCE_VAL * 24L * 60L * 60L * 1000L);
+		}
+		return new ArchiveStore(plugin.getStateLocation().append(ARCHIVES_FOLDER).toFile(),
+				plugin.getArchiveStoreQuota() * 1024L * 1024L, plugin.getArchiveStoreMaxAge() * 24L * 60L * 60L * 1000L);
+	}
+
+	public File getRoot() {
+		return root;
+	}
+
+	/**
+	 * 
+	 * @param kind of archives kept in the folder
+	 * @param module
+	 * @return entry for archives of the given kind for the given module, which
+	 * is marked as used.
+	 * @throws CoreException if the folder cannot be created
+	 */
+	public File getFolder(String kind, IModule module) throws CoreException {
+		String id = module.getId();
+		File folder = new File(root, kind + '-' + id.replaceAll("[^a-zA-Z0-9._-]", "_") + '_' //$NON-NLS-1$ //$NON-NLS-2$
+				+ Integer.toHexString(id.hashCode()));
+		mkdirs(folder);
+		folder.setLastModified(System.currentTimeMillis());
+		return folder;
+	}
+
+	/**
+	 * 
+	 * @param kind of archives kept in the folder
+	 * @return new temporary entry for archives that are not reused
+	 * @throws CoreException if the folder cannot be created
+	 */
+	public File createTemporaryFolder(String kind) throws CoreException {
+		cleanup();
+		mkdirs(root);
+		try {
+			File folder = File.createTempFile(TEMPORARY_PREFIX + kind, "", root); //$NON-NLS-1$
+			folder.delete();
+			mkdirs(folder);
+			return folder;
+		}
+		catch (IOException e) {
+			throw CloudErrorUtil.toCoreException(e);
+		}
+	}
+
+	/**
+	 * 
+	 * @param folder entry of the store
+	 * @return lock that must be held while checking for and generating
+	 * archives in the given entry, so that concurrent publishes do not
+	 * generate archives into the same location.
+	 */
+	public Object getLock(File folder) {
+		synchronized (LOCKS) {
+			Object lock = LOCKS.get(folder);
+			if (lock == null) {
+				lock = new Object();
+				LOCKS.put(folder, lock);
+			}
+			return lock;
+		}
+	}
+
+	/**
+	 * 
+	 * @param folder entry of the store
+	 * @param fingerprint of the archive inputs, or null if not available
+	 * @param fileName of the archive
+	 * @return location of the archive generated from inputs with the given
+	 * fingerprint. Each fingerprint has its own folder, so that an archive
+	 * that is still being uploaded is not overwritten by a newer version. In a
+	 * new temporary entry if the fingerprint is null. The folder of the
+	 * archive is marked as used.
+	 * @throws CoreException if the folder of the archive cannot be created
+	 */
+	public File getArchive(File folder, String fingerprint, String fileName) throws CoreException {
+		File archiveFolder = fingerprint != null ? new File(folder, fingerprint) : createTemporaryFolder(folder
+				.getName());
+		mkdirs(archiveFolder);
+		archiveFolder.setLastModified(System.currentTimeMillis());
+		return new File(archiveFolder, fileName);
+	}
+
+	/**
+	 * Marks the given archive as open, for example while it is uploaded, so
+	 * that neither its folder nor its entry are deleted until the archive is
+	 * released, even after the in use period. Files outside the store are
+	 * ignored.
+	 * @param archive file in the store
+	 */
+	public void open(File archive) {
+		File archiveFolder = getArchiveFolder(archive);
+		if (archiveFolder != null) {
+			synchronized (OPEN_FOLDERS) {
+				Integer count = OPEN_FOLDERS.get(archiveFolder);
+				OPEN_FOLDERS.put(archiveFolder, count != null ? count + 1 : 1);
+			}
+		}
+	}
+
+	/**
+	 * Releases an archive marked as open by {@link #open(File)}. The archive is
+	 * marked as used, so that it is kept for the in use period after it is
+	 * released.
+	 * @param archive file in the store
+	 */
+	public void release(File archive) {
+		File archiveFolder = getArchiveFolder(archive);
+		if (archiveFolder != null) {
+			synchronized (OPEN_FOLDERS) {
+				Integer count = OPEN_FOLDERS.get(archiveFolder);
+				if (count == null || count <= 1) {
+					OPEN_FOLDERS.remove(archiveFolder);
+				}
+				else {
+					OPEN_FOLDERS.put(archiveFolder, count - 1);
+				}
+			}
+			// The archive folder and its entry
+			long now = System.currentTimeMillis();
+			File rootFolder = root.getAbsoluteFile();
+			for (File folder = archiveFolder; !rootFolder.equals(folder); folder = folder.getParentFile()) {
+				folder.setLastModified(now);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param folder entry or archive folder of the store
+	 * @return true if an archive in the given folder is open
+	 */
+	protected boolean isOpen(File folder) {
+		File absoluteFolder = folder.getAbsoluteFile();
+		String prefix = absoluteFolder.getPath() + File.separator;
+		synchronized (OPEN_FOLDERS) {
+			for (File openFolder : OPEN_FOLDERS.keySet()) {
+				if (openFolder.equals(absoluteFolder) || openFolder.getPath().startsWith(prefix)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * @param archive
+	 * @return folder of the given archive, or null if the archive is not in
+	 * the store
+	 */
+	protected File getArchiveFolder(File archive) {
+		File archiveFolder = archive.getAbsoluteFile().getParentFile();
+		if (archiveFolder == null || !archiveFolder.getPath().startsWith(root.getAbsolutePath() + File.separator)) {
+			return null;
+		}
+		return archiveFolder;
+	}
+
+	/**
+	 * 
+	 * @param folder entry of the store
+	 * @param fingerprint of the current archive inputs. May be null.
+	 * @param fileName of the archive
+	 * @return true if an archive was completely generated from inputs with
+	 * the given fingerprint
+	 */
+	public boolean isComplete(File folder, String fingerprint, String fileName) {
+		return fingerprint != null && new File(new File(folder, fingerprint), fileName).isFile()
+				&& getCompleteMarker(folder, fingerprint).isFile();
+	}
+
+	/**
+	 * Records that the archive for the given fingerprint was completely
+	 * generated, deletes archives generated from other inputs that were not
+	 * used within the in use period, and evicts entries if the store exceeds
+	 * its limits. Archives from other inputs that are still in use are
+	 * deleted by a later completion, or with their entry by
+	 * {@link #cleanup()}.
+	 * @param folder entry of the store
+	 * @param fingerprint may be null, in which case the archive is generated
+	 * again on the next publish.
+	 */
+	public void complete(File folder, String fingerprint) {
+		if (fingerprint != null) {
+			try {
+				getCompleteMarker(folder, fingerprint).createNewFile();
+				File[] archives = folder.listFiles();
+				if (archives != null) {
+					long now = System.currentTimeMillis();
+					for (File archive : archives) {
+						// Archives used within the in use period may still be
+						// uploaded by another publish, so they are kept
+						if (archive.isDirectory() && !archive.getName().equals(fingerprint)
+								&& archive.lastModified() + IN_USE_PERIOD <= now && !isOpen(archive)) {
+							delete(archive);
+						}
+					}
+					// Completion markers of deleted archives
+					for (File archive : archives) {
+						String name = archive.getName();
+						if (name.endsWith(COMPLETE_MARKER_EXTENSION)
+								&& !new File(folder, name.substring(0, name.length()
+										- COMPLETE_MARKER_EXTENSION.length())).isDirectory()) {
+							delete(archive);
+						}
+					}
+				}
+			}
+			catch (IOException e) {
+				// Only means that the archive is generated again
+			}
+		}
+		cleanup();
+	}
+
+	/**
+	 * Deletes temporary entries and entries older than the maximum age, and
+	 * the least recently used entries while the store exceeds its quota.
+	 * Entries used within the in use period are kept.
+	 */
+	public void cleanup() {
+		synchronized (ArchiveStore.class) {
+			File[] entries = root.listFiles();
+			if (entries == null) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			long total = 0;
+			final Map<File, Long> lastUsed = new HashMap<File, Long>();
+			Map<File, Long> sizes = new HashMap<File, Long>();
+			List<File> candidates = new ArrayList<File>();
+			for (File entry : entries) {
+				long used = entry.lastModified();
+				boolean inUse = used + IN_USE_PERIOD > now || isOpen(entry);
+				if (!inUse && (entry.getName().startsWith(TEMPORARY_PREFIX) || used + maxAge < now)) {
+					delete(entry);
+					continue;
+				}
+				long size = getSize(entry);
+				total += size;
+				if (!inUse) {
+					lastUsed.put(entry, used);
+					sizes.put(entry, size);
+					candidates.add(entry);
+				}
+			}
+
+			Collections.sort(candidates, new Comparator<File>() {
+				public int compare(File first, File second) {
+					return lastUsed.get(first).compareTo(lastUsed.get(second));
+				}
+			});
+			for (File entry : candidates) {
+				if (total <= quota) {
+					break;
+				}
+				delete(entry);
+				total -= sizes.get(entry);
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @param resources
+	 * @return fingerprint of the names and file attributes of the given
+	 * resources and their members, which changes if any resource is added,
+	 * removed or modified. Null if a file was modified so recently that a
+	 * subsequent modification may not change the fingerprint.
+	 * @throws CoreException if the fingerprint cannot be computed
+	 */
+	public static String getFingerprint(IModuleResource[] resources) throws CoreException {
+		Map<String, IModuleResource> entries = new TreeMap<String, IModuleResource>();
+		collectEntries(resources, entries);
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw CloudErrorUtil.toCoreException(e);
+		}
+		long startTime = System.currentTimeMillis();
+		long newestModification = 0;
+		StringBuilder data = new StringBuilder();
+		data.append(FINGERPRINT_VERSION).append('\n');
+		for (Map.Entry<String, IModuleResource> entry : entries.entrySet()) {
+			data.append(entry.getKey());
+			if (entry.getValue() instanceof IModuleFile) {
+				IModuleFile moduleFile = (IModuleFile) entry.getValue();
+				File file = CloudUtil.getFile(moduleFile);
+				data.append('\0').append(moduleFile.getModificationStamp());
+				if (file != null) {
+					long lastModified = file.lastModified();
+					newestModification = Math.max(newestModification, lastModified);
+					data.append('\0').append(file.length()).append('\0').append(lastModified);
+				}
+			}
+			data.append('\n');
+		}
+		if (new FileStat(newestModification, 0, null).isRacy(startTime)) {
+			return null;
+		}
+		byte[] hash;
+		try {
+			hash = digest.digest(data.toString().getBytes("UTF-8")); //$NON-NLS-1$
+		}
+		catch (UnsupportedEncodingException e) {
+			throw CloudErrorUtil.toCoreException(e);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	protected static void collectEntries(IModuleResource[] resources, Map<String, IModuleResource> entries) {
+		if (resources == null) {
+			return;
+		}
+		for (IModuleResource resource : resources) {
+			entries.put(CloudUtil.getZipRelativeName(resource), resource);
+			if (resource instanceof IModuleFolder) {
+				collectEntries(((IModuleFolder) resource).members(), entries);
+			}
+		}
+	}
+
+	protected File getCompleteMarker(File folder, String fingerprint) {
+		return new File(folder, fingerprint + COMPLETE_MARKER_EXTENSION);
+	}
+
+	protected void mkdirs(File folder) throws CoreException {
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			throw CloudErrorUtil.toCoreException("Unable to create archive folder: " + folder); //$NON-NLS-1$
+		}
+	}
+
+	protected static long getSize(File file) {
+		File[] children = file.listFiles();
+		if (children == null) {
+			return file.length();
+		}
+		long size = 0;
+		for (File child : children) {
+			size += getSize(child);
+		}
+		return size;
+	}
+
+	protected static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
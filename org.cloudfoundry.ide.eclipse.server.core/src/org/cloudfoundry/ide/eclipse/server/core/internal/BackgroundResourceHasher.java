@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.wst.server.core.IModule;
+
+/**
+ * Computes sha1 hash codes of workspace files as they are changed or rebuilt,
+ * so that they are already in the shared {@link ContentHashStore} when the
+ * application is published. Only files in projects that are added to a Cloud
+ * Foundry server are hashed.
+ * <p/>
+ * Changed files are collected from workspace change events, which include the
+ * output of builds, skipping projects that are not deployed, and hashed in a
+ * low priority system job. The job runs
+ * once no further changes occurred for a delay longer than the file time
+ * stamp resolution, as hash codes of files modified within that resolution
+ * cannot be validated later. Each run hashes a bounded number of bytes before
+ * it yields and reschedules itself.
+ */
+public class BackgroundResourceHasher implements IResourceChangeListener {
+
+	/**
+	 * Delay after the last change before changed files are hashed
+	 */
+	protected static final long DELAY = FileStat.TIMESTAMP_RESOLUTION + 1000;
+
+	/**
+	 * Maximum number of bytes hashed in one run of the job
+	 */
+	protected static final long MAX_BYTES_PER_RUN = 32 * 1024 * 1024;
+
+	/**
+	 * Maximum number of files waiting to be hashed. Further changed files are
+	 * hashed when the application is published.
+	 */
+	protected static final int MAX_PENDING_FILES = 50000;
+
+	private final Set<IFile> pending = new LinkedHashSet<IFile>();
+
+	private final Job job;
+
+	private final long maxBytesPerRun;
+
+	public BackgroundResourceHasher() {
+		this(MAX_BYTES_PER_RUN);
+	}
+
+	/**
+	 * 
+	 * @param maxBytesPerRun maximum number of bytes hashed in one run of the
+	 * job
+	 */
+	public BackgroundResourceHasher(long maxBytesPerRun) {
+		this.maxBytesPerRun = maxBytesPerRun;
+		job = new Job(Messages.BackgroundResourceHasher_JOB_LABEL) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				return hashPending(monitor);
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null || !isEnabled()) {
+			return;
+		}
+		final Set<IProject> projects = getDeployedProjects();
+		if (projects.isEmpty()) {
+			return;
+		}
+
+		final List<IFile> changed = new ArrayList<IFile>();
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta child) throws CoreException {
+					IResource resource = child.getResource();
+					if (resource.getType() == IResource.PROJECT) {
+						return projects.contains(resource);
+					}
+					if (resource.getType() == IResource.FILE) {
+						if (child.getKind() == IResourceDelta.ADDED
+								|| (child.getKind() == IResourceDelta.CHANGED && (child.getFlags() & IResourceDelta.CONTENT) != 0)) {
+							changed.add((IFile) resource);
+						}
+						return false;
+					}
+					return !resource.isTeamPrivateMember();
+				}
+			});
+		}
+		catch (CoreException e) {
+			CloudFoundryPlugin.logError(e);
+		}
+
+		if (!changed.isEmpty()) {
+			synchronized (pending) {
+				for (IFile file : changed) {
+					if (pending.size() >= MAX_PENDING_FILES) {
+						break;
+					}
+					pending.add(file);
+				}
+			}
+			schedule(DELAY);
+		}
+	}
+
+	protected IStatus hashPending(IProgressMonitor monitor) {
+		ContentHashStore store = getContentHashStore();
+		if (store == null) {
+			return Status.CANCEL_STATUS;
+		}
+		// Projects may have been removed from servers since files were queued
+		Set<IProject> projects = getDeployedProjects();
+		List<IFile> racy = new ArrayList<IFile>();
+		long hashedBytes = 0;
+
+		IFile file;
+		while (hashedBytes < maxBytesPerRun && (file = nextPending()) != null) {
+			if (monitor.isCanceled()) {
+				addPending(file);
+				return Status.CANCEL_STATUS;
+			}
+			IPath location = file.getLocation();
+			if (!projects.contains(file.getProject()) || location == null) {
+				continue;
+			}
+			File localFile = location.toFile();
+			FileStat stat = FileStat.of(localFile);
+			long computedTime = System.currentTimeMillis();
+			if (stat == null) {
+				continue;
+			}
+			if (stat.isRacy(computedTime)) {
+				// Modified again since it was queued
+				racy.add(file);
+				continue;
+			}
+			String key = ContentHashStore.getKey(localFile);
+			if (store.getHash(key, stat) != null) {
+				continue;
+			}
+			try {
+				byte[] sha1 = ContentHashStore.computeSha1(localFile);
+				if (stat.isSameAs(FileStat.of(localFile))) {
+					store.put(key, stat, computedTime, sha1);
+				}
+				hashedBytes += stat.getSize();
+			}
+			catch (IOException e) {
+				// Hashed when the application is published
+			}
+		}
+
+		for (IFile racyFile : racy) {
+			addPending(racyFile);
+		}
+		synchronized (pending) {
+			if (!pending.isEmpty()) {
+				schedule(DELAY);
+			}
+		}
+		return Status.OK_STATUS;
+	}
+
+	/**
+	 * 
+	 * @return true if background hashing is enabled in the preferences
+	 */
+	protected boolean isEnabled() {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		return plugin != null && plugin.getBackgroundHashing();
+	}
+
+	/**
+	 * 
+	 * @return store the hash codes are added to, or null if the plugin is
+	 * stopped
+	 */
+	protected ContentHashStore getContentHashStore() {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		return plugin != null ? plugin.getDeployedResourcesCache().getContentHashStore() : null;
+	}
+
+	/**
+	 * Schedules the job hashing the pending files.
+	 * @param delay in milliseconds
+	 */
+	protected void schedule(long delay) {
+		job.schedule(delay);
+	}
+
+	protected IFile nextPending() {
+		synchronized (pending) {
+			Iterator<IFile> it = pending.iterator();
+			if (!it.hasNext()) {
+				return null;
+			}
+			IFile file = it.next();
+			it.remove();
+			return file;
+		}
+	}
+
+	protected void addPending(IFile file) {
+		synchronized (pending) {
+			pending.add(file);
+		}
+	}
+
+	/**
+	 * 
+	 * @return projects of modules added to any Cloud Foundry server
+	 */
+	protected Set<IProject> getDeployedProjects() {
+		Set<IProject> projects = new HashSet<IProject>();
+		for (CloudFoundryServer cloudServer : CloudServerUtil.getCloudServers()) {
+			if (cloudServer.getServerOriginal() == null) {
+				continue;
+			}
+			for (IModule module : cloudServer.getServerOriginal().getModules()) {
+				if (module.getProject() != null) {
+					projects.add(module.getProject());
+				}
+			}
+		}
+		return projects;
+	}
+
+	public void dispose() {
+		job.cancel();
+		synchronized (pending) {
+			pending.clear();
+		}
+	}
+}
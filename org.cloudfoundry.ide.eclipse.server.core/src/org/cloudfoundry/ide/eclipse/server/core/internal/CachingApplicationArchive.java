@@ -20,23 +20,27 @@
 package org.cloudfoundry.ide.eclipse.server.core.internal;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Future;
 
-import org.cloudfoundry.client.lib.archive.ApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ContentHashStore.FileHash;
 import org.cloudfoundry.ide.eclipse.server.core.internal.DeployedResourceCache.CachedDeployedApplication;
 import org.cloudfoundry.ide.eclipse.server.core.internal.DeployedResourceCache.DeployedResourceEntry;
-import org.cloudfoundry.ide.eclipse.server.core.internal.application.AbstractModuleResourceArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.Node;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.PathSet;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher.HashableArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher.HashableEntry;
+import org.cloudfoundry.ide.eclipse.server.core.internal.application.CloudApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.application.RepositoryChecksum;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.model.IModuleFile;
@@ -64,217 +68,325 @@ import org.eclipse.wst.server.core.model.IModuleResource;
  * changed, or entries are recalculated for resources that have changed.
  * 
  * <p/>
- * 2) The second phase involves handling the list of resources that the server
- * indicates have not changed. This is done through a callback handler, which
- * then builds the partial war file with only those resources that have changed.
+ * 2) The second phase is performed by the CF client, which streams only those
+ * entries that the server indicates are missing or have changed directly from
+ * the local resource files into the upload request. No intermediate partial
+ * war file is generated.
+ * 
+ * <p/>
+ * Sha1 codes for entries that need to be calculated are computed in parallel
+ * when the entries are first collected, rather than one at a time as the CF
+ * client requests them. Hashing can be started in the background as soon as the
+ * archive is created, so that it overlaps with the requests that precede the
+ * upload.
+ * 
+ * <p/>
+ * Entries are kept in an {@link ArchiveEntryTable} rather than as an object
+ * per resource. The entries returned by {@link #getEntries()} are views of a
+ * row of the table, created as the entries are iterated.
  * 
  */
-public class CachingApplicationArchive extends AbstractModuleResourceArchive {
-
-	private final Set<String> changedResources;
-
-	private String fileName;
+public class CachingApplicationArchive implements CloudApplicationArchive, HashableArchive {
 
-	private final CachedDeployedApplication appID;
+	private final IModule module;
 
-	public CachingApplicationArchive(List<IModuleResource> allResources, List<IModuleResource> changedResources,
-			IModule module, String appName) {
-		super(module, allResources);
-		this.appID = new CachedDeployedApplication(appName);
-		this.changedResources = changedResourcesAsZipNames(changedResources);
-	}
+	private final List<IModuleResource> resources;
 
-	protected Set<String> changedResourcesAsZipNames(List<IModuleResource> changedResources) {
-		Set<String> names = new HashSet<String>();
-		for (IModuleResource resource : changedResources) {
-			names.add(CloudUtil.getZipRelativeName(resource));
-		}
-		return names;
-	}
+	private final PathSet changedResources;
 
-	public String getFilename() {
-		return fileName;
-	}
+	private final ModulePathIndex index;
 
-	protected ModuleFolderEntryAdapter getModuleFolderAdapter(IModuleFolder folder) {
-		return new ZipModuleFolderEntryAdapter(folder);
-	}
+	private final CachedDeployedApplication appID;
 
-	protected ModuleFileEntryAdapter getFileResourceEntryAdapter(IModuleFile file) {
-		String zipName = CloudUtil.getZipRelativeName(file);
-		boolean changed = changedResources != null && changedResources.contains(zipName);
-		return new ZipModuleFileEntryAdapter(file, appID, changed);
-	}
+	private final ParallelResourceHasher hasher = new ParallelResourceHasher();
 
-	public void generatePartialWarFile(Set<String> knownResourceNames) {
-		Iterable<Entry> localEntries = getEntries();
-		Map<String, AbstractModuleResourceEntryAdapter> missingChangedEntries = new HashMap<String, AbstractModuleResourceEntryAdapter>();
-		Set<IModuleResource> missingChangedResources = new HashSet<IModuleResource>();
+	private ArchiveEntryTable table;
 
-		for (Entry entry : localEntries) {
+	private RepositoryChecksum repositoryChecksum;
 
-			if (entry.isDirectory() || !knownResourceNames.contains(entry.getName())) {
-				missingChangedEntries.put(entry.getName(), (AbstractModuleResourceEntryAdapter) entry);
-				missingChangedResources.add(((AbstractModuleResourceEntryAdapter) entry).getResource());
-			}
-		}
+	private Future<?> pendingHashes;
 
-		// Build war file with changed/missing resources
-		try {
+	private boolean hashed;
 
-			File partialWar = CloudUtil.createWarFile(getModuleResources(), getModule(), missingChangedResources, null);
+	private final List<File> openArchives = new ArrayList<File>();
 
-			if (partialWar.exists()) {
-				fileName = partialWar.getName();
-				ZipFile zipPartialWar = new ZipFile(partialWar);
-				Enumeration<? extends ZipEntry> zipEntries = zipPartialWar.entries();
-				List<Entry> toDeploy = new ArrayList<ApplicationArchive.Entry>();
-				while (zipEntries.hasMoreElements()) {
-					ZipEntry zipEntry = zipEntries.nextElement();
+	/**
+	 * 
+	 * @param allResources all resources of the module
+	 * @param changedResources resources changed since the last publish, in
+	 * the path index of the module. Entry names are also looked up in this
+	 * index.
+	 * @param module
+	 * @param appName
+	 */
+	public CachingApplicationArchive(List<IModuleResource> allResources, PathSet changedResources, IModule module,
+			String appName) {
+		this.module = module;
+		this.resources = allResources;
+		this.appID = new CachedDeployedApplication(appName);
+		this.changedResources = changedResources;
+		this.index = changedResources.getIndex();
+	}
 
-					AbstractModuleResourceEntryAdapter archiveEntry = missingChangedEntries.get(zipEntry.getName());
-					if (archiveEntry != null) {
-						DeployedResourceEntry deployedResourcesEntry = archiveEntry instanceof ZipModuleFileEntryAdapter ? ((ZipModuleFileEntryAdapter) archiveEntry)
-								.getDeployedResourcesEntry() : null;
-						toDeploy.add(new PartialZipEntryAdapter(deployedResourcesEntry, zipEntry, zipPartialWar));
+	public String getFilename() {
+		return module.getName() + ".war"; //$NON-NLS-1$
+	}
 
-					}
+	/**
+	 * Keeps the given archive of the archive store, like a child module jar
+	 * included in this archive, from being deleted until this archive is
+	 * closed.
+	 * @param archive file in the archive store. Other files are ignored.
+	 */
+	public synchronized void keepOpen(File archive) {
+		ArchiveStore.getDefault().open(archive);
+		openArchives.add(archive);
+	}
 
-				}
-				entries = toDeploy;
-			}
-		}
-		catch (CoreException e) {
-			// Failed to create partial war
-			CloudFoundryPlugin.log(e);
+	public synchronized void close() {
+		ArchiveStore store = ArchiveStore.getDefault();
+		for (File archive : openArchives) {
+			store.release(archive);
 		}
-		catch (ZipException e) {
-			// Failed to create partial war
-			CloudFoundryPlugin.logError(e);
-		}
-		catch (IOException e) {
-			// Failed to create partial war
-			CloudFoundryPlugin.logError(e);
+		openArchives.clear();
+	}
+
+	protected synchronized ArchiveEntryTable getTable() {
+		if (table == null) {
+			table = new ArchiveEntryTable(resources.size());
+			collectEntries(table, resources.toArray(new IModuleResource[0]));
+			table.trim();
+			index.setResourceCount(table.size());
 		}
+		return table;
 	}
 
 	/**
-	 * Entry to be used to access actual payload files. Sha1 entries should be
-	 * computed prior to creating the entry, ideally without uncompressing the
-	 * archive file, and possibly using a cache
-	 * 
+	 * All entries must be collected, for both resources that have changed as
+	 * well as those that haven't, as the CF client must first use that
+	 * collected list of entries to determine what has changed.
+	 * @param table
+	 * @param members
 	 */
-	public class PartialZipEntryAdapter implements ApplicationArchive.Entry {
-		private final DeployedResourceEntry deployedResourcesEntry;
+	protected void collectEntries(ArchiveEntryTable table, IModuleResource[] members) {
+		if (members == null) {
+			return;
+		}
+		for (IModuleResource resource : members) {
+			if (resource instanceof IModuleFile) {
+				Node node = index.getNode(resource);
+				table.add(node, resource, false, changedResources.contains(node));
+			}
+			else if (resource instanceof IModuleFolder) {
+				table.add(index.getNode(resource), resource, true, false);
+				collectEntries(table, ((IModuleFolder) resource).members());
+			}
+		}
+	}
 
-		private final ZipEntry zipEntry;
+	public synchronized void startHashing() {
+		if (pendingHashes == null && !hashed) {
+			final ArchiveEntryTable table = getTable();
+			// Entries are only created as they are hashed
+			pendingHashes = hasher.start(new AbstractList<HashableEntry>() {
 
-		private final ZipFile zipFile;
+				@Override
+				public HashableEntry get(int row) {
+					return new TableEntry(table, row);
+				}
 
-		public PartialZipEntryAdapter(DeployedResourceEntry deployedResourcesEntry, ZipEntry zipEntry, ZipFile zipFile) {
-			this.zipFile = zipFile;
-			this.zipEntry = zipEntry;
-			this.deployedResourcesEntry = deployedResourcesEntry;
+				@Override
+				public int size() {
+					return table.size();
+				}
+			});
+			hashed = pendingHashes == null;
 		}
+	}
 
-		public boolean isDirectory() {
-			return zipEntry.isDirectory();
+	public synchronized Iterable<Entry> getEntries() {
+		if (!hashed) {
+			startHashing();
+			hasher.await(pendingHashes);
+			pendingHashes = null;
+			hashed = true;
 		}
+		final ArchiveEntryTable table = getTable();
+		return new Iterable<Entry>() {
 
-		public String getName() {
-			return zipEntry.getName();
-		}
+			public Iterator<Entry> iterator() {
+				return new Iterator<Entry>() {
 
-		/**
-		 * 
-		 * @return deployed resource, or null if not defined for this zip entry.
-		 * Note that for directory cases, there won't be a deployed resource so
-		 * this would be one case where null is returned
-		 */
-		protected DeployedResourceEntry getDeployedResourceEntry() {
-			return deployedResourcesEntry;
-		}
+					private int row;
 
-		public long getSize() {
-			return getDeployedResourceEntry() != null ? getDeployedResourceEntry().getFileSize()
-					: AbstractModuleResourceEntryAdapter.UNDEFINED_SIZE;
-		}
+					public boolean hasNext() {
+						return row < table.size();
+					}
 
-		public byte[] getSha1Digest() {
-			// Do not obtain it from the zip Entry to avoid unzipping the
-			// archive.
-			return getDeployedResourceEntry() != null ? getDeployedResourceEntry().getSha1() : null;
-		}
+					public Entry next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return new TableEntry(table, row++);
+					}
 
-		public InputStream getInputStream() throws IOException {
-			if (isDirectory()) {
-				return null;
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
 			}
+		};
+	}
 
-			return zipFile.getInputStream(zipEntry);
+	protected synchronized RepositoryChecksum getRepositoryChecksum() {
+		if (repositoryChecksum == null) {
+			repositoryChecksum = RepositoryChecksum.getDefault();
 		}
-
+		return repositoryChecksum;
 	}
 
-	public class ZipModuleFolderEntryAdapter extends ModuleFolderEntryAdapter {
+	/**
+	 * Resolves the size and sha1 code of the file of the given entry, using
+	 * cached values for resources that have not changed.
+	 * @param table
+	 * @param row of the entry
+	 */
+	protected void resolve(ArchiveEntryTable table, int row) {
+		if (table.isDirectory(row) || table.isResolved(row)) {
+			return;
+		}
 
-		public ZipModuleFolderEntryAdapter(IModuleFolder moduleResource) {
-			super(moduleResource);
+		File file = CloudUtil.getFile(table.getResource(row));
+		String name = table.getName(row);
+		DeployedResourceCache cache = CloudFoundryPlugin.getDefault().getDeployedResourcesCache();
+		DeployedResourceEntry deployedResourcesEntry = cache.getEntry(appID, name);
+
+		// Resources that are not in the publish delta can reuse entries
+		// already verified in this session without accessing the file.
+		// Resources in the delta are not necessarily modified (e.g.
+		// touched resources, or rebuilt resources with identical
+		// content), and entries loaded from a persisted index may be
+		// out of date. In either case, only read the file again if its
+		// attributes no longer match those recorded in the entry.
+		boolean reuse = !table.isChanged(row) && deployedResourcesEntry != null
+				&& deployedResourcesEntry.isVerified();
+		FileStat stat = !reuse && file != null && file.exists() ? FileStat.of(file) : null;
+		if (stat != null && (deployedResourcesEntry == null || !deployedResourcesEntry.isValidFor(stat))) {
+			// The same file may already have been hashed for another
+			// application or server, or in a previous session.
+			ContentHashStore store = cache.getContentHashStore();
+			String key = ContentHashStore.getKey(file);
+			FileHash hash = store.getHash(key, stat);
+			if (hash == null) {
+				long computedTime = System.currentTimeMillis();
+				hash = store.put(key, stat, computedTime, computeSha1(file));
+			}
+			deployedResourcesEntry = new DeployedResourceEntry(hash, name);
+			cache.add(appID, deployedResourcesEntry);
 		}
 
-		protected String computeName(IModuleResource resource) {
-			return CloudUtil.getZipRelativeName(resource);
+		if (deployedResourcesEntry != null) {
+			table.setResolved(row, deployedResourcesEntry.getFileSize(), deployedResourcesEntry.getLastModified(),
+					deployedResourcesEntry.getSha1());
 		}
+		else {
+			table.setResolved(row, ArchiveEntryTable.UNDEFINED_SIZE, 0, null);
+		}
+	}
 
+	/**
+	 * Computes the sha1 hash code of the given file. If the file cannot be
+	 * read, this fails with an {@link IllegalStateException}, as the Cloud
+	 * Foundry client expects from entries that fail to compute their hash
+	 * code. The row of the file is then left unresolved, so that a failure in
+	 * the background is repeated, and reported, on the thread of the client.
+	 * @param file to hash
+	 * @return sha1 hash code of the given file
+	 */
+	protected byte[] computeSha1(File file) {
+		// Library jars resolved from a Maven or Gradle repository
+		// already have a recorded hash code, which avoids reading the jar
+		byte[] sha1 = getRepositoryChecksum().getSha1(file);
+		if (sha1 != null) {
+			return sha1;
+		}
+		try {
+			return ContentHashStore.computeSha1(file);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Failed to compute sha1 hash code of " + file + ": " //$NON-NLS-1$ //$NON-NLS-2$
+					+ e.getMessage(), e);
+		}
 	}
 
 	/**
-	 * Module file resource specialisation of the Cloud Foundry client entry
-	 * adapter. This computes sha1 and file sizes and manages caching of such
-	 * values for resources that have changed.
-	 * 
+	 * Entry of the Cloud Foundry client for a row of the entry table. Holds no
+	 * state other than the row, so it can be created whenever the entries are
+	 * iterated.
 	 */
-	public class ZipModuleFileEntryAdapter extends ModuleFileEntryAdapter {
+	protected class TableEntry implements Entry, HashableEntry {
+
+		private final ArchiveEntryTable table;
 
-		private final CachedDeployedApplication appName;
+		private final int row;
 
-		private final boolean recalculate;
+		public TableEntry(ArchiveEntryTable table, int row) {
+			this.table = table;
+			this.row = row;
+		}
 
-		public ZipModuleFileEntryAdapter(IModuleFile moduleFile, CachedDeployedApplication appName, boolean recalculate) {
-			super(moduleFile);
+		public boolean isDirectory() {
+			return table.isDirectory(row);
+		}
 
-			this.appName = appName;
-			this.recalculate = recalculate;
+		public String getName() {
+			return table.getName(row);
 		}
 
-		@Override
 		public long getSize() {
-			DeployedResourceEntry entry = getDeployedResourcesEntry();
-			return entry != null ? entry.getFileSize() : UNDEFINED_SIZE;
+			resolve(table, row);
+			return table.getFileSize(row);
 		}
 
-		public DeployedResourceEntry getDeployedResourcesEntry() {
+		public byte[] getSha1Digest() {
+			resolve(table, row);
+			return table.getSha1(row);
+		}
 
-			DeployedResourceEntry deployedResourcesEntry = CloudFoundryPlugin.getDefault().getDeployedResourcesCache()
-					.getEntry(appName, getName());
+		public void computeHash() {
+			resolve(table, row);
+		}
 
-			if (canComputeResourceEntry() && (recalculate || deployedResourcesEntry == null)) {
-				byte[] sha1 = super.getSha1Digest();
-				long fileSize = super.getSize();
-				deployedResourcesEntry = new DeployedResourceEntry(sha1, fileSize, getName());
-				CloudFoundryPlugin.getDefault().getDeployedResourcesCache().add(appName, deployedResourcesEntry);
+		public InputStream getInputStream() throws IOException {
+			if (isDirectory()) {
+				// No input stream needed for folders.
+				return null;
+			}
+			IModuleResource resource = table.getResource(row);
+			File file = CloudUtil.getFile(resource);
+			if (file != null && file.exists()) {
+				return new FileInputStream(file);
 			}
 
-			return deployedResourcesEntry;
-		}
-
-		public byte[] getSha1Digest() {
-			DeployedResourceEntry entry = getDeployedResourcesEntry();
-			return entry != null ? entry.getSha1() : null;
+			// Entries may be streamed directly into the upload request, so
+			// also support workspace files that cannot be resolved to a
+			// local file
+			IFile iFile = (IFile) resource.getAdapter(IFile.class);
+			if (iFile != null && iFile.exists()) {
+				try {
+					return iFile.getContents();
+				}
+				catch (CoreException e) {
+					throw new IOException(e.getMessage(), e);
+				}
+			}
+			// The file was removed after the archive was created
+			throw new FileNotFoundException("No file found for application archive entry: " + getName()); //$NON-NLS-1$
 		}
 
-		protected String computeName(IModuleResource resource) {
-			return CloudUtil.getZipRelativeName(resource);
+		@Override
+		public String toString() {
+			return getName();
 		}
 	}
 
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jst.server.core.IJ2EEModule;
+import org.eclipse.jst.server.core.IWebModule;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.internal.Server;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.util.ModuleFile;
+import org.eclipse.wst.server.core.util.PublishHelper;
+
+/**
+ * Provides the jars of the child modules of a web module (for example,
+ * utility projects), as module files that can be added to the resources of
+ * the web module when it is published.
+ * <p/>
+ * Binary child modules that consist of a single local file are included as
+ * is. Other binary child modules are published into jars, and other child
+ * modules are assembled into jars, that are kept in the archive store and
+ * only rebuilt when the resources of the child module have changed. Each
+ * version of a jar has its
+ * own fingerprint folder, so that rebuilding a jar never overwrites a version
+ * that may still be uploaded by another publish. Jars are built
+ * deterministically, with fixed entry time stamps and entries sorted by name,
+ * so that a child module with the same content always results in a jar with
+ * the same sha1 hash code, and can be matched by the Cloud Foundry server
+ * instead of being uploaded again.
+ */
+@SuppressWarnings("restriction")
+public class ChildModuleJars {
+
+	private static final String CHILD_MODULES_FOLDER = "childModules"; //$NON-NLS-1$
+
+	private static final String DEFAULT_LIB_FOLDER = "WEB-INF/lib/"; //$NON-NLS-1$
+
+	/**
+	 * Time stamp of all entries in assembled jars. Zip entries cannot
+	 * represent times before 1980.
+	 */
+	private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+
+	private final ArchiveStore store;
+
+	private final File jarFolder;
+
+	/**
+	 * 
+	 * @param jarFolder entry of the default archive store where assembled
+	 * jars are kept between publishes
+	 */
+	public ChildModuleJars(File jarFolder) {
+		this(ArchiveStore.getDefault(), jarFolder);
+	}
+
+	/**
+	 * 
+	 * @param store archive store containing the jar folder
+	 * @param jarFolder entry of the store where assembled jars are kept
+	 * between publishes
+	 */
+	public ChildModuleJars(ArchiveStore store, File jarFolder) {
+		this.store = store;
+		this.jarFolder = jarFolder;
+	}
+
+	/**
+	 * 
+	 * @param module parent web module
+	 * @return stable folder for the jars of the child modules of the given
+	 * module, in the archive store.
+	 * @throws CoreException if the folder cannot be created
+	 */
+	public static File getJarFolder(IModule module) throws CoreException {
+		return ArchiveStore.getDefault().getFolder(CHILD_MODULES_FOLDER, module);
+	}
+
+	/**
+	 * 
+	 * @param webModule parent web module
+	 * @param server
+	 * @param monitor
+	 * @return module files for the jars of all child modules of the given web
+	 * module, located in the folder where the web module expects them (e.g.
+	 * WEB-INF/lib). Empty if the module has no child modules.
+	 * @throws CoreException if a child module jar cannot be created
+	 */
+	public List<IModuleResource> getJars(IWebModule webModule, Server server, IProgressMonitor monitor)
+			throws CoreException {
+		List<IModuleResource> jars = new ArrayList<IModuleResource>();
+		IModule[] children = webModule.getModules();
+		if (children == null) {
+			return jars;
+		}
+		for (IModule child : children) {
+			IJ2EEModule childModule = (IJ2EEModule) child.loadAdapter(IJ2EEModule.class, monitor);
+			boolean isBinary = childModule != null && childModule.isBinary();
+
+			String childUri = webModule.getURI(child);
+			if (childUri == null) {
+				childUri = DEFAULT_LIB_FOLDER + child.getName() + (isBinary ? "" : ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			IPath jarPath = new Path(childUri);
+			String jarName = jarPath.lastSegment();
+			jarPath = jarPath.removeLastSegments(1);
+
+			IModuleResource[] resources = server.getResources(new IModule[] { child });
+			File jarFile = isBinary ? getBinaryJar(resources) : null;
+			if (jarFile == null) {
+				// Versions of each jar are kept in a folder of their own,
+				// so that completing one jar does not delete the others
+				File childFolder = new File(jarFolder, jarName);
+
+				// Jar folders may be shared by different servers publishing
+				// the same module
+				synchronized (store.getLock(childFolder)) {
+					if (isBinary) {
+						jarFile = publishBinaryJar(resources, childFolder, jarName, child, monitor);
+					}
+					else {
+						jarFile = assembleJar(resources, childFolder, jarName);
+					}
+				}
+			}
+			jars.add(new ModuleFile(jarFile, jarName, jarPath));
+		}
+		return jars;
+	}
+
+	/**
+	 * 
+	 * @param resources resources of a binary module
+	 * @return the local jar file of the binary module, or null if the module
+	 * does not consist of a single local file.
+	 */
+	protected File getBinaryJar(IModuleResource[] resources) {
+		if (resources == null || resources.length != 1 || !(resources[0] instanceof IModuleFile)) {
+			return null;
+		}
+		File file = CloudUtil.getFile(resources[0]);
+		return file != null && file.isFile() ? file : null;
+	}
+
+	/**
+	 * Publishes the resources of a binary module into a jar in the
+	 * fingerprint folder of the resources, unless a jar was already published
+	 * there from resources with the same names and file attributes.
+	 * @param resources resources of the binary child module
+	 * @param folder folder of the versions of the jar
+	 * @param jarName
+	 * @param child binary child module
+	 * @param monitor
+	 * @return published jar
+	 * @throws CoreException if the jar cannot be published
+	 */
+	protected File publishBinaryJar(IModuleResource[] resources, File folder, String jarName, IModule child,
+			IProgressMonitor monitor) throws CoreException {
+		String fingerprint = ArchiveStore.getFingerprint(resources);
+		File jarFile = store.getArchive(folder, fingerprint, jarName);
+		if (store.isComplete(folder, fingerprint, jarName)) {
+			return jarFile;
+		}
+
+		List<IStatus> result = new ArrayList<IStatus>();
+		CloudUtil.merge(result, new PublishHelper(jarFile.getParentFile()).publishToPath(resources, new Path(
+				jarFile.getAbsolutePath()), monitor));
+		CloudUtil.throwException(result, "Publishing of " + child.getName() + " failed"); //$NON-NLS-1$ //$NON-NLS-2$
+		store.complete(folder, fingerprint);
+		return jarFile;
+	}
+
+	/**
+	 * Assembles the given resources into a jar in the fingerprint folder of
+	 * the resources, unless a jar was already assembled there from resources
+	 * with the same names and file attributes.
+	 * @param resources resources of the child module
+	 * @param folder folder of the versions of the jar
+	 * @param jarName
+	 * @return assembled jar
+	 * @throws CoreException if the jar cannot be assembled
+	 */
+	protected File assembleJar(IModuleResource[] resources, File folder, String jarName) throws CoreException {
+		// Null if resources were modified too recently, in which case the
+		// jar is assembled into a temporary folder, and assembled again on
+		// the next publish
+		String fingerprint = ArchiveStore.getFingerprint(resources);
+		File jarFile = store.getArchive(folder, fingerprint, jarName);
+		if (store.isComplete(folder, fingerprint, jarName)) {
+			return jarFile;
+		}
+
+		Map<String, IModuleResource> entries = new TreeMap<String, IModuleResource>();
+		ArchiveStore.collectEntries(resources, entries);
+		try {
+			writeJar(entries, jarFile);
+		}
+		catch (IOException e) {
+			throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
+					"Failed to create jar file " + jarName + ": " + e.getMessage(), e)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		store.complete(folder, fingerprint);
+		return jarFile;
+	}
+
+	protected void writeJar(Map<String, IModuleResource> entries, File jarFile) throws IOException,
+			CoreException {
+		AdaptiveZipOutputStream out = new AdaptiveZipOutputStream(new BufferedOutputStream(new FileOutputStream(
+				jarFile)));
+		try {
+			for (Map.Entry<String, IModuleResource> entry : entries.entrySet()) {
+				ZipEntry zipEntry = new ZipEntry(entry.getKey());
+				zipEntry.setTime(ENTRY_TIME);
+				if (entry.getValue() instanceof IModuleFile) {
+					final IModuleFile moduleFile = (IModuleFile) entry.getValue();
+					out.writeEntry(zipEntry, new AdaptiveZipOutputStream.EntryContents() {
+						public InputStream open() throws IOException, CoreException {
+							return getContents(moduleFile);
+						}
+					});
+				}
+				else {
+					out.putNextEntry(zipEntry);
+					out.closeEntry();
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	protected InputStream getContents(IModuleFile moduleFile) throws IOException, CoreException {
+		IFile iFile = (IFile) moduleFile.getAdapter(IFile.class);
+		if (iFile != null) {
+			return iFile.getContents();
+		}
+		File file = (File) moduleFile.getAdapter(File.class);
+		if (file == null) {
+			throw new IOException("Unable to read " + moduleFile.getName()); //$NON-NLS-1$
+		}
+		return new FileInputStream(file);
+	}
+}
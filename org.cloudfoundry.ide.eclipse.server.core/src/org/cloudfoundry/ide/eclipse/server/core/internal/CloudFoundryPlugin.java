@@ -23,12 +23,15 @@ package org.cloudfoundry.ide.eclipse.server.core.internal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.zip.Deflater;
 
 import org.cloudfoundry.ide.eclipse.server.core.AbstractAppStateTracker;
 import org.cloudfoundry.ide.eclipse.server.core.internal.client.CloudFoundryApplicationModule;
 import org.cloudfoundry.ide.eclipse.server.core.internal.client.CloudFoundryClientFactory;
 import org.cloudfoundry.ide.eclipse.server.core.internal.client.DeploymentConfiguration;
 import org.eclipse.core.net.proxy.IProxyService;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
@@ -269,6 +272,54 @@ public class CloudFoundryPlugin extends Plugin {
 
 	public static final boolean DEFAULT_INCREMENTAL_PUBLISH_PREFERENCE_VAL = true;
 
+	public static final String VERIFY_REPOSITORY_CHECKSUM_TIMESTAMP_PREFERENCE = PLUGIN_ID
+			+ ".publish.verify.repository.checksum.timestamp"; //$NON-NLS-1$
+
+	public static final boolean DEFAULT_VERIFY_REPOSITORY_CHECKSUM_TIMESTAMP_PREFERENCE_VAL = true;
+
+	public static final String PUBLISH_CONCURRENCY_PREFERENCE = PLUGIN_ID + ".publish.concurrency"; //$NON-NLS-1$
+
+	public static final int DEFAULT_PUBLISH_CONCURRENCY_PREFERENCE_VAL = 4;
+
+	public static final String PUBLISH_COMPRESSION_LEVEL_PREFERENCE = PLUGIN_ID + ".publish.compression.level"; //$NON-NLS-1$
+
+	public static final int DEFAULT_PUBLISH_COMPRESSION_LEVEL_PREFERENCE_VAL = Deflater.DEFAULT_COMPRESSION;
+
+	public static final String BACKGROUND_HASHING_PREFERENCE = PLUGIN_ID + ".publish.background.hashing"; //$NON-NLS-1$
+
+	public static final boolean DEFAULT_BACKGROUND_HASHING_PREFERENCE_VAL = true;
+
+	public static final String ARCHIVE_STORE_QUOTA_PREFERENCE = PLUGIN_ID + ".publish.archive.store.quota"; //$NON-NLS-1$
+
+	/**
+	 * Maximum size of generated archives kept between publishes, in MB
+	 */
+	public static final int DEFAULT_ARCHIVE_STORE_QUOTA_PREFERENCE_VAL = 2048;
+
+	public static final String ARCHIVE_STORE_MAX_AGE_PREFERENCE = PLUGIN_ID + ".publish.archive.store.max.age"; //$NON-NLS-1$
+
+	/**
+	 * Number of days after which unused generated archives are deleted
+	 */
+	public static final int DEFAULT_ARCHIVE_STORE_MAX_AGE_PREFERENCE_VAL = 14;
+
+	public static final String BULK_OPERATION_CONCURRENCY_PREFERENCE = PLUGIN_ID + ".bulk.operation.concurrency"; //$NON-NLS-1$
+
+	public static final int DEFAULT_BULK_OPERATION_CONCURRENCY_PREFERENCE_VAL = 6;
+
+	public static final String EXTERNAL_HTTP_MAX_CONNECTIONS_PER_ROUTE_PREFERENCE = PLUGIN_ID
+			+ ".external.http.max.connections.per.route"; //$NON-NLS-1$
+
+	public static final int DEFAULT_EXTERNAL_HTTP_MAX_CONNECTIONS_PER_ROUTE_PREFERENCE_VAL = 5;
+
+	public static final String EXTERNAL_HTTP_TIMEOUT_PREFERENCE = PLUGIN_ID + ".external.http.timeout"; //$NON-NLS-1$
+
+	/**
+	 * Connect and read timeout of requests sent directly to applications, in
+	 * seconds
+	 */
+	public static final int DEFAULT_EXTERNAL_HTTP_TIMEOUT_PREFERENCE_VAL = 30;
+
 	private static CloudFoundryCallback callback;
 
 	// Cached copy of app state tracker
@@ -280,7 +331,11 @@ public class CloudFoundryPlugin extends Plugin {
 
 	private static IProxyService proxyService;
 
-	private DeployedResourceCache sha1Cache = new DeployedResourceCache();
+	private static final String DEPLOYED_RESOURCES_INDEX_FOLDER = "deployedResources"; //$NON-NLS-1$
+
+	private DeployedResourceCache sha1Cache;
+
+	private BackgroundResourceHasher backgroundHasher;
 
 	private InstanceScope INSTANCE_SCOPE = new InstanceScope();
 
@@ -343,11 +398,102 @@ public class CloudFoundryPlugin extends Plugin {
 				DEFAULT_INCREMENTAL_PUBLISH_PREFERENCE_VAL);
 	}
 
+	/**
+	 * 
+	 * @return true if Maven repository checksum files that are older than the
+	 * jar they describe should be ignored when computing hash codes of
+	 * application resources.
+	 */
+	public synchronized boolean getVerifyRepositoryChecksumTimestamp() {
+		return getPreferences().getBoolean(VERIFY_REPOSITORY_CHECKSUM_TIMESTAMP_PREFERENCE,
+				DEFAULT_VERIFY_REPOSITORY_CHECKSUM_TIMESTAMP_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return maximum number of applications that are published at the same
+	 * time to a server. 1 if applications should be published sequentially.
+	 */
+	public synchronized int getPublishConcurrency() {
+		return getPreferences().getInt(PUBLISH_CONCURRENCY_PREFERENCE, DEFAULT_PUBLISH_CONCURRENCY_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return deflate level of compressible entries in generated application
+	 * archives
+	 */
+	public synchronized int getPublishCompressionLevel() {
+		return getPreferences().getInt(PUBLISH_COMPRESSION_LEVEL_PREFERENCE,
+				DEFAULT_PUBLISH_COMPRESSION_LEVEL_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return true if changed workspace files of applications added to a
+	 * Cloud Foundry server should be hashed in the background, ahead of
+	 * publishing
+	 */
+	public synchronized boolean getBackgroundHashing() {
+		return getPreferences().getBoolean(BACKGROUND_HASHING_PREFERENCE, DEFAULT_BACKGROUND_HASHING_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return maximum size of generated archives kept between publishes, in
+	 * MB
+	 */
+	public synchronized int getArchiveStoreQuota() {
+		return getPreferences().getInt(ARCHIVE_STORE_QUOTA_PREFERENCE, DEFAULT_ARCHIVE_STORE_QUOTA_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return number of days after which unused generated archives are
+	 * deleted
+	 */
+	public synchronized int getArchiveStoreMaxAge() {
+		return getPreferences().getInt(ARCHIVE_STORE_MAX_AGE_PREFERENCE, DEFAULT_ARCHIVE_STORE_MAX_AGE_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return maximum number of applications that a bulk operation, like
+	 * deleting or stopping several applications, performs requests for at the
+	 * same time.
+	 */
+	public synchronized int getBulkOperationConcurrency() {
+		return getPreferences().getInt(BULK_OPERATION_CONCURRENCY_PREFERENCE,
+				DEFAULT_BULK_OPERATION_CONCURRENCY_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return maximum number of connections to each application host kept by
+	 * the HTTP client shared by {@link ExternalRestTemplate}
+	 */
+	public synchronized int getExternalHttpMaxConnectionsPerRoute() {
+		return getPreferences().getInt(EXTERNAL_HTTP_MAX_CONNECTIONS_PER_ROUTE_PREFERENCE,
+				DEFAULT_EXTERNAL_HTTP_MAX_CONNECTIONS_PER_ROUTE_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @return connect and read timeout of requests sent by
+	 * {@link ExternalRestTemplate}, in seconds
+	 */
+	public synchronized int getExternalHttpTimeout() {
+		return getPreferences().getInt(EXTERNAL_HTTP_TIMEOUT_PREFERENCE, DEFAULT_EXTERNAL_HTTP_TIMEOUT_PREFERENCE_VAL);
+	}
+
 	public IEclipsePreferences getPreferences() {
 		return INSTANCE_SCOPE.getNode(PLUGIN_ID);
 	}
 
 	public synchronized DeployedResourceCache getDeployedResourcesCache() {
+		if (sha1Cache == null) {
+			sha1Cache = new DeployedResourceCache(getStateLocation().append(DEPLOYED_RESOURCES_INDEX_FOLDER).toFile());
+		}
 		return sha1Cache;
 	}
 
@@ -406,10 +552,19 @@ public class CloudFoundryPlugin extends Plugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+
+		backgroundHasher = new BackgroundResourceHasher();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(backgroundHasher, IResourceChangeEvent.POST_CHANGE);
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		if (backgroundHasher != null) {
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(backgroundHasher);
+			backgroundHasher.dispose();
+			backgroundHasher = null;
+		}
+
 		if (tracker != null) {
 			tracker.close();
 			tracker = null;
@@ -420,6 +575,15 @@ public class CloudFoundryPlugin extends Plugin {
 			moduleCache = null;
 		}
 
+		synchronized (this) {
+			if (sha1Cache != null) {
+				sha1Cache.save();
+				sha1Cache = null;
+			}
+		}
+
+		ExternalRestTemplate.shutdown();
+
 		plugin = null;
 		super.stop(context);
 	}
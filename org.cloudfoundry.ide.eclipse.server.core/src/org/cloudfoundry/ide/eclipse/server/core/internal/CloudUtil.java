@@ -30,7 +30,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import org.cloudfoundry.client.lib.domain.CloudService;
 import org.eclipse.core.resources.IContainer;
@@ -41,9 +40,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.jst.server.core.IJ2EEModule;
 import org.eclipse.jst.server.core.IWebModule;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.wst.server.core.IModule;
@@ -54,9 +51,7 @@ import org.eclipse.wst.server.core.internal.ServerPlugin;
 import org.eclipse.wst.server.core.model.IModuleFile;
 import org.eclipse.wst.server.core.model.IModuleFolder;
 import org.eclipse.wst.server.core.model.IModuleResource;
-import org.eclipse.wst.server.core.util.ModuleFile;
 import org.eclipse.wst.server.core.util.ModuleFolder;
-import org.eclipse.wst.server.core.util.PublishHelper;
 
 /**
  * @author Christian Dupuis
@@ -73,6 +68,8 @@ public class CloudUtil {
 
 	private static final IStatus[] EMPTY_STATUS = new IStatus[0];
 
+	private static final String WAR_FOLDER = "war"; //$NON-NLS-1$
+
 	public static IWebModule getWebModule(IModule[] modules) {
 
 		IModuleType moduleType = modules[0].getModuleType();
@@ -85,129 +82,54 @@ public class CloudUtil {
 	}
 
 	/**
-	 * Creates a partial war file containing only the resources listed in the
-	 * list to filter in. Note that at least one content must be present in the
-	 * list to filter in, otherwise null is returned.
-	 * @param resources
-	 * @param module
+	 * Creates a war file for the given modules in the archive store. If the
+	 * war file of a previous publish was generated from resources with the
+	 * same names and file attributes, that war file is returned instead.
+	 * @param modules
 	 * @param server
 	 * @param monitor
-	 * @return partial war file with resources specified in the filter in list,
-	 * or null if filter list is empty or null
-	 * @throws CoreException
+	 * @return war file of the modules
+	 * @throws CoreException if the war file cannot be created
 	 */
-	public static File createWarFile(List<IModuleResource> allResources, IModule module,
-			Set<IModuleResource> filterInResources, IProgressMonitor monitor) throws CoreException {
-		if (allResources == null || allResources.isEmpty() || filterInResources == null || filterInResources.isEmpty()) {
-			return null;
-		}
+	public static File createWarFile(IModule[] modules, Server server, IProgressMonitor monitor) throws CoreException {
 		List<IStatus> result = new ArrayList<IStatus>();
-		try {
-			File tempDirectory = getTempFolder(module);
-			// tempFile needs to be in the same location as the war file
-			// otherwise PublishHelper will fail
-			String fileName = module.getName() + ".war"; //$NON-NLS-1$
-
-			File warFile = new File(tempDirectory, fileName);
-			warFile.createNewFile();
-			warFile.deleteOnExit();
-			List<IModuleResource> newResources = new ArrayList<IModuleResource>();
-			for (IModuleResource mr : allResources) {
-				newResources.add(processModuleResource(mr));
-			}
+		ArchiveStore store = ArchiveStore.getDefault();
+		File warFolder = store.getFolder(WAR_FOLDER, modules[0]);
+		String warName = modules[0].getName() + ".war"; //$NON-NLS-1$
 
-			IStatus[] status = publishZip(allResources, warFile, filterInResources, monitor);
-			merge(result, status);
-			throwException(result, "Publishing of : " + module.getName() + " failed"); //$NON-NLS-1$ //$NON-NLS-2$
+		ArrayList<IModuleResource> resources = new ArrayList<IModuleResource>(Arrays.asList(server
+				.getResources(modules)));
 
-			return warFile;
-		}
-		catch (IOException e) {
-			throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
-					"Failed to create war file: " + e.getMessage(), e)); //$NON-NLS-1$
+		IWebModule webModule = getWebModule(modules);
+
+		if (webModule != null) {
+			// Child module jars are kept between publishes and are
+			// only rebuilt if the child module changed
+			resources.addAll(new ChildModuleJars(ChildModuleJars.getJarFolder(modules[0])).getJars(webModule, server,
+					monitor));
 		}
-	}
 
-	public static File createWarFile(IModule[] modules, Server server, IProgressMonitor monitor) throws CoreException {
-		List<IStatus> result = new ArrayList<IStatus>();
-		try {
-			File tempFile = getTempFolder(modules[0]);
-			// tempFile needs to be in the same location as the war file
-			// otherwise PublishHelper will fail
-			File targetFile = new File(tempFile, modules[0].getName() + ".war"); //$NON-NLS-1$
-			targetFile.deleteOnExit();
-			PublishHelper helper = new PublishHelper(tempFile);
-
-			ArrayList<IModuleResource> resources = new ArrayList<IModuleResource>(Arrays.asList(server
-					.getResources(modules)));
-
-			IWebModule webModule = getWebModule(modules);
-
-			if (webModule != null) {
-
-				IModule[] children = webModule.getModules();
-
-				if (children != null) {
-					for (IModule child : children) {
-						String childUri = null;
-						if (webModule != null) {
-							childUri = webModule.getURI(child);
-						}
-						IJ2EEModule childModule = (IJ2EEModule) child.loadAdapter(IJ2EEModule.class, monitor);
-						boolean isBinary = false;
-						if (childModule != null) {
-							isBinary = childModule.isBinary();
-						}
-						if (isBinary) {
-							// binaries are copied to the destination
-							// directory
-							if (childUri == null) {
-								childUri = "WEB-INF/lib/" + child.getName(); //$NON-NLS-1$
-							}
-							IPath jarPath = new Path(childUri);
-							File jarFile = new File(tempFile, jarPath.lastSegment());
-							jarPath = jarPath.removeLastSegments(1);
-
-							IModuleResource[] mr = server.getResources(new IModule[] { child });
-							IStatus[] status = helper.publishToPath(mr, new Path(jarFile.getAbsolutePath()), monitor);
-							merge(result, status);
-							resources.add(new ModuleFile(jarFile, jarFile.getName(), jarPath));
-						}
-						else {
-							// other modules are assembled into a jar
-							if (childUri == null) {
-								childUri = "WEB-INF/lib/" + child.getName() + ".jar"; //$NON-NLS-1$ //$NON-NLS-2$
-							}
-							IPath jarPath = new Path(childUri);
-							File jarFile = new File(tempFile, jarPath.lastSegment());
-							jarPath = jarPath.removeLastSegments(1);
-
-							IModuleResource[] mr = server.getResources(new IModule[] { child });
-							IStatus[] status = helper.publishZip(mr, new Path(jarFile.getAbsolutePath()), monitor);
-							merge(result, status);
-							resources.add(new ModuleFile(jarFile, jarFile.getName(), jarPath));
-						}
-					}
-				}
-			}
+		List<IModuleResource> newResources = new ArrayList<IModuleResource>();
+		for (IModuleResource mr : resources) {
+			newResources.add(processModuleResource(mr));
+		}
 
-			List<IModuleResource> newResources = new ArrayList<IModuleResource>();
-			for (IModuleResource mr : resources) {
-				newResources.add(processModuleResource(mr));
+		// Concurrent publishes of the same module must not generate the war
+		// file into the same location
+		synchronized (store.getLock(warFolder)) {
+			String fingerprint = ArchiveStore.getFingerprint(newResources.toArray(new IModuleResource[0]));
+			File targetFile = store.getArchive(warFolder, fingerprint, warName);
+			if (store.isComplete(warFolder, fingerprint, warName)) {
+				return targetFile;
 			}
 
-			IStatus[] status = helper.publishZip(newResources.toArray(new IModuleResource[0]),
-					new Path(targetFile.getAbsolutePath()), monitor);
+			IStatus[] status = publishZip(newResources, targetFile, null, monitor);
 			merge(result, status);
 			throwException(result, "Publishing of " + modules[0].getName() + " failed"); //$NON-NLS-1$ //$NON-NLS-2$
+			store.complete(warFolder, fingerprint);
 
 			return targetFile;
 		}
-		catch (IOException e) {
-			throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
-					"Failed to create war file: " + e.getMessage(), e)); //$NON-NLS-1$
-		}
-
 	}
 
 	private static IModuleResource processModuleResource(IModuleResource or) {
@@ -228,13 +150,6 @@ public class CloudUtil {
 		return or;
 	}
 
-	private static File getTempFolder(IModule module) throws IOException {
-		File tempFile = File.createTempFile("tempFileForWar", null); //$NON-NLS-1$
-		tempFile.delete();
-		tempFile.mkdirs();
-		return tempFile;
-	}
-
 	protected static void throwException(List<IStatus> status, String message) throws CoreException {
 		if (status == null || status.size() == 0) {
 			return;
@@ -243,6 +158,15 @@ public class CloudUtil {
 				message, null));
 	}
 
+	/**
+	 * Writes the given resources into a zip file. Entries that are already
+	 * compressed are not deflated again.
+	 * @param allResources
+	 * @param tempFile zip file to write
+	 * @param filterInFiles files to include, or null to include all files
+	 * @param monitor
+	 * @return error statuses, or an empty array if the zip file was written
+	 */
 	public static IStatus[] publishZip(List<IModuleResource> allResources, File tempFile,
 			Set<IModuleResource> filterInFiles, IProgressMonitor monitor) {
 
@@ -250,7 +174,7 @@ public class CloudUtil {
 
 		try {
 			BufferedOutputStream bout = new BufferedOutputStream(new FileOutputStream(tempFile));
-			ZipOutputStream zout = new ZipOutputStream(bout);
+			AdaptiveZipOutputStream zout = new AdaptiveZipOutputStream(bout);
 			addZipEntries(zout, allResources, filterInFiles);
 			zout.close();
 
@@ -263,17 +187,9 @@ public class CloudUtil {
 			return new Status[] { new Status(IStatus.ERROR, ServerPlugin.PLUGIN_ID, 0, NLS.bind(
 					Messages.ERROR_CREATE_ZIP, tempFile.getName(), e.getLocalizedMessage()), e) };
 		}
-		finally {
-			if (tempFile != null && tempFile.exists())
-				tempFile.deleteOnExit();
-		}
 		return EMPTY_STATUS;
 	}
 
-	private static final int BUFFER = 65536;
-
-	private static byte[] buf = new byte[BUFFER];
-
 	public static String getZipRelativeName(IModuleResource resource) {
 		IPath path = resource.getModuleRelativePath().append(resource.getName());
 		String entryPath = path.toPortableString();
@@ -285,7 +201,23 @@ public class CloudUtil {
 
 	}
 
-	private static void addZipEntries(ZipOutputStream out, List<IModuleResource> allResources,
+	/**
+	 * 
+	 * @param resource module file
+	 * @return local file of the given module resource, or null if it has none
+	 */
+	public static File getFile(IModuleResource resource) {
+		File file = (File) resource.getAdapter(File.class);
+		if (file == null) {
+			IFile iFile = (IFile) resource.getAdapter(IFile.class);
+			if (iFile != null && iFile.getLocation() != null) {
+				file = iFile.getLocation().toFile();
+			}
+		}
+		return file;
+	}
+
+	private static void addZipEntries(AdaptiveZipOutputStream out, List<IModuleResource> allResources,
 			Set<IModuleResource> filterInFiles) throws Exception {
 		if (allResources == null)
 			return;
@@ -318,7 +250,7 @@ public class CloudUtil {
 
 			IModuleFile moduleFile = (IModuleFile) resource;
 			// Only add files that are in the filterInList
-			if (!filterInFiles.contains(moduleFile)) {
+			if (filterInFiles != null && !filterInFiles.contains(moduleFile)) {
 				continue;
 			}
 
@@ -326,39 +258,25 @@ public class CloudUtil {
 
 			ZipEntry zipEntry = new ZipEntry(entryPath);
 
-			InputStream input = null;
 			long timeStamp = 0;
-			IFile iFile = (IFile) moduleFile.getAdapter(IFile.class);
+			final IFile iFile = (IFile) moduleFile.getAdapter(IFile.class);
+			final File file = iFile == null ? (File) moduleFile.getAdapter(File.class) : null;
 			if (iFile != null) {
 				timeStamp = iFile.getLocalTimeStamp();
-				input = iFile.getContents();
 			}
 			else {
-				File file = (File) moduleFile.getAdapter(File.class);
 				timeStamp = file.lastModified();
-				input = new FileInputStream(file);
 			}
 
 			if (timeStamp != IResource.NULL_STAMP && timeStamp != 0) {
 				zipEntry.setTime(timeStamp);
 			}
 
-			out.putNextEntry(zipEntry);
-
-			try {
-				int n = 0;
-				while (n > -1) {
-					n = input.read(buf);
-					if (n > 0) {
-						out.write(buf, 0, n);
-					}
+			out.writeEntry(zipEntry, new AdaptiveZipOutputStream.EntryContents() {
+				public InputStream open() throws IOException, CoreException {
+					return iFile != null ? iFile.getContents() : new FileInputStream(file);
 				}
-			}
-			finally {
-				input.close();
-			}
-
-			out.closeEntry();
+			});
 		}
 	}
 
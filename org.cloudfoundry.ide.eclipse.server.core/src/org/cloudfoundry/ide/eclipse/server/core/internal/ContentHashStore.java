@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Content-addressed store of sha1 hash codes for local files, keyed by the
+ * canonical path of the file and validated by the file attributes recorded
+ * when the file was hashed. The store is shared by all applications and
+ * servers, so a file that is part of several applications (e.g. a library jar
+ * used by many web applications) is only hashed, and only kept in memory, once.
+ * <p/>
+ * If an index file is provided, the store is persisted in that file, so that
+ * hash codes survive restarts. The index is loaded lazily the first time the
+ * store is accessed. Hash codes read from the index must be validated against
+ * the current file attributes before they are used, which
+ * {@link #getHash(String, FileStat)} does.
+ */
+public class ContentHashStore {
+
+	private static final int INDEX_VERSION = 1;
+
+	/**
+	 * Upper bound of entries written to the index. Entries verified in the
+	 * current session are written first, so that hash codes of files that are
+	 * no longer published eventually drop out of the index.
+	 */
+	private static final int MAX_PERSISTED_ENTRIES = 500000;
+
+	private final File indexFile;
+
+	private Map<String, FileHash> hashes;
+
+	private boolean dirty;
+
+	/**
+	 * 
+	 * @param indexFile file where the store is persisted. If null, hash codes
+	 * are only kept in memory.
+	 */
+	public ContentHashStore(File indexFile) {
+		this.indexFile = indexFile;
+	}
+
+	/**
+	 * 
+	 * @param file
+	 * @return key of the given file in the store. This is the canonical path
+	 * of the file, so that the same file reached through different paths
+	 * shares the same hash code.
+	 */
+	public static String getKey(File file) {
+		try {
+			return file.getCanonicalPath();
+		}
+		catch (IOException e) {
+			return file.getAbsolutePath();
+		}
+	}
+
+	/**
+	 * 
+	 * @param key of the hashed content
+	 * @param currentStat current attributes of the hashed file
+	 * @return hash of the content if it is still valid for the given
+	 * attributes, or null if there is no hash for the key or it is out of date
+	 */
+	public synchronized FileHash getHash(String key, FileStat currentStat) {
+		FileHash hash = getHashes().get(key);
+		return hash != null && hash.isValidFor(currentStat) ? hash : null;
+	}
+
+	/**
+	 * Reads the given file and computes its sha1 hash code, with the same
+	 * algorithm as the Cloud Foundry client.
+	 * @param file
+	 * @return sha1 hash code of the file content
+	 * @throws IOException if the file cannot be read
+	 */
+	public static byte[] computeSha1(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA"); //$NON-NLS-1$
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Adds or replaces the hash code for the given key.
+	 * @param key of the hashed content
+	 * @param stat attributes of the file when it was read to compute the hash
+	 * code
+	 * @param computedTime time when the file was read
+	 * @param sha1 hash code
+	 * @return the stored hash
+	 */
+	public synchronized FileHash put(String key, FileStat stat, long computedTime, byte[] sha1) {
+		FileHash hash = new FileHash(sha1, stat, computedTime, true);
+		getHashes().put(key, hash);
+		dirty = true;
+		return hash;
+	}
+
+	/**
+	 * Writes the store to the index file if it has changed since it was
+	 * loaded or last saved. Does nothing if the store has no index file.
+	 */
+	public synchronized void save() {
+		if (indexFile == null || !dirty) {
+			return;
+		}
+		File folder = indexFile.getParentFile();
+		if (folder != null && !folder.exists() && !folder.mkdirs()) {
+			CloudFoundryPlugin.logWarning("Unable to create content hash index folder: " + folder); //$NON-NLS-1$
+			return;
+		}
+		try {
+			writeIndex();
+			dirty = false;
+		}
+		catch (IOException e) {
+			CloudFoundryPlugin.logError("Failed to save content hash index " + indexFile, e); //$NON-NLS-1$
+		}
+	}
+
+	protected Map<String, FileHash> getHashes() {
+		if (hashes == null) {
+			hashes = new HashMap<String, FileHash>();
+			if (indexFile != null) {
+				try {
+					readIndex();
+				}
+				catch (IOException e) {
+					// A corrupt index only means that hash codes have to be
+					// calculated again
+					hashes.clear();
+					CloudFoundryPlugin.logWarning("Discarding unreadable content hash index " + indexFile //$NON-NLS-1$
+							+ " due to " + e.getMessage()); //$NON-NLS-1$
+				}
+			}
+		}
+		return hashes;
+	}
+
+	protected void readIndex() throws IOException {
+		if (!indexFile.isFile()) {
+			return;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try {
+			if (in.readInt() != INDEX_VERSION) {
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				String fileKey = in.readUTF();
+				long computedTime = in.readLong();
+				byte[] sha1 = new byte[in.readUnsignedByte()];
+				in.readFully(sha1);
+				FileStat stat = new FileStat(lastModified, size, fileKey.length() > 0 ? fileKey : null);
+				hashes.put(key, new FileHash(sha1, stat, computedTime, false));
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	protected void writeIndex() throws IOException {
+		File tempFile = new File(indexFile.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			out.writeInt(INDEX_VERSION);
+
+			int count = Math.min(hashes.size(), MAX_PERSISTED_ENTRIES);
+			out.writeInt(count);
+
+			// Verified entries first, then as many unverified ones as fit
+			int written = 0;
+			for (int pass = 0; pass < 2; pass++) {
+				boolean verified = pass == 0;
+				for (Entry<String, FileHash> entry : hashes.entrySet()) {
+					if (written == count) {
+						break;
+					}
+					if (entry.getValue().isVerified() == verified) {
+						writeHash(out, entry.getKey(), entry.getValue());
+						written++;
+					}
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+		// Only replace the existing index once the new one is fully written
+		indexFile.delete();
+		if (!tempFile.renameTo(indexFile)) {
+			tempFile.delete();
+			throw new IOException("Unable to rename " + tempFile + " to " + indexFile); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	protected void writeHash(DataOutputStream out, String key, FileHash hash) throws IOException {
+		FileStat stat = hash.getStat();
+		out.writeUTF(key);
+		out.writeLong(stat.getSize());
+		out.writeLong(stat.getLastModified());
+		out.writeUTF(stat.getFileKey() != null ? stat.getFileKey() : ""); //$NON-NLS-1$
+		out.writeLong(hash.getComputedTime());
+		out.writeByte(hash.getSha1().length);
+		out.write(hash.getSha1());
+	}
+
+	/**
+	 * Hash code of a particular version of a file's content, identified by the
+	 * file attributes when the content was read.
+	 */
+	public static class FileHash {
+
+		private final byte[] sha1;
+
+		private final FileStat stat;
+
+		private final long computedTime;
+
+		private volatile boolean verified;
+
+		/**
+		 * 
+		 * @param sha1 hash code of the file content
+		 * @param stat attributes of the file when its content was read to
+		 * compute the hash code.
+		 * @param computedTime time when the file content was read
+		 * @param verified true if the hash is known to match the current file
+		 * content, false if it must be validated before it is used (for
+		 * example, a hash read from a persisted index)
+		 */
+		public FileHash(byte[] sha1, FileStat stat, long computedTime, boolean verified) {
+			this.sha1 = sha1;
+			this.stat = stat;
+			this.computedTime = computedTime;
+			this.verified = verified;
+		}
+
+		/**
+		 * 
+		 * @param currentStat current attributes of the local file that the
+		 * hash was computed from
+		 * @return true if the file still has the same attributes as when the
+		 * hash was computed, and was not modified so close to that time that
+		 * a change may not be visible in its attributes. False otherwise,
+		 * including if the current attributes are null.
+		 */
+		public boolean isValidFor(FileStat currentStat) {
+			boolean valid = currentStat != null && currentStat.isSameAs(stat) && !currentStat.isRacy(computedTime);
+			if (valid) {
+				verified = true;
+			}
+			return valid;
+		}
+
+		/**
+		 * 
+		 * @return true if the hash was computed or validated against the file
+		 * attributes during this session.
+		 */
+		public boolean isVerified() {
+			return verified;
+		}
+
+		public byte[] getSha1() {
+			return sha1;
+		}
+
+		public FileStat getStat() {
+			return stat;
+		}
+
+		public long getComputedTime() {
+			return computedTime;
+		}
+	}
+}
@@ -19,58 +19,151 @@
  ********************************************************************************/
 package org.cloudfoundry.ide.eclipse.server.core.internal;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudfoundry.ide.eclipse.server.core.internal.ContentHashStore.FileHash;
+
 /**
  * Cache for sha1 hash entries and file sizes for incremental publishing of
  * deployed resources. This avoid recalculating hash entries for resources that
  * have not changed in the server. A server poll may still required to obtain a
  * list of unchanged resources.
+ * <p/>
+ * Entries of an application are a light-weight view that maps the zip
+ * relative names of its resources to hash codes held in a
+ * {@link ContentHashStore} shared by all applications, so that a file
+ * deployed to several applications or servers is only hashed once. If a
+ * storage location is provided, the shared store is persisted in that
+ * location, so that hash codes survive restarts. Since files may change while
+ * the store is not in use, callers must validate entries against the current
+ * file attributes (see {@link DeployedResourceEntry#isValidFor(FileStat)}).
  * 
  */
 public class DeployedResourceCache {
+
+	private static final String CONTENT_HASH_INDEX_FILE = "content-hashes.idx"; //$NON-NLS-1$
+
 	private final Map<CachedDeployedApplication, Map<String, DeployedResourceEntry>> cacheMap = new HashMap<CachedDeployedApplication, Map<String, DeployedResourceEntry>>();
 
+	private final ContentHashStore hashStore;
+
+	/**
+	 * Creates a cache that only keeps entries in memory.
+	 */
+	public DeployedResourceCache() {
+		this(null);
+	}
+
+	/**
+	 * 
+	 * @param storageLocation folder where the shared content hash store is
+	 * persisted. If null, entries are only kept in memory.
+	 */
+	public DeployedResourceCache(File storageLocation) {
+		this.hashStore = new ContentHashStore(storageLocation != null ? new File(storageLocation,
+				CONTENT_HASH_INDEX_FILE) : null);
+	}
+
 	public synchronized void add(CachedDeployedApplication applicationID, DeployedResourceEntry entry) {
-		Map<String, DeployedResourceEntry> appEntries = cacheMap.get(applicationID);
-		if (appEntries == null) {
-			appEntries = new HashMap<String, DeployedResourceCache.DeployedResourceEntry>();
-			cacheMap.put(applicationID, appEntries);
-		}
-		appEntries.put(entry.getZipRelativeFileName(), entry);
+		getAppEntries(applicationID).put(entry.getZipRelativeFileName(), entry);
 	}
 
 	public synchronized DeployedResourceEntry getEntry(CachedDeployedApplication applicationID,
 			String zipRelativeFileName) {
-		Map<String, DeployedResourceEntry> appEntries = cacheMap.get(applicationID);
+		return getAppEntries(applicationID).get(zipRelativeFileName);
+	}
+
+	/**
+	 * 
+	 * @return store of hash codes shared by the entries of all applications.
+	 * Never null.
+	 */
+	public ContentHashStore getContentHashStore() {
+		return hashStore;
+	}
+
+	/**
+	 * Persists the shared content hash store if it has changed. Does nothing
+	 * if the cache has no storage location.
+	 */
+	public void save() {
+		hashStore.save();
+	}
 
-		return appEntries != null ? appEntries.get(zipRelativeFileName) : null;
+	protected Map<String, DeployedResourceEntry> getAppEntries(CachedDeployedApplication applicationID) {
+		Map<String, DeployedResourceEntry> appEntries = cacheMap.get(applicationID);
+		if (appEntries == null) {
+			appEntries = new HashMap<String, DeployedResourceCache.DeployedResourceEntry>();
+			cacheMap.put(applicationID, appEntries);
+		}
+		return appEntries;
 	}
 
 	public static class DeployedResourceEntry {
-		private final byte[] sha1;
 
-		private final long fileSize;
+		private final FileHash hash;
 
 		private final String zipRelativeFileName;
 
-		public DeployedResourceEntry(byte[] sha1, long fileSize, String zipRelativeFileName) {
-			this.sha1 = sha1;
-			this.fileSize = fileSize;
+		/**
+		 * 
+		 * @param hash hash code of the file content, as held in the shared
+		 * {@link ContentHashStore}
+		 * @param zipRelativeFileName
+		 */
+		public DeployedResourceEntry(FileHash hash, String zipRelativeFileName) {
+			this.hash = hash;
 			this.zipRelativeFileName = zipRelativeFileName;
 		}
 
+		/**
+		 * 
+		 * @return true if the entry was computed or validated against the
+		 * file attributes during this session.
+		 */
+		public boolean isVerified() {
+			return hash.isVerified();
+		}
+
+		/**
+		 * 
+		 * @param currentStat current attributes of the local file that the
+		 * entry was computed from
+		 * @return true if the file still has the same attributes as when the
+		 * entry was computed. See {@link FileHash#isValidFor(FileStat)}
+		 */
+		public boolean isValidFor(FileStat currentStat) {
+			return hash.isValidFor(currentStat);
+		}
+
 		public String getZipRelativeFileName() {
 			return zipRelativeFileName;
 		}
 
+		public FileHash getHash() {
+			return hash;
+		}
+
 		public byte[] getSha1() {
-			return sha1;
+			return hash.getSha1();
 		}
 
 		public long getFileSize() {
-			return fileSize;
+			return hash.getStat().getSize();
+		}
+
+		public long getLastModified() {
+			return hash.getStat().getLastModified();
+		}
+
+		public String getFileKey() {
+			return hash.getStat().getFileKey();
+		}
+
+		public long getComputedTime() {
+			return hash.getComputedTime();
 		}
 	}
 
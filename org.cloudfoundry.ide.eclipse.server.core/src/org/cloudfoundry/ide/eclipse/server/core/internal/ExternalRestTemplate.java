@@ -19,16 +19,30 @@
  ********************************************************************************/
 package org.cloudfoundry.ide.eclipse.server.core.internal;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.cloudfoundry.client.lib.CloudFoundryOperations;
 import org.cloudfoundry.client.lib.rest.CloudControllerResponseErrorHandler;
 import org.cloudfoundry.ide.eclipse.server.core.internal.client.CloudFoundryServerBehaviour;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -45,19 +59,120 @@ import org.springframework.web.client.RestTemplate;
  * Controller, this should NOT be used. Instead, use API in
  * {@link CloudFoundryServerBehaviour} which indirectly calls the underlying
  * {@link CloudFoundryOperations}
+ * <p/>
+ * All external rest templates share one HTTP client, whose connections are
+ * pooled and kept alive, so that repeated requests to the same application,
+ * like polling an application URL, do not set up a new TCP and TLS connection
+ * each time. The pool limits the connections to each host, and closes
+ * connections that remain idle.
  */
 public class ExternalRestTemplate extends RestTemplate {
 
+	/**
+	 * Maximum number of connections to all hosts
+	 */
+	private static final int MAX_TOTAL_CONNECTIONS = 50;
+
+	/**
+	 * Time after which idle connections are closed, in milliseconds
+	 */
+	private static final long IDLE_CONNECTION_TIMEOUT = 30 * 1000;
+
+	private static PoolingHttpClientConnectionManager connectionManager;
+
+	private static HttpClient httpClient;
+
+	private static Timer idleConnectionEvictor;
+
 	public ExternalRestTemplate() {
 		createRestTemplate();
 	}
 
 	protected ClientHttpRequestFactory createRequestFactory() {
-		HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties();
-		HttpClient httpClient = httpClientBuilder.build();
-		HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+		return new HttpComponentsClientHttpRequestFactory(getSharedHttpClient());
+	}
+
+	/**
+	 * 
+	 * @return HTTP client shared by all external rest templates. Created on
+	 * first use.
+	 */
+	protected static synchronized HttpClient getSharedHttpClient() {
+		if (httpClient == null) {
+			Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+					.register("http", PlainConnectionSocketFactory.getSocketFactory()) //$NON-NLS-1$
+					.register("https", SSLConnectionSocketFactory.getSystemSocketFactory()).build(); //$NON-NLS-1$
+
+			CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+			int maxConnectionsPerRoute = plugin != null ? plugin.getExternalHttpMaxConnectionsPerRoute()
+					: CloudFoundryPlugin.DEFAULT_EXTERNAL_HTTP_MAX_CONNECTIONS_PER_ROUTE_PREFERENCE_VAL;
+			int timeout = (plugin != null ? plugin.getExternalHttpTimeout()
+					: CloudFoundryPlugin.DEFAULT_EXTERNAL_HTTP_TIMEOUT_PREFERENCE_VAL) * 1000;
+
+			final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry);
+			manager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+			manager.setMaxTotal(Math.max(maxConnectionsPerRoute, MAX_TOTAL_CONNECTIONS));
+
+			RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(timeout).setSocketTimeout(timeout)
+					.setConnectionRequestTimeout(timeout).setStaleConnectionCheckEnabled(true).build();
+
+			httpClient = HttpClients.custom().useSystemProperties().setConnectionManager(manager)
+					.setDefaultRequestConfig(requestConfig).build();
+			connectionManager = manager;
+
+			idleConnectionEvictor = new Timer("Cloud Foundry external HTTP connection evictor", true); //$NON-NLS-1$
+			idleConnectionEvictor.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					manager.closeExpiredConnections();
+					manager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+				}
+			}, IDLE_CONNECTION_TIMEOUT, IDLE_CONNECTION_TIMEOUT);
+		}
+		return httpClient;
+	}
+
+	/**
+	 * Closes all connections of the shared HTTP client. A new client is
+	 * created if an external rest template is used afterward.
+	 */
+	public static synchronized void shutdown() {
+		if (idleConnectionEvictor != null) {
+			idleConnectionEvictor.cancel();
+			idleConnectionEvictor = null;
+		}
+		if (connectionManager != null) {
+			connectionManager.shutdown();
+			connectionManager = null;
+		}
+		httpClient = null;
+	}
 
-		return requestFactory;
+	/**
+	 * Sends a GET request to the given URL, for example to find out whether
+	 * an application URL is mapped yet. The response is read through the
+	 * shared HTTP client, so that the connection can be reused by the next
+	 * request.
+	 * @param uri
+	 * @return true if the request got a response other than
+	 * {@link HttpStatus#NOT_FOUND}. False if the URL was not found, or the
+	 * request failed.
+	 */
+	public boolean isAvailable(URI uri) {
+		ClientHttpResponse response = null;
+		try {
+			response = getRequestFactory().createRequest(uri, HttpMethod.GET).execute();
+			return response.getRawStatusCode() != HttpStatus.NOT_FOUND.value();
+		}
+		catch (IOException e) {
+			return false;
+		}
+		finally {
+			if (response != null) {
+				// Consumes the response, releasing the connection to the pool
+				response.close();
+			}
+		}
 	}
 
 	protected void createRestTemplate() {
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Snapshot of the file system attributes of a local file that identify a
+ * particular version of its content without reading it: last modified time,
+ * size and, where the file system provides one, the file key (e.g. device and
+ * inode on Unix).
+ * <p/>
+ * Two snapshots of the same file that are equal indicate that the file content
+ * has not changed, with the exception of "racy" modifications that occur
+ * within the file system time stamp resolution of the time the original
+ * snapshot was taken. See {@link #isRacy(long)}.
+ */
+public class FileStat {
+
+	/**
+	 * Coarsest time stamp resolution of commonly used file systems (FAT),
+	 * in milliseconds.
+	 */
+	public static final long TIMESTAMP_RESOLUTION = 2000;
+
+	private final long lastModified;
+
+	private final long size;
+
+	private final String fileKey;
+
+	public FileStat(long lastModified, long size, String fileKey) {
+		this.lastModified = lastModified;
+		this.size = size;
+		this.fileKey = fileKey;
+	}
+
+	/**
+	 * Reads the attributes of the given file in one file system call.
+	 * @param file
+	 * @return attributes of the file, or null if the file does not exist or
+	 * its attributes cannot be read.
+	 */
+	public static FileStat of(File file) {
+		if (file == null) {
+			return null;
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			if (!attributes.isRegularFile()) {
+				return null;
+			}
+			Object key = attributes.fileKey();
+			return new FileStat(attributes.lastModifiedTime().toMillis(), attributes.size(), key != null ? key
+					.toString() : null);
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * 
+	 * @return file key, or null if not supported by the file system.
+	 */
+	public String getFileKey() {
+		return fileKey;
+	}
+
+	/**
+	 * 
+	 * @param snapshotTime time when the content of the file was read
+	 * @return true if the file was last modified so close to the given time
+	 * that a subsequent modification may not be reflected in its last
+	 * modified time. The attributes of a racy file cannot be used to
+	 * determine that its content has not changed.
+	 */
+	public boolean isRacy(long snapshotTime) {
+		return lastModified + TIMESTAMP_RESOLUTION >= snapshotTime;
+	}
+
+	/**
+	 * 
+	 * @param other
+	 * @return true if both snapshots have the same last modified time and
+	 * size, and the same file key if both snapshots have one.
+	 */
+	public boolean isSameAs(FileStat other) {
+		if (other == null || lastModified != other.lastModified || size != other.size) {
+			return false;
+		}
+		return fileKey == null || other.fileKey == null || fileKey.equals(other.fileKey);
+	}
+
+}
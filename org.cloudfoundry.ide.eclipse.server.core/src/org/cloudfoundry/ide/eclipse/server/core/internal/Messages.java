@@ -227,6 +227,14 @@ public class Messages extends NLS {
 
 	public static String CONSOLE_APP_PUSHED_MESSAGE;
 
+	public static String CONSOLE_PUSH_TIMELINE;
+
+	public static String CONSOLE_PUSH_RESOURCES;
+
+	public static String CONSOLE_UPLOAD_RETRY;
+
+	public static String UPLOAD_PROGRESS;
+
 	public static String CONSOLE_PREPARING_APP;
 
 	public static String CONSOLE_STILL_WAITING_FOR_APPLICATION_TO_START;
@@ -237,6 +245,10 @@ public class Messages extends NLS {
 
 	public static String DeleteModulesOperation_ERROR_DELETE_APP_MESSAGE;
 
+	public static String BulkOperation_RUNNING_OPERATIONS;
+
+	public static String BulkOperation_ERROR_OPERATIONS_FAILED;
+
 	public static String LocalServerRequest_SERVER_LABEL;
 
 	public static String ManifestParser_READING;
@@ -255,10 +267,14 @@ public class Messages extends NLS {
 
 	public static String RemapModuleProjectCommand_JOB_LABEL;
 
+	public static String BackgroundResourceHasher_JOB_LABEL;
+
 	public static String RestartOperation_STARTING_APP;
 
 	public static String PUBLISHING_MODULE;
 
+	public static String PUBLISHING_MODULES;
+
 	public static String StopApplicationOperation_STOPPING_APP;
 
 	public static String DELETING_MODULE;
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+
+/**
+ * Index of the resource paths of a module, kept between publishes of the
+ * module. Webtools creates new module resources for each publish, so
+ * resources are looked up by path: each path is a node in a tree of path
+ * segments, with a numeric ID and the archive entry name of the path, which
+ * is only computed the first time the path is seen. Sets of resources, like
+ * the resources changed since the last publish, are kept as sets of IDs.
+ * <p/>
+ * Paths of resources that no longer exist remain in the index until the index
+ * holds many more paths than the module has resources, in which case a new
+ * index is created on the next publish.
+ */
+public class ModulePathIndex {
+
+	private static final int MAX_INDEXES = 32;
+
+	private static final Map<String, ModulePathIndex> INDEXES = new LinkedHashMap<String, ModulePathIndex>(16, 0.75f,
+			true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ModulePathIndex> eldest) {
+			return size() > MAX_INDEXES;
+		}
+	};
+
+	private final List<Node> nodes = new ArrayList<Node>();
+
+	private final Node root = new Node(null, null);
+
+	private final Node absoluteRoot = new Node(null, "/"); //$NON-NLS-1$
+
+	private int resourceCount;
+
+	/**
+	 * 
+	 * @param module
+	 * @return index of the resource paths of the given module, which is
+	 * created if the module has no index yet or if most paths of its index no
+	 * longer exist.
+	 */
+	public static ModulePathIndex getIndex(IModule module) {
+		synchronized (INDEXES) {
+			ModulePathIndex index = INDEXES.get(module.getId());
+			if (index == null || index.isSparse()) {
+				index = new ModulePathIndex();
+				INDEXES.put(module.getId(), index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * 
+	 * @param resource
+	 * @return node of the path of the given resource, which is added to the
+	 * index if not already present.
+	 */
+	public synchronized Node getNode(IModuleResource resource) {
+		IPath path = resource.getModuleRelativePath();
+		Node node = path.isAbsolute() ? absoluteRoot : root;
+		// Avoid IPath.segments(), which copies the segments
+		for (int i = 0; i < path.segmentCount(); i++) {
+			node = node.getChild(path.segment(i));
+		}
+		return node.getChild(resource.getName());
+	}
+
+	/**
+	 * 
+	 * @param resource
+	 * @return archive entry name of the given resource. Equivalent to
+	 * {@link CloudUtil#getZipRelativeName(IModuleResource)}.
+	 */
+	public String getZipName(IModuleResource resource) {
+		return getNode(resource).getZipName(resource instanceof IModuleFolder);
+	}
+
+	/**
+	 * 
+	 * @return new empty set of paths of this index
+	 */
+	public PathSet newPathSet() {
+		return new PathSet();
+	}
+
+	/**
+	 * 
+	 * @param deltas of the module resources. May be null.
+	 * @return set of files that were added or changed in the given deltas
+	 */
+	public PathSet getChangedFiles(IModuleResourceDelta[] deltas) {
+		PathSet changed = new PathSet();
+		addChangedFiles(deltas, changed);
+		return changed;
+	}
+
+	protected void addChangedFiles(IModuleResourceDelta[] deltas, PathSet changed) {
+		if (deltas == null) {
+			return;
+		}
+		for (IModuleResourceDelta delta : deltas) {
+			// Only handle file resources
+			IModuleResource resource = delta.getModuleResource();
+			if (resource instanceof IModuleFile && delta.getKind() != IModuleResourceDelta.NO_CHANGE) {
+				changed.add(resource);
+			}
+			addChangedFiles(delta.getAffectedChildren(), changed);
+		}
+	}
+
+	/**
+	 * Records the number of resources the module had when last published, so
+	 * that an index holding paths of many resources that no longer exist is
+	 * discarded.
+	 * @param count
+	 */
+	public synchronized void setResourceCount(int count) {
+		this.resourceCount = count;
+	}
+
+	/**
+	 * 
+	 * @return number of paths in the index
+	 */
+	public synchronized int size() {
+		return nodes.size();
+	}
+
+	protected synchronized boolean isSparse() {
+		return nodes.size() > 2 * resourceCount + 1024;
+	}
+
+	/**
+	 * Path of a module resource. Names are only built once for each path, from
+	 * the name of the parent path, and segments are kept only once.
+	 */
+	public class Node {
+
+		private final int id;
+
+		private final String name;
+
+		private String folderName;
+
+		private Map<String, Node> children;
+
+		protected Node(Node parent, String segment) {
+			if (parent == null) {
+				this.id = -1;
+				this.name = segment;
+			}
+			else {
+				this.id = nodes.size();
+				nodes.add(this);
+				// Same escaping of colons as IPath.toPortableString()
+				String escaped = segment.indexOf(':') >= 0 ? segment.replace(":", "::") : segment; //$NON-NLS-1$ //$NON-NLS-2$
+				this.name = parent.name == null ? escaped : parent.name.endsWith("/") ? parent.name + escaped //$NON-NLS-1$
+						: parent.name + '/' + escaped;
+			}
+		}
+
+		protected Node getChild(String segment) {
+			if (children == null) {
+				children = new HashMap<String, Node>(4);
+			}
+			Node child = children.get(segment);
+			if (child == null) {
+				child = new Node(this, segment);
+				children.put(segment, child);
+			}
+			return child;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		/**
+		 * 
+		 * @param folder true for the name of the folder entry of the path
+		 * @return archive entry name of the path
+		 */
+		public String getZipName(boolean folder) {
+			if (folder) {
+				synchronized (ModulePathIndex.this) {
+					if (folderName == null) {
+						folderName = name + '/';
+					}
+					return folderName;
+				}
+			}
+			return name;
+		}
+	}
+
+	/**
+	 * Set of paths of the index
+	 */
+	public class PathSet {
+
+		private final BitSet ids = new BitSet();
+
+		public void add(IModuleResource resource) {
+			ids.set(getNode(resource).getId());
+		}
+
+		public void addAll(List<? extends IModuleResource> resources) {
+			for (IModuleResource resource : resources) {
+				add(resource);
+			}
+		}
+
+		public boolean contains(Node node) {
+			return ids.get(node.getId());
+		}
+
+		public boolean contains(IModuleResource resource) {
+			return contains(getNode(resource));
+		}
+
+		public int size() {
+			return ids.cardinality();
+		}
+
+		public ModulePathIndex getIndex() {
+			return ModulePathIndex.this;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes sha1 hash codes for application archive entries in parallel,
+ * ahead of the resource matching performed by the Cloud Foundry client. The
+ * client otherwise requests hash codes one entry at a time on the thread that
+ * is pushing the application, leaving all other cores idle while large
+ * applications are hashed.
+ * <p/>
+ * All hashing is performed in a shared fork-join pool that is bounded to the
+ * number of available processors, so that concurrent publish operations do
+ * not create more hashing threads than there are cores.
+ * <p/>
+ * Archives can start hashing in the background as soon as they are created,
+ * so that hash codes are computed while the application is being checked and
+ * created on the server, rather than after these requests have completed.
+ * <p/>
+ * Entries that fail to compute their hash code in the background are left to
+ * compute it lazily when it is requested, on the thread requesting it, so that
+ * the failure is reported to the operation that needs the hash code rather
+ * than only logged.
+ */
+public class ParallelResourceHasher {
+
+	/**
+	 * Entry whose hash code can be computed in parallel with other entries.
+	 * Implementations must be thread-safe and should retain the computed
+	 * value, as it is the entry itself that is later queried for its hash
+	 * code. If computing the hash code fails, the entry must not retain a
+	 * value, so that it computes the hash code again when it is queried.
+	 */
+	public interface HashableEntry {
+
+		public void computeHash();
+
+	}
+
+	/**
+	 * Archive whose entries can be hashed in the background before the Cloud
+	 * Foundry client requests them for resource matching.
+	 */
+	public interface HashableArchive {
+
+		/**
+		 * Starts hashing the entries of the archive in the background, if not
+		 * already started. Requesting the entries of the archive waits for
+		 * the hashing to complete.
+		 */
+		public void startHashing();
+
+	}
+
+	/**
+	 * Number of entries that are hashed sequentially within one task, rather
+	 * than splitting the work further.
+	 */
+	private static final int BATCH_SIZE = 8;
+
+	private static ForkJoinPool pool;
+
+	protected static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+		}
+		return pool;
+	}
+
+	/**
+	 * Computes the hash codes of the given entries, and returns once all
+	 * entries have been hashed. Entries that failed to compute their hash code
+	 * compute it lazily when it is requested.
+	 * @param entries to hash. Must not be null.
+	 */
+	public void hash(List<? extends HashableEntry> entries) {
+		await(start(entries));
+	}
+
+	/**
+	 * Starts computing the hash codes of the given entries in the background,
+	 * and returns immediately.
+	 * @param entries to hash. Must not be null.
+	 * @return pending result to pass to {@link #await(Future)}, or null if
+	 * there is nothing to hash
+	 */
+	public Future<?> start(List<? extends HashableEntry> entries) {
+		if (entries.isEmpty()) {
+			return null;
+		}
+		return getPool().submit(new HashTask(entries, 0, entries.size()));
+	}
+
+	/**
+	 * Waits for hash codes started by {@link #start(List)} to be computed.
+	 * Entries that failed to compute their hash code compute it lazily when
+	 * it is requested.
+	 * @param pending result of {@link #start(List)}. May be null.
+	 */
+	public void await(Future<?> pending) {
+		if (pending == null) {
+			return;
+		}
+		try {
+			pending.get();
+		}
+		catch (ExecutionException e) {
+			// Failures of single entries are handled by the tasks, so this is
+			// unexpected. Entries not hashed yet are still hashed lazily.
+			CloudFoundryPlugin.logError("Failed to compute hash codes for application resources in parallel", //$NON-NLS-1$
+					e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	static class HashTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<? extends HashableEntry> entries;
+
+		private final int start;
+
+		private final int end;
+
+		HashTask(List<? extends HashableEntry> entries, int start, int end) {
+			this.entries = entries;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= BATCH_SIZE) {
+				for (int i = start; i < end; i++) {
+					try {
+						entries.get(i).computeHash();
+					}
+					catch (RuntimeException e) {
+						// The entry computes its hash code again when it is
+						// requested, which reports the error to the caller
+						CloudFoundryPlugin.trace("Failed to compute hash code in parallel, deferred to caller: " //$NON-NLS-1$
+								+ e.getMessage());
+					}
+				}
+			}
+			else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new HashTask(entries, start, middle), new HashTask(entries, middle, end));
+			}
+		}
+	}
+}
@@ -28,8 +28,9 @@ import java.util.List;
 
 import org.cloudfoundry.client.lib.archive.AbstractApplicationArchiveEntry;
 import org.cloudfoundry.client.lib.archive.ApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudUtil;
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.model.IModuleFile;
 import org.eclipse.wst.server.core.model.IModuleFolder;
@@ -68,6 +69,8 @@ public abstract class AbstractModuleResourceArchive implements ApplicationArchiv
 
 	private final List<IModuleResource> resources;
 
+	private RepositoryChecksum repositoryChecksum;
+
 	protected AbstractModuleResourceArchive(IModule module, List<IModuleResource> resources) {
 		this.module = module;
 		this.resources = resources;
@@ -124,6 +127,13 @@ public abstract class AbstractModuleResourceArchive implements ApplicationArchiv
 		return module;
 	}
 
+	protected synchronized RepositoryChecksum getRepositoryChecksum() {
+		if (repositoryChecksum == null) {
+			repositoryChecksum = RepositoryChecksum.getDefault();
+		}
+		return repositoryChecksum;
+	}
+
 	/**
 	 * Base folder entry adapter for module resouce folders.
 	 * 
@@ -164,6 +174,8 @@ public abstract class AbstractModuleResourceArchive implements ApplicationArchiv
 
 		protected final File file;
 
+		private boolean repositoryChecksumResolved;
+
 		public ModuleFileEntryAdapter(IModuleFile moduleResource) {
 			super(moduleResource);
 			file = getFile(moduleResource);
@@ -173,19 +185,23 @@ public abstract class AbstractModuleResourceArchive implements ApplicationArchiv
 			return false;
 		}
 
-		protected File getFile(IModuleResource moduleResource) {
-			File file = (File) moduleResource.getAdapter(File.class);
-			if (file == null) {
-				IFile iFile = (IFile) moduleResource.getAdapter(IFile.class);
-
-				if (iFile != null) {
-					IPath location = iFile.getLocation();
-					if (location != null) {
-						return new File(location.toString());
-					}
+		@Override
+		public byte[] getSha1Digest() {
+			// Library jars resolved from a Maven or Gradle repository
+			// already have a recorded hash code, which avoids reading the jar
+			if (!repositoryChecksumResolved) {
+				repositoryChecksumResolved = true;
+				byte[] sha1 = canComputeResourceEntry() ? getRepositoryChecksum().getSha1(file) : null;
+				if (sha1 != null) {
+					setSize(file.length());
+					setSha1Digest(sha1);
 				}
 			}
-			return file;
+			return super.getSha1Digest();
+		}
+
+		protected File getFile(IModuleResource moduleResource) {
+			return CloudUtil.getFile(moduleResource);
 		}
 
 		protected boolean canComputeResourceEntry() {
@@ -198,6 +214,19 @@ public abstract class AbstractModuleResourceArchive implements ApplicationArchiv
 				return new FileInputStream(file);
 			}
 
+			// Entries may be streamed directly into the upload request, so
+			// also support workspace files that cannot be resolved to a
+			// local file
+			IFile iFile = (IFile) getResource().getAdapter(IFile.class);
+			if (iFile != null && iFile.exists()) {
+				try {
+					return iFile.getContents();
+				}
+				catch (CoreException e) {
+					throw new IOException(e.getMessage(), e);
+				}
+			}
+
 			return null;
 		}
 
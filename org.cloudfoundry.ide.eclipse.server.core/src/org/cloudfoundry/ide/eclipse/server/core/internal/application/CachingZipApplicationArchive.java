@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.zip.ZipFile;
+
+import org.cloudfoundry.client.lib.archive.AbstractApplicationArchiveEntry;
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ContentHashStore;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ContentHashStore.FileHash;
+import org.cloudfoundry.ide.eclipse.server.core.internal.FileStat;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher.HashableArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher.HashableEntry;
+
+/**
+ * Zip application archive for packaged applications (e.g. Spring Boot or
+ * standalone Java jars) that contain library jars copied as is from local
+ * files, typically under lib/ or BOOT-INF/lib/.
+ * <p/>
+ * The sha1 hash code of a nested library jar is the hash code of the local
+ * library file it was copied from, which is cached in the shared
+ * {@link ContentHashStore} and validated against the attributes of the local
+ * file. Unchanged libraries are therefore matched by the Cloud Foundry server
+ * without reading the nested jar from the archive. Nested jars are only
+ * associated with a local library if the library has the same file name and
+ * size, its name is unique among the libraries, and it was last modified
+ * before the archive was packaged. A library modified since may have a
+ * different content than the nested jar even if its size did not change.
+ */
+public class CachingZipApplicationArchive extends CloudZipApplicationArchive implements HashableArchive {
+
+	private static final String JAR_EXTENSION = ".jar"; //$NON-NLS-1$
+
+	private final Map<String, File> libraries = new HashMap<String, File>();
+
+	private final ParallelResourceHasher hasher = new ParallelResourceHasher();
+
+	private final long packagedTime;
+
+	private List<Entry> entries;
+
+	private Future<?> pendingHashes;
+
+	/**
+	 * 
+	 * @param zipFile packaged application
+	 * @param libraries local library files that were copied into the packaged
+	 * application
+	 */
+	public CachingZipApplicationArchive(ZipFile zipFile, List<File> libraries) {
+		super(zipFile);
+		// 0 if unknown, in which case no library is considered unchanged
+		this.packagedTime = new File(zipFile.getName()).lastModified();
+		Set<String> duplicates = new HashSet<String>();
+		for (File library : libraries) {
+			if (this.libraries.put(library.getName(), library) != null) {
+				duplicates.add(library.getName());
+			}
+		}
+		// Nested jars with ambiguous names are hashed from the archive
+		this.libraries.keySet().removeAll(duplicates);
+	}
+
+	@Override
+	public synchronized Iterable<Entry> getEntries() {
+		startHashing();
+		hasher.await(pendingHashes);
+		pendingHashes = null;
+		return entries;
+	}
+
+	public synchronized void startHashing() {
+		if (entries == null) {
+			List<Entry> adapted = new ArrayList<Entry>();
+			List<LibraryEntry> toHash = new ArrayList<LibraryEntry>();
+			for (Entry entry : super.getEntries()) {
+				File library = getLibrary(entry);
+				if (library != null) {
+					LibraryEntry libraryEntry = new LibraryEntry(entry, library, packagedTime);
+					adapted.add(libraryEntry);
+					toHash.add(libraryEntry);
+				}
+				else {
+					adapted.add(entry);
+				}
+			}
+			pendingHashes = hasher.start(toHash);
+			entries = Collections.unmodifiableList(adapted);
+		}
+	}
+
+	/**
+	 * 
+	 * @param entry
+	 * @return local library that the given entry was copied from, or null if
+	 * the entry is not a library jar copied from a known library.
+	 */
+	protected File getLibrary(Entry entry) {
+		String name = entry.getName();
+		if (entry.isDirectory() || !name.endsWith(JAR_EXTENSION)) {
+			return null;
+		}
+		File library = libraries.get(name.substring(name.lastIndexOf('/') + 1));
+		return library != null && library.length() == entry.getSize() && library.lastModified() < packagedTime ? library
+				: null;
+	}
+
+	/**
+	 * Nested library jar whose hash code is resolved from the local library
+	 * file, and whose content is read from the archive if it has to be
+	 * uploaded.
+	 */
+	protected static class LibraryEntry extends AbstractApplicationArchiveEntry implements HashableEntry {
+
+		private final Entry entry;
+
+		private final File library;
+
+		private final long packagedTime;
+
+		private byte[] sha1;
+
+		private boolean resolved;
+
+		/**
+		 * 
+		 * @param entry nested library jar
+		 * @param library local library the entry was copied from
+		 * @param packagedTime last modified time of the packaged archive
+		 */
+		public LibraryEntry(Entry entry, File library, long packagedTime) {
+			this.entry = entry;
+			this.library = library;
+			this.packagedTime = packagedTime;
+		}
+
+		public boolean isDirectory() {
+			return false;
+		}
+
+		public String getName() {
+			return entry.getName();
+		}
+
+		@Override
+		public long getSize() {
+			return entry.getSize();
+		}
+
+		public InputStream getInputStream() throws IOException {
+			return entry.getInputStream();
+		}
+
+		@Override
+		public byte[] getSha1Digest() {
+			computeHash();
+			return sha1 != null ? sha1 : entry.getSha1Digest();
+		}
+
+		public synchronized void computeHash() {
+			if (resolved) {
+				return;
+			}
+			resolved = true;
+
+			FileStat stat = FileStat.of(library);
+			if (stat == null || stat.getSize() != entry.getSize() || stat.isRacy(packagedTime)) {
+				// Library changed since the archive was packaged, or so
+				// shortly before that the change may not be reflected in the
+				// archive
+				return;
+			}
+			CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+			ContentHashStore store = plugin != null ? plugin.getDeployedResourcesCache().getContentHashStore() : null;
+			String key = ContentHashStore.getKey(library);
+			FileHash hash = store != null ? store.getHash(key, stat) : null;
+			if (hash != null) {
+				sha1 = hash.getSha1();
+				return;
+			}
+			long computedTime = System.currentTimeMillis();
+			byte[] computed = RepositoryChecksum.getDefault().getSha1(library);
+			try {
+				if (computed == null) {
+					computed = ContentHashStore.computeSha1(library);
+				}
+			}
+			catch (IOException e) {
+				// Fall back to hashing the nested jar
+				return;
+			}
+			if (store != null) {
+				store.put(key, stat, computedTime, computed);
+			}
+			sha1 = computed;
+		}
+	}
+}
@@ -33,6 +33,7 @@ import org.cloudfoundry.client.lib.archive.ApplicationArchive;
 import org.cloudfoundry.ide.eclipse.server.core.AbstractApplicationDelegate;
 import org.cloudfoundry.ide.eclipse.server.core.ApplicationDeploymentInfo;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ApplicationUrlLookupService;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ArchiveStore;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudApplicationURL;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryConstants;
@@ -205,12 +206,32 @@ public class JavaWebApplicationDelegate extends AbstractApplicationDelegate {
 			return manifestArchive;
 		}
 		try {
-			File warFile = CloudUtil.createWarFile(new IModule[] { module.getLocalModule() },
+			final File warFile = CloudUtil.createWarFile(new IModule[] { module.getLocalModule() },
 					(Server) cloudServer.getServer(), monitor);
 
 			CloudFoundryPlugin.trace("War file " + warFile.getName() + " created"); //$NON-NLS-1$ //$NON-NLS-2$
 
-			return new CloudZipApplicationArchive(new ZipFile(warFile));
+			// The war file is kept in the archive store until the upload
+			// completed
+			final ArchiveStore store = ArchiveStore.getDefault();
+			store.open(warFile);
+			try {
+				return new CloudZipApplicationArchive(new ZipFile(warFile)) {
+					@Override
+					public void close() throws CoreException {
+						try {
+							super.close();
+						}
+						finally {
+							store.release(warFile);
+						}
+					}
+				};
+			}
+			catch (IOException e) {
+				store.release(warFile);
+				throw e;
+			}
 		}
 		catch (Exception e) {
 			throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.application;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
+
+/**
+ * Resolves sha1 hash codes of library jars that are already recorded by the
+ * Maven or Gradle repository the jar was resolved from, so that the jar does
+ * not have to be read to compute its hash code:
+ * <ul>
+ * <li>Maven repositories store the hash code of each artifact in a
+ * <code>&lt;artifact&gt;.sha1</code> file next to the artifact.</li>
+ * <li>The Gradle cache stores each artifact in a
+ * <code>files-2.1/&lt;group&gt;/&lt;module&gt;/&lt;version&gt;/&lt;sha1&gt;/</code>
+ * folder named after the hash code of the artifact.</li>
+ * </ul>
+ * Recorded hash codes are only used if they are well formed. Optionally, a
+ * Maven checksum file must also be at least as recent as the jar, since
+ * installing a jar locally (e.g. a snapshot) replaces the jar without updating
+ * a checksum file that was previously downloaded.
+ */
+public class RepositoryChecksum {
+
+	private static final String JAR_EXTENSION = ".jar"; //$NON-NLS-1$
+
+	private static final String SHA1_EXTENSION = ".sha1"; //$NON-NLS-1$
+
+	private static final String GRADLE_FILES_CACHE = "files-2.1"; //$NON-NLS-1$
+
+	/**
+	 * Number of folders between the Gradle files cache folder and the
+	 * artifact: group, module, version and hash code.
+	 */
+	private static final int GRADLE_FILES_CACHE_DEPTH = 4;
+
+	private static final int SHA1_HEX_LENGTH = 40;
+
+	private final boolean checkTimestamp;
+
+	/**
+	 * 
+	 * @param checkTimestamp true if a Maven checksum file older than the jar
+	 * should be ignored.
+	 */
+	public RepositoryChecksum(boolean checkTimestamp) {
+		this.checkTimestamp = checkTimestamp;
+	}
+
+	/**
+	 * 
+	 * @return repository checksum resolver configured from the Cloud Foundry
+	 * preferences.
+	 */
+	public static RepositoryChecksum getDefault() {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		return new RepositoryChecksum(plugin != null ? plugin.getVerifyRepositoryChecksumTimestamp()
+				: CloudFoundryPlugin.DEFAULT_VERIFY_REPOSITORY_CHECKSUM_TIMESTAMP_PREFERENCE_VAL);
+	}
+
+	/**
+	 * 
+	 * @param file local file of an application resource
+	 * @return recorded sha1 hash code of the file if it is a jar in a Maven or
+	 * Gradle repository, or null if there is no valid hash code for the file
+	 * and it must be computed from the file content.
+	 */
+	public byte[] getSha1(File file) {
+		if (file == null || !file.getName().endsWith(JAR_EXTENSION)) {
+			return null;
+		}
+		byte[] sha1 = getGradleSha1(file);
+		return sha1 != null ? sha1 : getMavenSha1(file);
+	}
+
+	protected byte[] getMavenSha1(File file) {
+		File checksumFile = new File(file.getPath() + SHA1_EXTENSION);
+		long checksumModified = checksumFile.lastModified();
+		// lastModified is 0 if the checksum file does not exist
+		if (checksumModified == 0 || (checkTimestamp && checksumModified < file.lastModified())) {
+			return null;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(checksumFile),
+					"US-ASCII")); //$NON-NLS-1$
+			try {
+				// Checksum files may also contain the file name after the hash
+				// code, separated by white space
+				String line = reader.readLine();
+				if (line != null) {
+					String[] segments = line.trim().split("\\s+"); //$NON-NLS-1$
+					return segments[0].length() == SHA1_HEX_LENGTH ? parseHex(segments[0]) : null;
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (IOException e) {
+			// Fall back to computing the hash code from the file
+		}
+		return null;
+	}
+
+	protected byte[] getGradleSha1(File file) {
+		File hashFolder = file.getParentFile();
+		File cacheFolder = hashFolder;
+		for (int i = 0; i < GRADLE_FILES_CACHE_DEPTH && cacheFolder != null; i++) {
+			cacheFolder = cacheFolder.getParentFile();
+		}
+		if (cacheFolder == null || !GRADLE_FILES_CACHE.equals(cacheFolder.getName())) {
+			return null;
+		}
+		// Gradle does not zero-pad the hash code in the folder name
+		String hex = hashFolder.getName();
+		if (hex.length() < SHA1_HEX_LENGTH - 8 || hex.length() > SHA1_HEX_LENGTH) {
+			return null;
+		}
+		StringBuilder padded = new StringBuilder(SHA1_HEX_LENGTH);
+		for (int i = hex.length(); i < SHA1_HEX_LENGTH; i++) {
+			padded.append('0');
+		}
+		return parseHex(padded.append(hex).toString());
+	}
+
+	/**
+	 * 
+	 * @param hex
+	 * @return bytes of the given hexadecimal string, or null if it is not a
+	 * valid hexadecimal string.
+	 */
+	protected static byte[] parseHex(String hex) {
+		if (hex.length() % 2 != 0) {
+			return null;
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(hex.charAt(2 * i), 16);
+			int low = Character.digit(hex.charAt(2 * i + 1), 16);
+			if (high < 0 || low < 0) {
+				return null;
+			}
+			bytes[i] = (byte) ((high << 4) | low);
+		}
+		return bytes;
+	}
+}
@@ -91,12 +91,14 @@ public abstract class AbstractPublishApplicationOperation extends BehaviourOpera
 		}
 		catch (OperationCanceledException e) {
 			// ignore so webtools does not show an exception
-			((Server) getBehaviour().getServer()).setModuleState(getModules(), IServer.STATE_UNKNOWN);
-
-			// If application operations, like Restart, Start, or PushApplication are canceled, then the publish state is 'indeterminate'
-			// TODO: Don't reference internal Server class.  We need to revisit this change and revert back to the original state.
-			((Server) getBehaviour().getServer()).setServerPublishState(IServer.PUBLISH_STATE_INCREMENTAL);
-			((Server) getBehaviour().getServer()).setModulePublishState(modules, IServer.PUBLISH_STATE_INCREMENTAL);
+			synchronized (getBehaviour().getServerStateLock()) {
+				((Server) getBehaviour().getServer()).setModuleState(getModules(), IServer.STATE_UNKNOWN);
+
+				// If application operations, like Restart, Start, or PushApplication are canceled, then the publish state is 'indeterminate'
+				// TODO: Don't reference internal Server class.  We need to revisit this change and revert back to the original state.
+				((Server) getBehaviour().getServer()).setServerPublishState(IServer.PUBLISH_STATE_INCREMENTAL);
+				((Server) getBehaviour().getServer()).setModulePublishState(modules, IServer.PUBLISH_STATE_INCREMENTAL);
+			}
 			
 			// Record the canceled operation 'description' to the log file.
 			CloudFoundryPlugin.logWarning(e.getMessage());
@@ -105,4 +107,28 @@ public abstract class AbstractPublishApplicationOperation extends BehaviourOpera
 	}
 
 	protected abstract void doApplicationOperation(IProgressMonitor monitor) throws CoreException;
+
+	/**
+	 * Sets the state of the modules of this operation, while holding the
+	 * server state lock of the behaviour, as applications may be published
+	 * concurrently.
+	 * @param state one of the module states defined in {@link IServer}
+	 */
+	protected void setModuleState(int state) {
+		synchronized (getBehaviour().getServerStateLock()) {
+			((Server) getBehaviour().getServer()).setModuleState(modules, state);
+		}
+	}
+
+	/**
+	 * Sets the publish state of the modules of this operation, while holding
+	 * the server state lock of the behaviour, as applications may be
+	 * published concurrently.
+	 * @param publishState one of the publish states defined in {@link IServer}
+	 */
+	protected void setModulePublishState(int publishState) {
+		synchronized (getBehaviour().getServerStateLock()) {
+			((Server) getBehaviour().getServer()).setModulePublishState(modules, publishState);
+		}
+	}
 }
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.List;
+
+import org.cloudfoundry.client.lib.ApplicationLogListener;
+import org.cloudfoundry.client.lib.CloudFoundryOperations;
+import org.cloudfoundry.client.lib.NotFinishedStagingException;
+import org.cloudfoundry.client.lib.StreamingLogToken;
+import org.cloudfoundry.client.lib.domain.ApplicationLog;
+import org.cloudfoundry.client.lib.domain.CloudApplication;
+import org.cloudfoundry.client.lib.domain.InstanceInfo;
+import org.cloudfoundry.client.lib.domain.InstanceState;
+import org.cloudfoundry.client.lib.domain.InstancesInfo;
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Waits for all the instances of an application to run after the application
+ * is started.
+ * <p/>
+ * The state of the instances is polled, which only fetches the instance
+ * information rather than the whole application. Polling starts at a short
+ * interval that grows while nothing happens, up to a maximum interval, so
+ * that an application that starts quickly is detected soon, without polling
+ * the Cloud controller at a high rate while a slow application is staging.
+ * <p/>
+ * In addition, the application log is streamed while waiting. Log messages
+ * that mark progress of the start, like staging completing or an instance
+ * starting or exiting, trigger an immediate poll and reset the polling
+ * interval. If the log cannot be streamed, the state of the instances is only
+ * polled.
+ */
+public class ApplicationStartDetector implements ApplicationLogListener {
+
+	/**
+	 * Parts of log messages that indicate that the state of the application
+	 * instances may have changed.
+	 */
+	private static final String[] START_MARKERS = { "Staging complete", //$NON-NLS-1$
+			"Starting app instance", //$NON-NLS-1$
+			"App instance exited", //$NON-NLS-1$
+			"Container became healthy", //$NON-NLS-1$
+			"Started" //$NON-NLS-1$
+	};
+
+	private static final long CANCEL_CHECK_INTERVAL = 100;
+
+	private final CloudFoundryOperations client;
+
+	private final String appName;
+
+	private final long initialInterval;
+
+	private final long maxInterval;
+
+	private boolean markerLogged;
+
+	private int pollCount;
+
+	public ApplicationStartDetector(CloudFoundryOperations client, String appName) {
+		this(client, appName, CloudOperationsConstants.START_POLL_INTERVAL,
+				CloudOperationsConstants.START_MAX_POLL_INTERVAL);
+	}
+
+	/**
+	 * 
+	 * @param client
+	 * @param appName name of the application to wait for
+	 * @param initialInterval initial interval in milliseconds between polls
+	 * @param maxInterval maximum interval in milliseconds between polls
+	 */
+	public ApplicationStartDetector(CloudFoundryOperations client, String appName, long initialInterval,
+			long maxInterval) {
+		this.client = client;
+		this.appName = appName;
+		this.initialInterval = initialInterval;
+		this.maxInterval = maxInterval;
+	}
+
+	/**
+	 * Waits for all instances of the application to run.
+	 * @param timeout maximum time to wait in milliseconds
+	 * @param monitor
+	 * @return true if all instances of the application run. False if the
+	 * application did not start within the given timeout, or some of its
+	 * instances keep crashing.
+	 * @throws InterruptedException if the monitor is cancelled, or the thread
+	 * is interrupted while waiting
+	 */
+	public boolean waitForStart(long timeout, IProgressMonitor monitor) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		StreamingLogToken logToken = null;
+		try {
+			logToken = client.streamLogs(appName, this);
+		}
+		catch (RuntimeException e) {
+			// Not all Cloud Foundry targets support streaming logs. Only
+			// poll the instances
+			CloudFoundryPlugin.trace("Unable to stream logs of " + appName + " while waiting for it to start: " //$NON-NLS-1$ //$NON-NLS-2$
+					+ e.getMessage());
+		}
+
+		try {
+			// Fetched once to avoid fetching the whole application again
+			// each time the instances are polled
+			CloudApplication application = client.getApplication(appName);
+			long interval = initialInterval;
+			while (true) {
+				InstanceState state = getInstancesState(application);
+				if (state == InstanceState.RUNNING) {
+					return true;
+				}
+				else if (state == InstanceState.FLAPPING) {
+					return false;
+				}
+
+				long timeLeft = end - System.currentTimeMillis();
+				if (timeLeft <= 0) {
+					return false;
+				}
+				if (waitForMarker(Math.min(interval, timeLeft), monitor)) {
+					interval = initialInterval;
+				}
+				else {
+					interval = Math.min(interval * 2, maxInterval);
+				}
+			}
+		}
+		finally {
+			if (logToken != null) {
+				logToken.cancel();
+			}
+		}
+	}
+
+	/**
+	 * 
+	 * @return number of times the state of the instances was polled
+	 */
+	public int getPollCount() {
+		return pollCount;
+	}
+
+	/**
+	 * 
+	 * @param application
+	 * @return {@link InstanceState#RUNNING} if all instances run,
+	 * {@link InstanceState#FLAPPING} if any instance keeps crashing.
+	 * {@link InstanceState#STARTING} otherwise, including while the
+	 * application is staging or some instances crashed, as crashed instances
+	 * are restarted until they either run or keep crashing.
+	 */
+	protected InstanceState getInstancesState(CloudApplication application) {
+		pollCount++;
+		InstancesInfo info = null;
+		try {
+			info = client.getApplicationInstances(application);
+		}
+		catch (NotFinishedStagingException e) {
+			return InstanceState.STARTING;
+		}
+
+		List<InstanceInfo> instances = info != null ? info.getInstances() : null;
+		if (instances == null || instances.isEmpty()) {
+			return InstanceState.STARTING;
+		}
+
+		boolean allRunning = true;
+		for (InstanceInfo instance : instances) {
+			InstanceState state = instance.getState();
+			if (state == InstanceState.FLAPPING) {
+				return InstanceState.FLAPPING;
+			}
+			allRunning &= state == InstanceState.RUNNING;
+		}
+		return allRunning ? InstanceState.RUNNING : InstanceState.STARTING;
+	}
+
+	/**
+	 * Waits until a start marker is logged, or the given interval elapses.
+	 * @param interval in milliseconds
+	 * @param monitor
+	 * @return true if a start marker was logged
+	 * @throws InterruptedException if the monitor is cancelled, or the thread
+	 * is interrupted
+	 */
+	protected synchronized boolean waitForMarker(long interval, IProgressMonitor monitor)
+			throws InterruptedException {
+		long end = System.currentTimeMillis() + interval;
+		long timeLeft = interval;
+		while (!markerLogged && timeLeft > 0) {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new InterruptedException();
+			}
+			wait(Math.min(timeLeft, CANCEL_CHECK_INTERVAL));
+			timeLeft = end - System.currentTimeMillis();
+		}
+		boolean logged = markerLogged;
+		markerLogged = false;
+		return logged;
+	}
+
+	public synchronized void onMessage(ApplicationLog log) {
+		String message = log != null ? log.getMessage() : null;
+		if (message != null) {
+			for (String marker : START_MARKERS) {
+				if (message.contains(marker)) {
+					markerLogged = true;
+					notifyAll();
+					return;
+				}
+			}
+		}
+	}
+
+	public void onComplete() {
+		// Instances are still polled
+	}
+
+	public void onError(Throwable exception) {
+		// Instances are still polled
+	}
+}
@@ -48,6 +48,8 @@ public abstract class BaseClientRequest<T> {
 	 */
 	private final String label;
 
+	private volatile int retryCount;
+
 	public BaseClientRequest(String label) {
 		Assert.isNotNull(label);
 		this.label = label;
@@ -101,14 +103,17 @@ public abstract class BaseClientRequest<T> {
 	/**
 	 * Performs a client operation, and if necessary, re-attempts the operation
 	 * after a certain interval IFF an error occurs based on
-	 * {@link #getTotalTimeWait()} and
-	 * {@link #getWaitInterval(Throwable, SubMonitor)}.
+	 * {@link #getTotalTimeWait()} and {@link #getRetryPolicy()}, or
+	 * {@link #getWaitInterval(Throwable, SubMonitor)} if the request has no
+	 * retry policy.
 	 * <p/>
 	 * The default behaviour is to only attempt a client operation once and quit
 	 * after an error is encountered. Subclasses may modify this behaviour by
-	 * overriding {@link #getTotalTimeWait()} and
+	 * overriding {@link #getTotalTimeWait()} and {@link #getRetryPolicy()} or
 	 * {@link #getWaitInterval(Throwable, SubMonitor)}
 	 * <p/>
+	 * Waiting for the next attempt ends as soon as the monitor is cancelled.
+	 * <p/>
 	 * Note that reattempts are only decided based on errors thrown by the
 	 * client invocation, not by results generated by the client invocation.
 	 * @param client client whose operations are invoked. Never null.
@@ -126,6 +131,9 @@ public abstract class BaseClientRequest<T> {
 
 		boolean reattempt = true;
 		long timeLeft = getTotalTimeWait();
+		RequestRetryPolicy retryPolicy = getRetryPolicy();
+		long previousInterval = 0;
+		retryCount = 0;
 
 		// Either this operation returns a result during the waiting period or
 		// an error occurred, and error
@@ -142,16 +150,28 @@ public abstract class BaseClientRequest<T> {
 				error = e;
 			}
 
-			interval = getWaitInterval(error, subProgress);
+			if (retryPolicy != null) {
+				interval = retryPolicy.getWaitInterval(error, previousInterval);
+			}
+			else {
+				interval = getWaitInterval(error, subProgress);
+			}
 			timeLeft -= interval;
 			reattempt = !subProgress.isCanceled() && timeLeft >= 0 && interval > 0;
 			if (reattempt) {
 
 				try {
-					Thread.sleep(interval);
+					RequestRetryPolicy.sleep(interval, subProgress);
+				}
+				catch (OperationCanceledException e) {
+					// Either cancelled or interrupted. The last error is
+					// thrown if not cancelled
+					break;
 				}
-				catch (InterruptedException e) {
-					// Ignore, continue with the next iteration
+				previousInterval = interval;
+				retryCount++;
+				if (retryPolicy != null) {
+					retryPolicy.retried(interval);
 				}
 			}
 		}
@@ -193,6 +213,26 @@ public abstract class BaseClientRequest<T> {
 		return -1;
 	}
 
+	/**
+	 * Policy deciding whether the request is attempted again after an error,
+	 * and how long to wait before the next attempt. If null,
+	 * {@link #getWaitInterval(Throwable, SubMonitor)} is used instead. Null
+	 * by default.
+	 * @return retry policy of the request, or null
+	 */
+	protected RequestRetryPolicy getRetryPolicy() {
+		return null;
+	}
+
+	/**
+	 * 
+	 * @return number of times the client operation was attempted again during
+	 * the last run of the request
+	 */
+	public int getRetryCount() {
+		return retryCount;
+	}
+
 	/**
 	 * Perform the actual client operation. The client is guaranteed to be
 	 * non-null at this stage.
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
+import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Runs operations on several applications concurrently, with at most a given
+ * number of operations running at the same time, so that operations like
+ * stopping or deleting all the applications of a space do not wait for each
+ * application in turn, without flooding the Cloud controller with requests.
+ * <p/>
+ * All operations are run even if some fail. Failures are reported together
+ * once all operations have completed, or as is if only one operation failed.
+ * Optionally, all modules and services are refreshed once at the end, firing
+ * a single refresh event rather than one for each application.
+ * <p/>
+ * The given operations must be independent of each other, i.e. operate on
+ * different applications.
+ */
+public class BulkOperation extends BehaviourOperation {
+
+	private final List<? extends ICloudFoundryOperation> operations;
+
+	private final int concurrency;
+
+	private final boolean refresh;
+
+	/**
+	 * 
+	 * @param behaviour
+	 * @param operations to run. Must not be null.
+	 * @param concurrency maximum number of operations that run at the same
+	 * time
+	 * @param refresh true if all modules and services should be refreshed
+	 * once all operations have completed
+	 */
+	public BulkOperation(CloudFoundryServerBehaviour behaviour, List<? extends ICloudFoundryOperation> operations,
+			int concurrency, boolean refresh) {
+		super(behaviour, null);
+		this.operations = operations;
+		this.concurrency = Math.max(1, concurrency);
+		this.refresh = refresh;
+	}
+
+	/**
+	 * 
+	 * @throws CoreException the error of the failed operation if only one
+	 * operation failed, or with a {@link MultiStatus} containing the errors of
+	 * all failed operations if several failed.
+	 */
+	@Override
+	public void run(IProgressMonitor monitor) throws CoreException {
+		SubMonitor progress = SubMonitor.convert(monitor,
+				NLS.bind(Messages.BulkOperation_RUNNING_OPERATIONS, operations.size()), 100);
+
+		List<CoreException> errors = runOperations(progress.newChild(refresh ? 80 : 100));
+
+		if (refresh && !progress.isCanceled()) {
+			try {
+				getBehaviour().operations().refreshAll(null).run(progress.newChild(20));
+			}
+			catch (CoreException e) {
+				errors.add(e);
+			}
+		}
+
+		if (errors.size() == 1) {
+			throw errors.get(0);
+		}
+		else if (!errors.isEmpty()) {
+			MultiStatus status = new MultiStatus(CloudFoundryPlugin.PLUGIN_ID, 0, NLS.bind(
+					Messages.BulkOperation_ERROR_OPERATIONS_FAILED, errors.size(), operations.size()), null);
+			for (CoreException error : errors) {
+				status.add(error.getStatus());
+			}
+			throw new CoreException(status);
+		}
+	}
+
+	/**
+	 * Runs the operations, and waits for all of them to complete. If the
+	 * calling thread is interrupted, the operations are cancelled, but are
+	 * still waited for, and the interrupt is restored before returning.
+	 * @param monitor operations report their progress and are cancelled
+	 * through a {@link ConcurrentProgressMonitor} of this monitor
+	 * @return errors of all failed operations. Empty if all operations
+	 * succeeded or were cancelled.
+	 */
+	protected List<CoreException> runOperations(IProgressMonitor monitor) {
+		final SubMonitor progress = SubMonitor.convert(monitor, operations.size());
+		List<CoreException> errors = new ArrayList<CoreException>();
+
+		if (!operations.isEmpty()) {
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, operations.size()));
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			final Object progressLock = new Object();
+			boolean interrupted = false;
+			try {
+				for (final ICloudFoundryOperation operation : operations) {
+					results.add(executor.submit(new Callable<Void>() {
+						public Void call() throws Exception {
+							IProgressMonitor operationMonitor = new ConcurrentProgressMonitor(progress, progressLock,
+									1);
+							try {
+								operation.run(operationMonitor);
+							}
+							finally {
+								operationMonitor.done();
+							}
+							return null;
+						}
+					}));
+				}
+
+				// Operations still running when interrupted are cancelled, and
+				// waited for, so that none runs once this method returned
+				for (Future<Void> result : results) {
+					while (true) {
+						try {
+							result.get();
+							break;
+						}
+						catch (ExecutionException e) {
+							Throwable error = e.getCause();
+							if (error instanceof CoreException) {
+								errors.add((CoreException) error);
+							}
+							else if (!(error instanceof OperationCanceledException)) {
+								errors.add(CloudErrorUtil.toCoreException(error));
+							}
+							break;
+						}
+						catch (InterruptedException e) {
+							if (!interrupted) {
+								interrupted = true;
+								synchronized (progressLock) {
+									monitor.setCanceled(true);
+								}
+							}
+						}
+					}
+				}
+			}
+			finally {
+				executor.shutdown();
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		return errors;
+	}
+}
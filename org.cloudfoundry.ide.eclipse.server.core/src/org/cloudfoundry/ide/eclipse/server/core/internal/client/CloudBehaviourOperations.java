@@ -19,6 +19,7 @@
  ********************************************************************************/
 package org.cloudfoundry.ide.eclipse.server.core.internal.client;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -245,6 +246,50 @@ public class CloudBehaviourOperations {
 		return operation;
 	}
 
+	/**
+	 * Resolves an operation that performs a start, stop, restart or push
+	 * operation with the given {@link ApplicationAction} for each of the given
+	 * applications, running the operations of different applications
+	 * concurrently. See {@link #bulk(List)}.
+	 * @param modules modules of each application. Each entry must not be null
+	 * or empty.
+	 * @param action
+	 * @return Non-null operation
+	 * @throws CoreException if the operation of any application cannot be
+	 * resolved.
+	 */
+	public ICloudFoundryOperation bulkApplicationDeployment(List<IModule[]> modules, ApplicationAction action)
+			throws CoreException {
+		List<ICloudFoundryOperation> operations = new ArrayList<ICloudFoundryOperation>();
+		for (IModule[] applicationModules : modules) {
+			operations.add(applicationDeployment(applicationModules, action));
+		}
+		return bulk(operations);
+	}
+
+	/**
+	 * Gets an operation that runs the given operations concurrently, at most as
+	 * many at a time as set in the bulk operation concurrency preference. All
+	 * operations are run even if some fail, and all modules and services are
+	 * refreshed once all operations completed.
+	 * @param operations on different applications
+	 * @return Non-null operation
+	 */
+	public ICloudFoundryOperation bulk(List<? extends ICloudFoundryOperation> operations) {
+		return new BulkOperation(behaviour, operations, getBulkOperationConcurrency(), true);
+	}
+
+	/**
+	 * 
+	 * @return maximum number of operations that bulk operations run at the
+	 * same time
+	 */
+	public static int getBulkOperationConcurrency() {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		return plugin != null ? plugin.getBulkOperationConcurrency()
+				: CloudFoundryPlugin.DEFAULT_BULK_OPERATION_CONCURRENCY_PREFERENCE_VAL;
+	}
+
 	/**
 	 * Refreshes all modules, services, and the instance info and stats for the
 	 * given optional module. If null is passed only the list of modules and
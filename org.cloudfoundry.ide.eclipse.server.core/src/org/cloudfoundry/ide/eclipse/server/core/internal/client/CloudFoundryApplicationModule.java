@@ -146,6 +146,8 @@ public class CloudFoundryApplicationModule extends ExternalModule implements ICl
 
 	private StartingInfo startingInfo;
 
+	private PushStatistics pushStatistics;
+
 	private IModule localModule;
 
 	private final IServer server;
@@ -231,6 +233,20 @@ public class CloudFoundryApplicationModule extends ExternalModule implements ICl
 		this.startingInfo = startingInfo;
 	}
 
+	/**
+	 * 
+	 * @return timeline and resource counts of the most recent push of the
+	 * application in this session. It may still be in progress. Null if the
+	 * application has not been pushed in this session.
+	 */
+	public synchronized PushStatistics getPushStatistics() {
+		return pushStatistics;
+	}
+
+	public synchronized void setPushStatistics(PushStatistics pushStatistics) {
+		this.pushStatistics = pushStatistics;
+	}
+
 	public InstancesInfo getInstancesInfo() {
 		return instancesInfo;
 	}
@@ -20,6 +20,8 @@
  ********************************************************************************/
 package org.cloudfoundry.ide.eclipse.server.core.internal.client;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -57,6 +59,7 @@ import org.cloudfoundry.ide.eclipse.server.core.ApplicationDeploymentInfo;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ApplicationAction;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ApplicationUrlLookupService;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CachingApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ChildModuleJars;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryLoginHandler;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
@@ -64,7 +67,8 @@ import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryServer;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudServerEvent;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
-import org.cloudfoundry.ide.eclipse.server.core.internal.ModuleResourceDeltaWrapper;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.PathSet;
 import org.cloudfoundry.ide.eclipse.server.core.internal.RefreshModulesHandler;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ServerEventHandler;
 import org.cloudfoundry.ide.eclipse.server.core.internal.application.ApplicationRegistry;
@@ -91,7 +95,6 @@ import org.eclipse.wst.server.core.ServerEvent;
 import org.eclipse.wst.server.core.internal.IModuleVisitor;
 import org.eclipse.wst.server.core.internal.Server;
 import org.eclipse.wst.server.core.internal.ServerPublishInfo;
-import org.eclipse.wst.server.core.model.IModuleFile;
 import org.eclipse.wst.server.core.model.IModuleResource;
 import org.eclipse.wst.server.core.model.IModuleResourceDelta;
 import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
@@ -133,6 +136,8 @@ import org.springframework.web.client.RestClientException;
 @SuppressWarnings("restriction")
 public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 
+	private static final String[] NO_OPERATIONS = new String[0];
+
 	private CloudFoundryOperations client;
 
 	private RefreshModulesHandler refreshHandler;
@@ -141,6 +146,10 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 
 	private CloudBehaviourOperations cloudBehaviourOperations;
 
+	private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+	private final ResponseCache responseCache = new ResponseCache(CloudOperationsConstants.RESPONSE_CACHE_MAX_ENTRIES);
+
 	/*
 	 * FIXNS: Until V2 MCF is released, disable debugging support for V2, as
 	 * public clouds also indicate they support debug.
@@ -253,26 +262,55 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 		operations().createServices(services).run(monitor);
 	}
 
-	public synchronized List<CloudDomain> getDomainsFromOrgs(IProgressMonitor monitor) throws CoreException {
+	public List<CloudDomain> getDomainsFromOrgs(IProgressMonitor monitor) throws CoreException {
 		return new BehaviourRequest<List<CloudDomain>>("Getting domains for orgs") { //$NON-NLS-1$
 			@Override
 			protected List<CloudDomain> doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getDomainsForOrg();
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getDomainsFromOrgs"; //$NON-NLS-1$
+			}
+
+			@Override
+			protected long getCacheTimeToLive() {
+				return CloudOperationsConstants.DOMAINS_CACHE_TTL;
+			}
 		}.run(monitor);
 
 	}
 
-	public synchronized List<CloudDomain> getDomainsForSpace(IProgressMonitor monitor) throws CoreException {
+	public List<CloudDomain> getDomainsForSpace(IProgressMonitor monitor) throws CoreException {
 
 		return new BehaviourRequest<List<CloudDomain>>(Messages.CloudFoundryServerBehaviour_DOMAINS_FOR_SPACE) {
 			@Override
 			protected List<CloudDomain> doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getDomains();
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getDomainsForSpace"; //$NON-NLS-1$
+			}
+
+			@Override
+			protected long getCacheTimeToLive() {
+				return CloudOperationsConstants.DOMAINS_CACHE_TTL;
+			}
 		}.run(monitor);
 	}
 
+	/**
+	 * 
+	 * @return cache of the responses of read requests to the Cloud space, for
+	 * example to set the time to live of the responses of an operation.
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
 	/**
 	 * Deletes the given modules. Note that any refresh job is stopped while
 	 * this operation is running, and restarted after its complete.
@@ -304,6 +342,12 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 
 				return null;
 			}
+
+			@Override
+			protected String[] getInvalidatedOperations() {
+				// Routes of the application are no longer in use
+				return new String[] { "getRoutes" }; //$NON-NLS-1$
+			}
 		}.run(monitor);
 
 	}
@@ -342,30 +386,6 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 		return applicationUrlLookup;
 	}
 
-	protected List<IModuleResource> getChangedResources(IModuleResourceDelta[] deltas) {
-		List<IModuleResource> changed = new ArrayList<IModuleResource>();
-		if (deltas != null) {
-			findNonChangedResources(deltas, changed);
-		}
-		return changed;
-
-	}
-
-	protected void findNonChangedResources(IModuleResourceDelta[] deltas, List<IModuleResource> changed) {
-		if (deltas == null || deltas.length == 0) {
-			return;
-		}
-		for (IModuleResourceDelta delta : deltas) {
-			// Only handle file resources
-			IModuleResource resource = delta.getModuleResource();
-			if (resource instanceof IModuleFile && delta.getKind() != IModuleResourceDelta.NO_CHANGE) {
-				changed.add(new ModuleResourceDeltaWrapper(delta));
-			}
-
-			findNonChangedResources(delta.getAffectedChildren(), changed);
-		}
-	}
-
 	/**
 	 * Disconnects the local server from the remote CF server, and terminate the
 	 * session. Note that this will stop any refresh operations, or console
@@ -479,6 +499,7 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			protected CloudApplication doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getApplication(appName);
 			}
+			// Not coalesced, as callers may keep and modify the application
 		}.run(monitor);
 
 		return app;
@@ -582,25 +603,27 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			Server server = (Server) iServer;
 			final ServerPublishInfo info = server.getServerPublishInfo();
 
-			info.startCaching();
-			info.clearCache();
+			synchronized (getServerStateLock()) {
+				info.startCaching();
+				info.clearCache();
 
-			info.fill(modules);
+				info.fill(modules);
 
-			// The visit below will iterate through all children modules
-			final List<IModule[]> modules2 = new ArrayList<IModule[]>();
-			server.visit(new IModuleVisitor() {
-				public boolean visit(IModule[] module) {
-					info.fill(module);
-					modules2.add(module);
-					return true;
-				}
-			}, monitor);
+				// The visit below will iterate through all children modules
+				final List<IModule[]> modules2 = new ArrayList<IModule[]>();
+				server.visit(new IModuleVisitor() {
+					public boolean visit(IModule[] module) {
+						info.fill(module);
+						modules2.add(module);
+						return true;
+					}
+				}, monitor);
 
-			info.removeDeletedModulePublishInfo(server, modules2);
+				info.removeDeletedModulePublishInfo(server, modules2);
 
-			info.save();
-			super.setModulePublishState(modules, IServer.PUBLISH_STATE_NONE);
+				info.save();
+				super.setModulePublishState(modules, IServer.PUBLISH_STATE_NONE);
+			}
 		}
 	}
 
@@ -657,6 +680,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 					throws CoreException {
 				return client.getApplications();
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getApplications"; //$NON-NLS-1$
+			}
 		}.run(monitor);
 	}
 
@@ -668,6 +696,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			protected ApplicationStats doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getApplicationStats(applicationId);
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getApplicationStats:" + applicationId; //$NON-NLS-1$
+			}
 		}.run(monitor);
 	}
 
@@ -678,6 +711,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			protected InstancesInfo doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getApplicationInstances(applicationId);
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getApplicationInstances:" + applicationId; //$NON-NLS-1$
+			}
 		}.run(monitor);
 	}
 
@@ -711,6 +749,16 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 					throws CoreException {
 				return client.getServiceOfferings();
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getServiceOfferings"; //$NON-NLS-1$
+			}
+
+			@Override
+			protected long getCacheTimeToLive() {
+				return CloudOperationsConstants.SERVICE_OFFERINGS_CACHE_TTL;
+			}
 		}.run(monitor);
 	}
 
@@ -736,6 +784,16 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			protected List<CloudService> doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getServices();
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getServices"; //$NON-NLS-1$
+			}
+
+			@Override
+			protected long getCacheTimeToLive() {
+				return CloudOperationsConstants.SERVICES_CACHE_TTL;
+			}
 		}.run(monitor);
 	}
 
@@ -781,6 +839,7 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 	}
 
 	protected void internalResetClient() {
+		responseCache.clear();
 		client = null;
 		applicationUrlLookup = null;
 		cloudBehaviourOperations = null;
@@ -1103,20 +1162,17 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 		return AppState.STARTED.equals(application.getState());
 	}
 
+	/**
+	 * Waits for all instances of the given application to run. See
+	 * {@link ApplicationStartDetector}.
+	 * @return true if all instances run, false if the application did not
+	 * start within the deployment timeout, or its instances keep crashing
+	 * @throws InterruptedException if the monitor is cancelled
+	 */
 	boolean waitForStart(CloudFoundryOperations client, String deploymentId, IProgressMonitor monitor)
 			throws InterruptedException {
-		long initialInterval = CloudOperationsConstants.SHORT_INTERVAL;
-		Thread.sleep(initialInterval);
-		long timeLeft = CloudOperationsConstants.DEPLOYMENT_TIMEOUT - initialInterval;
-		while (timeLeft > 0) {
-			CloudApplication deploymentDetails = client.getApplication(deploymentId);
-			if (isApplicationReady(deploymentDetails)) {
-				return true;
-			}
-			Thread.sleep(CloudOperationsConstants.ONE_SECOND_INTERVAL);
-			timeLeft -= CloudOperationsConstants.ONE_SECOND_INTERVAL;
-		}
-		return false;
+		return new ApplicationStartDetector(client, deploymentId).waitForStart(
+				CloudOperationsConstants.DEPLOYMENT_TIMEOUT, monitor);
 	}
 
 	@Override
@@ -1272,13 +1328,43 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			}
 		}
 
-		super.publishModules(kind, modules, deltaKind2, multi, monitor);
+		publishModulesConcurrently(kind, modules, deltaKind2, multi, monitor);
+	}
+
+	/**
+	 * Publishes modules of different applications concurrently, with at most
+	 * as many applications published at the same time as set in the publish
+	 * concurrency preference. See {@link ConcurrentModulePublisher}.
+	 * <p/>
+	 * Publish threads hold the lock returned by {@link #getServerStateLock()}
+	 * only while changing the module and publish states of the server, so
+	 * that generating, hashing, uploading and staging of different
+	 * applications overlap.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected void publishModulesConcurrently(final int kind, List modules, List deltaKind2, MultiStatus multi,
+			IProgressMonitor monitor) {
+		CloudFoundryPlugin plugin = CloudFoundryPlugin.getDefault();
+		int concurrency = plugin != null ? plugin.getPublishConcurrency()
+				: CloudFoundryPlugin.DEFAULT_PUBLISH_CONCURRENCY_PREFERENCE_VAL;
+
+		new ConcurrentModulePublisher(concurrency) {
+
+			@Override
+			protected void publishModules(List<IModule[]> rootModules, List<Integer> rootDeltaKinds,
+					MultiStatus status, IProgressMonitor rootMonitor) {
+				CloudFoundryServerBehaviour.super.publishModules(kind, rootModules, rootDeltaKinds, status,
+						rootMonitor);
+			}
+		}.publish(modules, deltaKind2, multi, monitor);
 	}
 
 	@Override
 	protected void publishModule(int kind, int deltaKind, IModule[] module, IProgressMonitor monitor)
 			throws CoreException {
-		super.publishModule(kind, deltaKind, module, monitor);
+		synchronized (getServerStateLock()) {
+			super.publishModule(kind, deltaKind, module, monitor);
+		}
 
 		try {
 			// If the delta indicates that the module has been removed, remove
@@ -1299,6 +1385,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 							client.deleteApplication(cloudModule.getDeployedApplicationName());
 							return null;
 						}
+
+						@Override
+						protected String[] getInvalidatedOperations() {
+							return new String[] { "getRoutes" }; //$NON-NLS-1$
+						}
 					}.run(monitor);
 				}
 
@@ -1311,20 +1402,22 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 				// (external) apps, as some spaces may contain long-running
 				// applications that
 				// should not be restarted.
-				int publishState = getServer().getModulePublishState(module);
 				ICloudFoundryOperation op = null;
-				if (deltaKind == ServerBehaviourDelegate.ADDED || publishState == IServer.PUBLISH_STATE_UNKNOWN) {
-					// Application has not been published, so do a full
-					// publish
-					op = operations().applicationDeployment(module, ApplicationAction.PUSH);
-				}
-				else if (deltaKind == ServerBehaviourDelegate.CHANGED) {
-					op = operations().applicationDeployment(module, ApplicationAction.UPDATE_RESTART);
-				}
-				// Republish the root module if any of the child module requires
-				// republish
-				else if (isChildModuleChanged(module, monitor)) {
-					op = operations().applicationDeployment(module, ApplicationAction.UPDATE_RESTART);
+				synchronized (getServerStateLock()) {
+					int publishState = getServer().getModulePublishState(module);
+					if (deltaKind == ServerBehaviourDelegate.ADDED || publishState == IServer.PUBLISH_STATE_UNKNOWN) {
+						// Application has not been published, so do a full
+						// publish
+						op = operations().applicationDeployment(module, ApplicationAction.PUSH);
+					}
+					else if (deltaKind == ServerBehaviourDelegate.CHANGED) {
+						op = operations().applicationDeployment(module, ApplicationAction.UPDATE_RESTART);
+					}
+					// Republish the root module if any of the child module
+					// requires republish
+					else if (isChildModuleChanged(module, monitor)) {
+						op = operations().applicationDeployment(module, ApplicationAction.UPDATE_RESTART);
+					}
 				}
 
 				// NOTE: No need to run this as a separate Job, as publish
@@ -1410,6 +1503,16 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 				return internalGetCloudSpaces(client);
 			}
 
+			@Override
+			protected String getCoalescingKey() {
+				return "getCloudSpaces"; //$NON-NLS-1$
+			}
+
+			@Override
+			protected long getCacheTimeToLive() {
+				return CloudOperationsConstants.CLOUD_SPACES_CACHE_TTL;
+			}
+
 		}.run(monitor);
 	}
 
@@ -1420,6 +1523,16 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			protected List<CloudRoute> doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
 				return client.getRoutes(domainName);
 			}
+
+			@Override
+			protected String getCoalescingKey() {
+				return "getRoutes:" + domainName; //$NON-NLS-1$
+			}
+
+			@Override
+			protected long getCacheTimeToLive() {
+				return CloudOperationsConstants.ROUTES_CACHE_TTL;
+			}
 		}.run(monitor);
 
 		return routes;
@@ -1439,6 +1552,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 				return null;
 
 			}
+
+			@Override
+			protected String[] getInvalidatedOperations() {
+				return new String[] { "getRoutes" }; //$NON-NLS-1$
+			}
 		}.run(monitor);
 	}
 
@@ -1562,7 +1680,22 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 	 * @param modules
 	 */
 	void resetPublishState(IModule[] modules) {
-		setModulePublishState(modules, IServer.PUBLISH_STATE_NONE);
+		synchronized (getServerStateLock()) {
+			setModulePublishState(modules, IServer.PUBLISH_STATE_NONE);
+		}
+	}
+
+	/**
+	 * Applications are published concurrently, and the module and publish
+	 * states and the publish info of the server are not thread-safe, so they
+	 * must only be changed while holding this lock. This is the Cloud Foundry
+	 * server, which also holds it while updating its module cache together
+	 * with the module states.
+	 * @return lock guarding changes of the state of the server
+	 */
+	Object getServerStateLock() {
+		Object cloudServer = getServer().loadAdapter(CloudFoundryServer.class, null);
+		return cloudServer != null ? cloudServer : this;
 	}
 
 	/**
@@ -1709,20 +1842,9 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			super(label);
 		}
 
-		protected long getWaitInterval(Throwable exception, SubMonitor monitor) throws CoreException {
-
-			if (exception instanceof CoreException) {
-				exception = ((CoreException) exception).getCause();
-			}
-
-			if (exception instanceof NotFinishedStagingException) {
-				return CloudOperationsConstants.ONE_SECOND_INTERVAL * 2;
-			}
-			else if (exception instanceof CloudFoundryException
-					&& CloudErrorUtil.isAppStoppedStateError((CloudFoundryException) exception)) {
-				return CloudOperationsConstants.ONE_SECOND_INTERVAL;
-			}
-			return -1;
+		@Override
+		protected RequestRetryPolicy getRetryPolicy() {
+			return AppStateRetryPolicy.STAGING;
 		}
 
 		protected abstract T doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException;
@@ -1740,23 +1862,59 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			super(label);
 		}
 
-		protected long getWaitInterval(Throwable exception, SubMonitor monitor) throws CoreException {
-
-			if (exception instanceof CoreException) {
-				exception = ((CoreException) exception).getCause();
-			}
-
-			if (exception instanceof CloudFoundryException
-					&& CloudErrorUtil.isAppStoppedStateError((CloudFoundryException) exception)) {
-				return CloudOperationsConstants.ONE_SECOND_INTERVAL;
-			}
-			return -1;
+		@Override
+		protected RequestRetryPolicy getRetryPolicy() {
+			return AppStateRetryPolicy.APP_STOPPED;
 		}
 
 		protected abstract T doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException;
 
 	}
 
+	/**
+	 * Retries requests that fail because an application is still staging, or
+	 * is in stopped state, for example while it is being started.
+	 */
+	public static class AppStateRetryPolicy extends RequestRetryPolicy {
+
+		/**
+		 * Policy of requests that may fail while the application is staging or
+		 * in stopped state.
+		 */
+		public static final AppStateRetryPolicy STAGING = new AppStateRetryPolicy(true);
+
+		/**
+		 * Policy of requests that may fail while the application is in
+		 * stopped state.
+		 */
+		public static final AppStateRetryPolicy APP_STOPPED = new AppStateRetryPolicy(false);
+
+		private static final Backoff STAGING_BACKOFF = new Backoff(CloudOperationsConstants.STAGING_RETRY_INTERVAL,
+				CloudOperationsConstants.STAGING_MAX_RETRY_INTERVAL);
+
+		private static final Backoff APP_STOPPED_BACKOFF = new Backoff(
+				CloudOperationsConstants.APP_STOPPED_RETRY_INTERVAL,
+				CloudOperationsConstants.APP_STOPPED_MAX_RETRY_INTERVAL);
+
+		private final boolean retryStaging;
+
+		protected AppStateRetryPolicy(boolean retryStaging) {
+			this.retryStaging = retryStaging;
+		}
+
+		@Override
+		protected Backoff getBackoff(Throwable error) {
+			if (retryStaging && error instanceof NotFinishedStagingException) {
+				return STAGING_BACKOFF;
+			}
+			else if (error instanceof CloudFoundryException
+					&& CloudErrorUtil.isAppStoppedStateError((CloudFoundryException) error)) {
+				return APP_STOPPED_BACKOFF;
+			}
+			return null;
+		}
+	}
+
 	protected boolean hasChildModules(IModule[] modules) {
 		IWebModule webModule = CloudUtil.getWebModule(modules);
 		return webModule != null && webModule.getModules() != null && webModule.getModules().length > 0;
@@ -1802,16 +1960,8 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 		}
 
 		// If no application archive was provided,then attempt an incremental
-		// publish. Incremental publish is only supported for apps without child
-		// modules.
-		if (archive == null && incrementalPublish && !hasChildModules(modules)) {
-			// Determine if an incremental publish
-			// should
-			// occur
-			// For the time being support incremental
-			// publish
-			// only if the app does not have child
-			// modules
+		// publish.
+		if (archive == null && incrementalPublish) {
 			// To compute incremental deltas locally,
 			// modules must be provided
 			// Computes deltas locally before publishing
@@ -1822,7 +1972,7 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			// only on incremental
 			// builds
 
-			archive = getIncrementalPublishArchive(deploymentInfo, modules);
+			archive = getIncrementalPublishArchive(deploymentInfo, modules, server, monitor);
 		}
 		return archive;
 
@@ -1877,12 +2027,37 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 	}
 
 	protected ApplicationArchive getIncrementalPublishArchive(final ApplicationDeploymentInfo deploymentInfo,
-			IModule[] modules) {
-		IModuleResource[] allResources = getResources(modules);
+			IModule[] modules, Server server, IProgressMonitor monitor) throws CoreException {
+		List<IModuleResource> allResources = new ArrayList<IModuleResource>(Arrays.asList(getResources(modules)));
 		IModuleResourceDelta[] deltas = getPublishedResourceDelta(modules);
-		List<IModuleResource> changedResources = getChangedResources(deltas);
-		ApplicationArchive moduleArchive = new CachingApplicationArchive(Arrays.asList(allResources), changedResources,
+		// The path index of the module is kept between publishes, so that
+		// entry names are not computed again for every resource
+		PathSet changedResources = ModulePathIndex.getIndex(modules[0]).getChangedFiles(deltas);
+
+		List<IModuleResource> childJars = null;
+		if (hasChildModules(modules)) {
+			// Child modules are not part of the parent module delta. Their
+			// jars are only rebuilt when the child module changed, and are
+			// always treated as changed so that their file attributes are
+			// checked. Unchanged jars keep the same hash code and are
+			// matched by the server instead of being uploaded again.
+			childJars = new ChildModuleJars(ChildModuleJars.getJarFolder(modules[0])).getJars(
+					CloudUtil.getWebModule(modules), server, monitor);
+			allResources.addAll(childJars);
+			changedResources.addAll(childJars);
+		}
+
+		CachingApplicationArchive moduleArchive = new CachingApplicationArchive(allResources, changedResources,
 				modules[0], deploymentInfo.getDeploymentName());
+		if (childJars != null) {
+			// Jars are kept in the archive store until the upload completed
+			for (IModuleResource jar : childJars) {
+				File jarFile = CloudUtil.getFile(jar);
+				if (jarFile != null) {
+					moduleArchive.keepOpen(jarFile);
+				}
+			}
+		}
 
 		return moduleArchive;
 	}
@@ -1951,6 +2126,82 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 			super(label);
 		}
 
+		@Override
+		@SuppressWarnings("unchecked")
+		public T run(final IProgressMonitor monitor) throws CoreException {
+			String[] invalidatedOperations = getInvalidatedOperations();
+			try {
+				String key = getCoalescingKey();
+				if (key == null) {
+					return super.run(monitor);
+				}
+
+				long timeToLive = getCacheTimeToLive();
+				if (timeToLive > 0) {
+					Object response = responseCache.get(key);
+					if (response != null) {
+						return (T) response;
+					}
+				}
+				long generation = responseCache.getGeneration(key);
+
+				T result = requestCoalescer.run(key, new RequestCoalescer.Request<T>() {
+					public T run() throws CoreException {
+						return BehaviourRequest.super.run(monitor);
+					}
+				}, monitor);
+
+				if (timeToLive > 0) {
+					responseCache.put(key, result, timeToLive, generation);
+				}
+				return result;
+			}
+			finally {
+				// Invalidate even if the request failed, as it may have
+				// partially modified the Cloud space
+				if (invalidatedOperations.length > 0) {
+					responseCache.invalidate(invalidatedOperations);
+				}
+			}
+		}
+
+		/**
+		 * Read requests that may be issued concurrently by different
+		 * components can return a key identifying the operation and its
+		 * arguments, in the form <code>operation</code> or
+		 * <code>operation:arguments</code>, in which case identical requests
+		 * that run at the same time are merged into one request. See
+		 * {@link RequestCoalescer}. The key is also the key of the cached
+		 * response, if the request has a cache time to live. Requests that
+		 * modify anything must not be coalesced.
+		 * @return key of the request, or null if the request is not coalesced.
+		 * Null by default.
+		 */
+		protected String getCoalescingKey() {
+			return null;
+		}
+
+		/**
+		 * Read requests with a coalescing key can return a time to live, in
+		 * which case their response is cached for that time. See
+		 * {@link ResponseCache}.
+		 * @return time to live in milliseconds of the response, or 0 if the
+		 * response is not cached. 0 by default.
+		 */
+		protected long getCacheTimeToLive() {
+			return 0;
+		}
+
+		/**
+		 * Requests that modify the Cloud space return the operations whose
+		 * cached responses they make stale.
+		 * @return operations whose cached responses are invalidated once the
+		 * request completes. Empty by default.
+		 */
+		protected String[] getInvalidatedOperations() {
+			return NO_OPERATIONS;
+		}
+
 		@Override
 		protected CloudFoundryOperations getClient(IProgressMonitor monitor) throws CoreException {
 			return CloudFoundryServerBehaviour.this.getClient(monitor);
@@ -2003,6 +2254,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 				}
 				return null;
 			}
+
+			@Override
+			protected String[] getInvalidatedOperations() {
+				return new String[] { "getRoutes" }; //$NON-NLS-1$
+			}
 		};
 	}
 
@@ -2112,6 +2368,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 				}
 				return client.getServices();
 			}
+
+			@Override
+			protected String[] getInvalidatedOperations() {
+				return new String[] { "getServices" }; //$NON-NLS-1$
+			}
 		};
 	}
 
@@ -2130,6 +2391,11 @@ public class CloudFoundryServerBehaviour extends ServerBehaviourDelegate {
 				}
 				return client.getServices();
 			}
+
+			@Override
+			protected String[] getInvalidatedOperations() {
+				return new String[] { "getServices" }; //$NON-NLS-1$
+			}
 		};
 	}
 	
@@ -40,5 +40,53 @@ public class CloudOperationsConstants {
 
 	public static final long UPLOAD_TIMEOUT = 60 * 1000;
 
+	/*
+	 * Number of times an application upload is attempted if it fails with a
+	 * transient error, and the intervals between attempts, which double
+	 * after each attempt up to the maximum interval.
+	 */
+	public static final int UPLOAD_ATTEMPTS = 4;
+
+	public static final long UPLOAD_RETRY_INTERVAL = 2 * 1000;
+
+	public static final long UPLOAD_MAX_RETRY_INTERVAL = 30 * 1000;
+
+	/*
+	 * Initial and maximum intervals between attempts of requests that fail
+	 * because an application is still staging, or is in stopped state. See
+	 * RequestRetryPolicy.
+	 */
+	public static final long STAGING_RETRY_INTERVAL = 500;
+
+	public static final long STAGING_MAX_RETRY_INTERVAL = 5 * 1000;
+
+	public static final long APP_STOPPED_RETRY_INTERVAL = 250;
+
+	public static final long APP_STOPPED_MAX_RETRY_INTERVAL = 2 * 1000;
+
+	/*
+	 * Initial and maximum intervals between polls of the instances of an
+	 * application that is starting. See ApplicationStartDetector.
+	 */
+	public static final long START_POLL_INTERVAL = 500;
+
+	public static final long START_MAX_POLL_INTERVAL = 5 * 1000;
+
+	/*
+	 * How long responses of read requests are cached, and the maximum number
+	 * of cached responses of a server. See ResponseCache.
+	 */
+	public static final long SERVICE_OFFERINGS_CACHE_TTL = 5 * 60 * 1000;
+
+	public static final long DOMAINS_CACHE_TTL = 5 * 60 * 1000;
+
+	public static final long CLOUD_SPACES_CACHE_TTL = 5 * 60 * 1000;
+
+	public static final long ROUTES_CACHE_TTL = 30 * 1000;
+
+	public static final long SERVICES_CACHE_TTL = 10 * 1000;
+
+	public static final int RESPONSE_CACHE_MAX_ENTRIES = 64;
+
 	public static final long DEFAULT_CF_CLIENT_REQUEST_TIMEOUT = 15 * 1000;
 }
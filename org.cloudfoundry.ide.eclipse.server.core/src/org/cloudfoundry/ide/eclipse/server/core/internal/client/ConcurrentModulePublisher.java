@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
+import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.wst.server.core.IModule;
+
+/**
+ * Publishes modules of different applications concurrently, so that for
+ * example one application is hashed while another one is uploaded and a
+ * third one is staging. At most the given number of applications are
+ * published at the same time. Modules of the same application (i.e. with the
+ * same root module) are published sequentially in the order given by the
+ * framework, by {@link #publishModules(List, List, MultiStatus, IProgressMonitor)}.
+ * <p/>
+ * Errors of each application are added to the status of the publish once all
+ * applications have been published. Implementations must guard any change of
+ * state shared between applications, like the module and publish states of
+ * the server.
+ */
+public abstract class ConcurrentModulePublisher {
+
+	private final int concurrency;
+
+	/**
+	 * 
+	 * @param concurrency maximum number of applications that are published
+	 * at the same time. Modules are published sequentially in the calling
+	 * thread if 1 or less.
+	 */
+	public ConcurrentModulePublisher(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Publishes the given modules, and returns only once all modules have been
+	 * published, even if cancelled or interrupted. If the calling thread is
+	 * interrupted, the monitor is cancelled so that publishing stops as soon
+	 * as possible, and the interrupt is restored before returning.
+	 * @param modules to publish, as given by the framework
+	 * @param deltaKinds of the modules, as given by the framework
+	 * @param multi status to which errors are added
+	 * @param monitor
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void publish(List modules, List deltaKinds, MultiStatus multi, final IProgressMonitor monitor) {
+		Map<IModule, List<IModule[]>> modulesByRoot = new LinkedHashMap<IModule, List<IModule[]>>();
+		Map<IModule, List<Integer>> deltaKindsByRoot = new HashMap<IModule, List<Integer>>();
+		if (modules != null && deltaKinds != null) {
+			for (int i = 0; i < modules.size() && i < deltaKinds.size(); i++) {
+				IModule[] module = (IModule[]) modules.get(i);
+				if (module.length == 0) {
+					continue;
+				}
+				List<IModule[]> rootModules = modulesByRoot.get(module[0]);
+				if (rootModules == null) {
+					rootModules = new ArrayList<IModule[]>();
+					modulesByRoot.put(module[0], rootModules);
+					deltaKindsByRoot.put(module[0], new ArrayList<Integer>());
+				}
+				rootModules.add(module);
+				deltaKindsByRoot.get(module[0]).add((Integer) deltaKinds.get(i));
+			}
+		}
+
+		if (concurrency <= 1 || modulesByRoot.size() <= 1) {
+			publishModules(modules, deltaKinds, multi, monitor);
+			return;
+		}
+
+		final Object progressLock = new Object();
+		monitor.beginTask(Messages.PUBLISHING_MODULES, modulesByRoot.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, modulesByRoot.size()));
+		List<MultiStatus> rootStatuses = new ArrayList<MultiStatus>();
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		boolean interrupted = false;
+		try {
+			for (Entry<IModule, List<IModule[]>> entry : modulesByRoot.entrySet()) {
+				final List<IModule[]> rootModules = entry.getValue();
+				final List<Integer> rootDeltaKinds = deltaKindsByRoot.get(entry.getKey());
+				final MultiStatus rootStatus = new MultiStatus(CloudFoundryPlugin.PLUGIN_ID, 0, entry.getKey()
+						.getName(), null);
+				rootStatuses.add(rootStatus);
+				results.add(executor.submit(new Runnable() {
+					public void run() {
+						IProgressMonitor rootMonitor = new ConcurrentProgressMonitor(monitor, progressLock, 1);
+						try {
+							publishModules(rootModules, rootDeltaKinds, rootStatus, rootMonitor);
+						}
+						finally {
+							rootMonitor.done();
+						}
+					}
+				}));
+			}
+
+			// Wait for every publish thread, even if interrupted, as they
+			// change the state of the server and their statuses are merged
+			// below. Cancelling the monitor makes them stop as soon as
+			// possible.
+			for (Future<?> result : results) {
+				while (true) {
+					try {
+						result.get();
+						break;
+					}
+					catch (ExecutionException e) {
+						multi.add(CloudFoundryPlugin.getErrorStatus(e.getCause()));
+						break;
+					}
+					catch (InterruptedException e) {
+						if (!interrupted) {
+							interrupted = true;
+							synchronized (progressLock) {
+								monitor.setCanceled(true);
+							}
+						}
+					}
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (progressLock) {
+				monitor.done();
+			}
+		}
+
+		// Statuses are only merged once all publish threads have completed
+		for (MultiStatus rootStatus : rootStatuses) {
+			for (IStatus status : rootStatus.getChildren()) {
+				multi.add(status);
+			}
+		}
+	}
+
+	/**
+	 * Publishes the given modules sequentially. Called in a publish thread for
+	 * the modules of each application, or in the calling thread for all
+	 * modules if they are not published concurrently.
+	 * @param modules to publish
+	 * @param deltaKinds of the modules
+	 * @param status to which errors are added
+	 * @param monitor
+	 */
+	protected abstract void publishModules(List<IModule[]> modules, List<Integer> deltaKinds, MultiStatus status,
+			IProgressMonitor monitor);
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Monitor for a task that runs in its own thread as part of a larger
+ * operation, like publishing one of several applications. Progress monitors
+ * are not thread-safe, so the sub tasks and work reported by the task are
+ * forwarded to the monitor of the operation while holding a lock shared by
+ * all the tasks of the operation, and by the thread that owns the monitor of
+ * the operation.
+ * <p/>
+ * The task reports its work as a share of the given number of ticks of the
+ * operation monitor, all of which are reported at the latest when the task is
+ * done. The task is cancelled when either its own monitor or the operation
+ * monitor is cancelled.
+ * <p/>
+ * An instance must only be used by the thread that runs the task.
+ */
+class ConcurrentProgressMonitor extends NullProgressMonitor {
+
+	private final IProgressMonitor parent;
+
+	private final Object lock;
+
+	private final int parentTicks;
+
+	private double totalWork;
+
+	private double worked;
+
+	private int reportedTicks;
+
+	/**
+	 * 
+	 * @param parent monitor of the operation. Must not be null.
+	 * @param lock lock guarding the monitor of the operation. Must not be
+	 * null.
+	 * @param parentTicks number of ticks of the operation monitor that
+	 * correspond to the whole task
+	 */
+	ConcurrentProgressMonitor(IProgressMonitor parent, Object lock, int parentTicks) {
+		this.parent = parent;
+		this.lock = lock;
+		this.parentTicks = parentTicks;
+	}
+
+	@Override
+	public void beginTask(String name, int totalWork) {
+		if (this.totalWork == 0 && totalWork > 0) {
+			this.totalWork = totalWork;
+		}
+		if (name != null && name.length() > 0) {
+			subTask(name);
+		}
+	}
+
+	@Override
+	public void setTaskName(String name) {
+		subTask(name);
+	}
+
+	@Override
+	public void subTask(String name) {
+		synchronized (lock) {
+			parent.subTask(name);
+		}
+	}
+
+	@Override
+	public void worked(int work) {
+		internalWorked(work);
+	}
+
+	@Override
+	public void internalWorked(double work) {
+		if (totalWork <= 0 || work <= 0) {
+			return;
+		}
+		worked += work;
+		report((int) Math.min(parentTicks, worked * parentTicks / totalWork));
+	}
+
+	@Override
+	public void done() {
+		report(parentTicks);
+	}
+
+	@Override
+	public boolean isCanceled() {
+		if (super.isCanceled()) {
+			return true;
+		}
+		synchronized (lock) {
+			return parent.isCanceled();
+		}
+	}
+
+	private void report(int ticks) {
+		if (ticks > reportedTicks) {
+			synchronized (lock) {
+				parent.worked(ticks - reportedTicks);
+			}
+			reportedTicks = ticks;
+		}
+	}
+}
@@ -67,15 +67,98 @@ public class DeleteModulesOperation extends BehaviourOperation {
 	protected void doDelete(IProgressMonitor monitor) throws CoreException {
 		final CloudFoundryServer cloudServer = getBehaviour().getCloudFoundryServer();
 
-		List<String> failedToDeleteApps = new ArrayList<String>();
-		Throwable failedDeleteError = null;
+		List<RemoteDeletion> deletions = new ArrayList<RemoteDeletion>();
 		for (IModule module : modules) {
 			final CloudFoundryApplicationModule appModule = cloudServer.getExistingCloudModule(module);
 
-			if (appModule == null) {
+			if (appModule != null) {
+				deletions.add(new RemoteDeletion(appModule));
+			}
+		}
+
+		// Applications are deleted in the Cloud space concurrently, which
+		// avoids waiting for the round trips of each application in turn when
+		// deleting many applications. The local modules are then removed in
+		// this thread, so that the server is not modified concurrently.
+		CoreException deleteError = null;
+		try {
+			new BulkOperation(getBehaviour(), deletions, CloudBehaviourOperations.getBulkOperationConcurrency(), false)
+					.run(monitor);
+		}
+		catch (CoreException e) {
+			deleteError = e;
+		}
+
+		List<String> failedToDeleteApps = new ArrayList<String>();
+		Throwable failedDeleteError = null;
+		for (RemoteDeletion deletion : deletions) {
+			// Keep the module if its application could not be deleted
+			if (!deletion.isDeleted()) {
 				continue;
 			}
 
+			CloudFoundryApplicationModule appModule = deletion.getAppModule();
+
+			if (deletion.getFetchError() != null) {
+				failedDeleteError = deletion.getFetchError();
+				failedToDeleteApps.add(appModule.getDeployedApplicationName());
+			}
+
+			CloudFoundryPlugin.getCallback().stopApplicationConsole(appModule, cloudServer);
+
+			// Delete the module locally
+			cloudServer.removeApplication(appModule);
+
+			ServerEventHandler.getDefault().fireServerEvent(
+					new ModuleChangeEvent(getBehaviour().getCloudFoundryServer(), CloudServerEvent.EVENT_APP_DELETED,
+							appModule.getLocalModule(), Status.OK_STATUS));
+
+			// Be sure the cloud application mapping is removed
+			// in case other components still have a reference to
+			// the
+			// module
+			appModule.setCloudApplication(null);
+
+			// Prompt the user to delete services as well
+			List<String> servicesToDelete = deletion.getServices();
+			if (deleteServices && !servicesToDelete.isEmpty()) {
+				CloudFoundryPlugin.getCallback().deleteServices(servicesToDelete, cloudServer);
+			}
+
+		}
+		if (!failedToDeleteApps.isEmpty() && failedDeleteError != null) {
+			String errorMessage = NLS.bind(Messages.DeleteModulesOperation_ERROR_DELETE_APP_MESSAGE,
+					failedToDeleteApps, failedDeleteError.getMessage());
+			IStatus status = CloudFoundryPlugin.getErrorStatus(errorMessage, failedDeleteError);
+			CloudFoundryPlugin.getCallback().handleError(status);
+		}
+		if (deleteError != null) {
+			throw deleteError;
+		}
+	}
+
+	/**
+	 * Deletes the application of a module in the Cloud space, if it exists.
+	 * Does not modify the local server, so that the applications of several
+	 * modules can be deleted concurrently.
+	 */
+	protected class RemoteDeletion extends BehaviourOperation {
+
+		private final CloudFoundryApplicationModule appModule;
+
+		private final List<String> services = new ArrayList<String>();
+
+		private Throwable fetchError;
+
+		private volatile boolean deleted;
+
+		public RemoteDeletion(CloudFoundryApplicationModule appModule) {
+			super(DeleteModulesOperation.this.getBehaviour(), appModule.getLocalModule());
+			this.appModule = appModule;
+		}
+
+		@Override
+		public void run(IProgressMonitor monitor) throws CoreException {
 			// Fetch an updated application. Do not fetch all applications as it
 			// may slow down the
 			// deletion process, only fetch the app being deleted
@@ -90,8 +173,7 @@ public class DeleteModulesOperation extends BehaviourOperation {
 				// have the module in the server instance that cannot be
 				// deleted, but log the error
 				if (!CloudErrorUtil.isNotFoundException(t)) {
-					failedDeleteError = t;
-					failedToDeleteApps.add(appModule.getDeployedApplicationName());
+					fetchError = t;
 				}
 			}
 
@@ -104,8 +186,6 @@ public class DeleteModulesOperation extends BehaviourOperation {
 			// IModule would have already been created
 			// but there would be no corresponding CloudApplication.
 
-			List<String> servicesToDelete = new ArrayList<String>();
-
 			// ONLY delete a remote application if an application is found.
 			if (application != null) {
 				List<String> actualServices = application.getServices();
@@ -115,7 +195,7 @@ public class DeleteModulesOperation extends BehaviourOperation {
 					// contains null entries
 					for (String serviceName : actualServices) {
 						if (serviceName != null) {
-							servicesToDelete.add(serviceName);
+							services.add(serviceName);
 						}
 					}
 				}
@@ -123,33 +203,33 @@ public class DeleteModulesOperation extends BehaviourOperation {
 				getBehaviour().deleteApplication(application.getName(), monitor);
 
 			}
+			deleted = true;
+		}
 
-			CloudFoundryPlugin.getCallback().stopApplicationConsole(appModule, cloudServer);
-
-			// Delete the module locally
-			cloudServer.removeApplication(appModule);
-
-			ServerEventHandler.getDefault().fireServerEvent(
-					new ModuleChangeEvent(getBehaviour().getCloudFoundryServer(), CloudServerEvent.EVENT_APP_DELETED,
-							appModule.getLocalModule(), Status.OK_STATUS));
-
-			// Be sure the cloud application mapping is removed
-			// in case other components still have a reference to
-			// the
-			// module
-			appModule.setCloudApplication(null);
+		public CloudFoundryApplicationModule getAppModule() {
+			return appModule;
+		}
 
-			// Prompt the user to delete services as well
-			if (deleteServices && !servicesToDelete.isEmpty()) {
-				CloudFoundryPlugin.getCallback().deleteServices(servicesToDelete, cloudServer);
-			}
+		/**
+		 * 
+		 * @return true if the application was deleted, or did not have to be
+		 * deleted
+		 */
+		public boolean isDeleted() {
+			return deleted;
+		}
 
+		/**
+		 * 
+		 * @return error other than not found while fetching the application,
+		 * or null
+		 */
+		public Throwable getFetchError() {
+			return fetchError;
 		}
-		if (!failedToDeleteApps.isEmpty() && failedDeleteError != null) {
-			String errorMessage = NLS.bind(Messages.DeleteModulesOperation_ERROR_DELETE_APP_MESSAGE,
-					failedToDeleteApps, failedDeleteError.getMessage());
-			IStatus status = CloudFoundryPlugin.getErrorStatus(errorMessage, failedDeleteError);
-			CloudFoundryPlugin.getCallback().handleError(status);
+
+		public List<String> getServices() {
+			return services;
 		}
 	}
 
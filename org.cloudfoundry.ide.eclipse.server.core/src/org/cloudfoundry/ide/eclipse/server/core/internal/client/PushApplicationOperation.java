@@ -172,6 +172,11 @@ public class PushApplicationOperation extends StartOperation {
 					cloudAppCreationClientError = CloudErrorUtil.toCoreException(e);
 				}
 			}
+			finally {
+				// The routes of the application are mapped even if creating
+				// the application failed later on
+				getBehaviour().getResponseCache().invalidate("getRoutes"); //$NON-NLS-1$
+			}
 
 			subMonitor.worked(30);
 
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Timeline and resource counts of a single push of an application, from
+ * generating the application archive to the application having started.
+ * Stages are recorded by the push operation as they are performed, and may be
+ * queried while the push is still in progress. Stages that were not performed
+ * (e.g. start, if the application is pushed in stopped mode) have no duration.
+ * <p/>
+ * The byte counts are the uncompressed sizes of the archive entries. Bytes
+ * matched by the server are those that were skipped in the upload, as the
+ * server already had resources with the same sha1 hash codes.
+ */
+public class PushStatistics {
+
+	public enum Stage {
+		/**
+		 * Generating the application archive
+		 */
+		ARCHIVE,
+		/**
+		 * Computing sha1 hash codes of archive entries, not including hashing
+		 * that completed while the application was checked on the server
+		 */
+		HASH,
+		/**
+		 * Matching archive entries against resources known to the server
+		 */
+		MATCH,
+		/**
+		 * Uploading missing entries and waiting for the server to process
+		 * them
+		 */
+		UPLOAD,
+		/**
+		 * Requesting the server to stage and start the application
+		 */
+		STAGE,
+		/**
+		 * Waiting for the application to start
+		 */
+		START
+	}
+
+	private final Map<Stage, Long> begin = new EnumMap<Stage, Long>(Stage.class);
+
+	private final Map<Stage, Long> end = new EnumMap<Stage, Long>(Stage.class);
+
+	private int totalFiles;
+
+	private long totalBytes;
+
+	private int matchedFiles;
+
+	private long matchedBytes;
+
+	private long uploadedBytes;
+
+	public synchronized void begin(Stage stage) {
+		begin.put(stage, System.currentTimeMillis());
+		end.remove(stage);
+	}
+
+	public synchronized void end(Stage stage) {
+		if (begin.containsKey(stage) && !end.containsKey(stage)) {
+			end.put(stage, System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * 
+	 * @param stage
+	 * @return duration of the given stage in milliseconds, or -1 if the stage
+	 * was not performed or is still in progress
+	 */
+	public synchronized long getDuration(Stage stage) {
+		Long stageBegin = begin.get(stage);
+		Long stageEnd = end.get(stage);
+		return stageBegin != null && stageEnd != null ? stageEnd - stageBegin : -1;
+	}
+
+	/**
+	 * 
+	 * @return time in milliseconds from the beginning of the first stage to
+	 * the end of the last completed stage, or -1 if no stage completed
+	 */
+	public synchronized long getTotalDuration() {
+		long first = Long.MAX_VALUE;
+		long last = -1;
+		for (Long time : begin.values()) {
+			first = Math.min(first, time);
+		}
+		for (Long time : end.values()) {
+			last = Math.max(last, time);
+		}
+		return last >= 0 ? last - first : -1;
+	}
+
+	public synchronized void setArchiveSize(int files, long bytes) {
+		this.totalFiles = files;
+		this.totalBytes = bytes;
+	}
+
+	public synchronized void setMatched(int files, long bytes) {
+		this.matchedFiles = files;
+		this.matchedBytes = bytes;
+	}
+
+	public synchronized void setUploadedBytes(long bytes) {
+		this.uploadedBytes = bytes;
+	}
+
+	public synchronized int getTotalFiles() {
+		return totalFiles;
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public synchronized int getMatchedFiles() {
+		return matchedFiles;
+	}
+
+	/**
+	 * 
+	 * @return bytes that did not need to be uploaded, as the server already
+	 * had matching resources
+	 */
+	public synchronized long getMatchedBytes() {
+		return matchedBytes;
+	}
+
+	public synchronized long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	/**
+	 * 
+	 * @return upload throughput in bytes per second, or -1 if the upload has
+	 * not completed
+	 */
+	public synchronized long getUploadThroughput() {
+		long duration = getDuration(Stage.UPLOAD);
+		if (duration < 0) {
+			return -1;
+		}
+		return uploadedBytes * 1000 / Math.max(1, duration);
+	}
+
+	/**
+	 * 
+	 * @return one line describing the duration of each performed stage
+	 */
+	public synchronized String getTimeline() {
+		StringBuilder timeline = new StringBuilder();
+		for (Stage stage : Stage.values()) {
+			long duration = getDuration(stage);
+			if (duration >= 0) {
+				if (timeline.length() > 0) {
+					timeline.append(", "); //$NON-NLS-1$
+				}
+				timeline.append(stage.name().toLowerCase()).append(' ').append(duration).append(" ms"); //$NON-NLS-1$
+			}
+		}
+		return NLS.bind(Messages.CONSOLE_PUSH_TIMELINE, timeline, getTotalDuration());
+	}
+
+	/**
+	 * 
+	 * @return one line describing the file and byte counts of the push
+	 */
+	public synchronized String getResourceSummary() {
+		long throughput = getUploadThroughput();
+		return NLS.bind(
+				Messages.CONSOLE_PUSH_RESOURCES,
+				new Object[] { totalFiles, formatBytes(totalBytes), matchedFiles, formatBytes(matchedBytes),
+						formatBytes(uploadedBytes), throughput >= 0 ? formatBytes(throughput) : "-" }); //$NON-NLS-1$
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getTimeline() + '\n' + getResourceSummary();
+	}
+
+	protected static String formatBytes(long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B"; //$NON-NLS-1$
+		}
+		if (bytes < 1024 * 1024) {
+			return String.format("%.1f KB", bytes / 1024.0); //$NON-NLS-1$
+		}
+		return String.format("%.1f MB", bytes / (1024.0 * 1024.0)); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Merges identical read requests that run concurrently into one request. The
+ * first caller for a given key performs the request, and callers that
+ * request the same key while it is in progress wait for it and share its
+ * result or error, instead of sending the same request to the Cloud
+ * controller again.
+ * <p/>
+ * Only requests that do not modify anything should be coalesced, and the key
+ * must identify both the operation and its arguments. Lists are copied for
+ * each caller, but other results, including the elements of lists, are
+ * shared by all callers, so only requests whose results callers do not modify
+ * should be coalesced. Results are not kept
+ * once the request completes: a caller that requests a key after the request
+ * completed performs the request again.
+ * <p/>
+ * If the caller performing the request is cancelled, callers waiting for it
+ * perform the request again themselves. Waiting callers stop waiting as soon
+ * as their own monitor is cancelled.
+ */
+public class RequestCoalescer {
+
+	private static final long CANCEL_CHECK_INTERVAL = 100;
+
+	private final Map<String, InFlightRequest> inFlight = new HashMap<String, InFlightRequest>();
+
+	private long coalescedCount;
+
+	/**
+	 * Performs a request, or waits for an identical request that is already in
+	 * progress.
+	 * @param key identifying the operation and its arguments
+	 * @param request performing the actual request
+	 * @param monitor of the caller
+	 * @return result of the request
+	 * @throws CoreException if the request failed
+	 * @throws OperationCanceledException if the caller is cancelled
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T run(String key, Request<T> request, IProgressMonitor monitor) throws CoreException,
+			OperationCanceledException {
+		while (true) {
+			InFlightRequest inFlightRequest;
+			boolean perform = false;
+			synchronized (inFlight) {
+				inFlightRequest = inFlight.get(key);
+				if (inFlightRequest == null) {
+					inFlightRequest = new InFlightRequest();
+					inFlight.put(key, inFlightRequest);
+					perform = true;
+				}
+				else {
+					coalescedCount++;
+				}
+			}
+
+			if (perform) {
+				return perform(key, inFlightRequest, request);
+			}
+
+			inFlightRequest.await(monitor);
+			if (!inFlightRequest.isCanceled()) {
+				return (T) inFlightRequest.getResult();
+			}
+			// The caller that performed the request was cancelled. Perform
+			// the request again, or join another caller that already
+			// performs it again.
+		}
+	}
+
+	/**
+	 * 
+	 * @return number of requests that were merged into a request already in
+	 * progress, rather than sent to the Cloud controller
+	 */
+	public long getCoalescedCount() {
+		synchronized (inFlight) {
+			return coalescedCount;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <T> T perform(String key, InFlightRequest inFlightRequest, Request<T> request) throws CoreException {
+		Object result = null;
+		Throwable error = null;
+		try {
+			result = request.run();
+			return (T) result;
+		}
+		catch (CoreException e) {
+			error = e;
+			throw e;
+		}
+		catch (RuntimeException e) {
+			error = e;
+			throw e;
+		}
+		catch (Error e) {
+			error = e;
+			throw e;
+		}
+		finally {
+			synchronized (inFlight) {
+				inFlight.remove(key);
+			}
+			inFlightRequest.complete(result, error);
+		}
+	}
+
+	/**
+	 * Performs the actual request.
+	 */
+	public interface Request<T> {
+		T run() throws CoreException;
+	}
+
+	protected static class InFlightRequest {
+
+		private boolean done;
+
+		private Object result;
+
+		private Throwable error;
+
+		synchronized void complete(Object result, Throwable error) {
+			this.result = result;
+			this.error = error;
+			this.done = true;
+			notifyAll();
+		}
+
+		synchronized void await(IProgressMonitor monitor) throws OperationCanceledException {
+			while (!done) {
+				if (monitor != null && monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				try {
+					wait(CANCEL_CHECK_INTERVAL);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OperationCanceledException();
+				}
+			}
+		}
+
+		synchronized boolean isCanceled() {
+			return error instanceof OperationCanceledException;
+		}
+
+		/**
+		 * 
+		 * @return result of the request. Lists are copied, so that waiting
+		 * callers can modify the list they receive.
+		 * @throws CoreException if the request failed
+		 */
+		synchronized Object getResult() throws CoreException {
+			if (error instanceof CoreException) {
+				throw (CoreException) error;
+			}
+			else if (error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			}
+			else if (error instanceof Error) {
+				throw (Error) error;
+			}
+			if (result instanceof List<?>) {
+				return new ArrayList<Object>((List<?>) result);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Decides whether a failed client request is attempted again, and how long to
+ * wait before the next attempt. Subclasses decide which errors are retried
+ * with {@link #getBackoff(Throwable)}, which may return a different backoff
+ * for each kind of error.
+ * <p/>
+ * Intervals grow exponentially with decorrelated jitter: each interval is
+ * chosen randomly between the initial interval of the backoff and three times
+ * the previous interval, and never exceeds the maximum interval of the
+ * backoff. Requests therefore are attempted again quickly if a condition, like
+ * an application staging, clears soon, without polling the Cloud controller at
+ * a high rate if the condition lasts longer. Randomising the intervals also
+ * avoids concurrent requests being attempted again at the same time.
+ * <p/>
+ * The policy counts the retries and the total time waited between attempts of
+ * all the requests that use it, which can be used to tune the backoffs. A
+ * policy may be shared by several requests running concurrently.
+ */
+public abstract class RequestRetryPolicy {
+
+	private static final long SLEEP_SLICE = 100;
+
+	private final Random random;
+
+	private final AtomicLong retryCount = new AtomicLong();
+
+	private final AtomicLong retryTime = new AtomicLong();
+
+	public RequestRetryPolicy() {
+		this(new Random());
+	}
+
+	/**
+	 * 
+	 * @param random source of the jitter of the intervals
+	 */
+	protected RequestRetryPolicy(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * 
+	 * @param error that caused the last attempt of a request to fail
+	 * @param previousInterval interval waited before the last attempt, or 0
+	 * if the last attempt was the first attempt
+	 * @return interval in milliseconds to wait before attempting the request
+	 * again, or -1 if the request should not be attempted again
+	 * @throws CoreException if failed to determine whether the request should
+	 * be attempted again. No further attempts are made.
+	 */
+	public long getWaitInterval(Throwable error, long previousInterval) throws CoreException {
+		Backoff backoff = getBackoff(getCause(error));
+		if (backoff == null) {
+			return -1;
+		}
+		long upper = Math.max(previousInterval, backoff.initialInterval) * 3;
+		long interval = backoff.initialInterval
+				+ (long) (random.nextDouble() * (upper - backoff.initialInterval));
+		return Math.min(interval, backoff.maxInterval);
+	}
+
+	/**
+	 * Records that a request is attempted again after waiting for the given
+	 * interval.
+	 * @param interval in milliseconds
+	 */
+	public void retried(long interval) {
+		retryCount.incrementAndGet();
+		retryTime.addAndGet(interval);
+	}
+
+	/**
+	 * 
+	 * @return number of times requests using this policy were attempted again
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * 
+	 * @return total time in milliseconds requests using this policy waited
+	 * before being attempted again
+	 */
+	public long getRetryTime() {
+		return retryTime.get();
+	}
+
+	/**
+	 * 
+	 * @param error that caused the last attempt of a request to fail. If the
+	 * request failed with a {@link CoreException} that has a cause, it is the
+	 * cause.
+	 * @return backoff for the given error, or null if requests failing with
+	 * the given error should not be attempted again
+	 * @throws CoreException if failed to determine whether the request should
+	 * be attempted again
+	 */
+	protected abstract Backoff getBackoff(Throwable error) throws CoreException;
+
+	/**
+	 * Waits for the given interval before attempting a request again, returning
+	 * early if the monitor is cancelled.
+	 * @param interval in milliseconds
+	 * @param monitor
+	 * @throws OperationCanceledException if the monitor is cancelled or the
+	 * thread is interrupted while waiting
+	 */
+	public static void sleep(long interval, IProgressMonitor monitor) throws OperationCanceledException {
+		long end = System.currentTimeMillis() + interval;
+		long remaining = interval;
+		while (remaining > 0) {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			try {
+				Thread.sleep(Math.min(remaining, SLEEP_SLICE));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			}
+			remaining = end - System.currentTimeMillis();
+		}
+	}
+
+	protected static Throwable getCause(Throwable error) {
+		if (error instanceof CoreException && error.getCause() != null) {
+			return error.getCause();
+		}
+		return error;
+	}
+
+	/**
+	 * Bounds of the intervals between attempts of requests that failed with a
+	 * certain kind of error.
+	 */
+	public static class Backoff {
+
+		private final long initialInterval;
+
+		private final long maxInterval;
+
+		/**
+		 * 
+		 * @param initialInterval minimum interval in milliseconds. Must be
+		 * greater than 0.
+		 * @param maxInterval maximum interval in milliseconds
+		 */
+		public Backoff(long initialInterval, long maxInterval) {
+			this.initialInterval = initialInterval;
+			this.maxInterval = Math.max(initialInterval, maxInterval);
+		}
+
+		public long getInitialInterval() {
+			return initialInterval;
+		}
+
+		public long getMaxInterval() {
+			return maxInterval;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Keeps the responses of read requests to a Cloud space for a limited time,
+ * so that opening a wizard or refreshing a UI part again shortly after does
+ * not send the same requests to the Cloud controller again.
+ * <p/>
+ * Responses are keyed by operation and arguments, in the form
+ * <code>operation</code> or <code>operation:arguments</code>. Each response is
+ * kept for the time to live given by the request, unless a different time to
+ * live is set for its operation with {@link #setTimeToLive(String, long)}. A
+ * time to live of 0 disables caching the responses of an operation. Once the
+ * maximum number of responses is reached, the least recently used response
+ * is evicted.
+ * <p/>
+ * Requests that modify the Cloud space invalidate the responses of the
+ * operations they affect. A response to a request that started before an
+ * invalidation of its operation is not cached, as it may already be stale.
+ * <p/>
+ * Lists are copied when cached and when returned, so that callers can modify
+ * the lists they receive.
+ */
+public class ResponseCache {
+
+	private final int maxEntries;
+
+	private final LinkedHashMap<String, CachedResponse> responses;
+
+	private final Map<String, Long> timesToLive = new HashMap<String, Long>();
+
+	private final Map<String, Long> generations = new HashMap<String, Long>();
+
+	private long clearCount;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * 
+	 * @param maxEntries maximum number of responses kept
+	 */
+	public ResponseCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<String, CachedResponse> eldest) {
+				return size() > ResponseCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * @param key of the response
+	 * @return cached response, or null if there is no response for the given
+	 * key or it expired
+	 */
+	public synchronized Object get(String key) {
+		CachedResponse response = responses.get(key);
+		if (response != null && response.expiry <= System.currentTimeMillis()) {
+			responses.remove(key);
+			response = null;
+		}
+		if (response == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return copy(response.value);
+	}
+
+	/**
+	 * 
+	 * @param key
+	 * @return generation of the operation of the given key, to pass to
+	 * {@link #put(String, Object, long, long)} once the response is received
+	 */
+	public synchronized long getGeneration(String key) {
+		// Both counts only grow, so the sum changes whenever the operation
+		// is invalidated or the cache is cleared
+		Long generation = generations.get(getOperation(key));
+		return clearCount + (generation != null ? generation : 0);
+	}
+
+	/**
+	 * Caches a response, unless its operation was invalidated since the given
+	 * generation.
+	 * @param key of the response
+	 * @param value response. Null responses are not cached.
+	 * @param timeToLive in milliseconds, if no time to live is set for the
+	 * operation
+	 * @param generation of the operation when the request was started
+	 */
+	public synchronized void put(String key, Object value, long timeToLive, long generation) {
+		Long operationTimeToLive = timesToLive.get(getOperation(key));
+		if (operationTimeToLive != null) {
+			timeToLive = operationTimeToLive;
+		}
+		if (value == null || timeToLive <= 0 || maxEntries <= 0 || generation != getGeneration(key)) {
+			return;
+		}
+		responses.put(key, new CachedResponse(copy(value), System.currentTimeMillis() + timeToLive));
+	}
+
+	/**
+	 * Removes the responses of the given operations, with any arguments.
+	 * @param operations
+	 */
+	public synchronized void invalidate(String... operations) {
+		for (String operation : operations) {
+			Long generation = generations.get(operation);
+			generations.put(operation, generation != null ? generation + 1 : 1);
+			for (Iterator<String> it = responses.keySet().iterator(); it.hasNext();) {
+				if (operation.equals(getOperation(it.next()))) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all responses, for example when the Cloud space or credentials
+	 * change.
+	 */
+	public synchronized void clear() {
+		clearCount++;
+		responses.clear();
+	}
+
+	/**
+	 * Sets the time to live of the responses of the given operation, overriding
+	 * the time to live given by requests.
+	 * @param operation
+	 * @param timeToLive in milliseconds. 0 disables caching the responses of
+	 * the operation.
+	 */
+	public synchronized void setTimeToLive(String operation, long timeToLive) {
+		timesToLive.put(operation, timeToLive);
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	protected static String getOperation(String key) {
+		int index = key.indexOf(':');
+		return index >= 0 ? key.substring(0, index) : key;
+	}
+
+	protected static Object copy(Object value) {
+		if (value instanceof List<?>) {
+			return new ArrayList<Object>((List<?>) value);
+		}
+		return value;
+	}
+
+	private static class CachedResponse {
+
+		final Object value;
+
+		final long expiry;
+
+		CachedResponse(Object value, long expiry) {
+			this.value = value;
+			this.expiry = expiry;
+		}
+	}
+}
@@ -26,6 +26,7 @@ import org.cloudfoundry.ide.eclipse.server.core.internal.ApplicationAction;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
 import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.PushStatistics.Stage;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -35,7 +36,6 @@ import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
-import org.eclipse.wst.server.core.internal.Server;
 
 /**
  * 
@@ -52,10 +52,24 @@ public class RestartOperation extends ApplicationOperation {
 	 * 
 	 */
 
+	private PushStatistics statistics;
+
 	public RestartOperation(CloudFoundryServerBehaviour behaviour, IModule[] modules) {
 		super(behaviour, modules);
 	}
 
+	/**
+	 * 
+	 * @return statistics of the stages performed by this operation. Never
+	 * null.
+	 */
+	protected synchronized PushStatistics getStatistics() {
+		if (statistics == null) {
+			statistics = new PushStatistics();
+		}
+		return statistics;
+	}
+
 	@Override
 	public String getOperationName() {
 		return Messages.RestartOperation_STARTING_APP;
@@ -64,17 +78,15 @@ public class RestartOperation extends ApplicationOperation {
 	@Override
 	protected void performDeployment(CloudFoundryApplicationModule appModule, IProgressMonitor monitor)
 			throws CoreException {
-		final Server server = (Server) getBehaviour().getServer();
-
 		try {
 			appModule.setErrorStatus(null);
 
 			final String deploymentName = appModule.getDeploymentInfo().getDeploymentName();
 
-			server.setModuleState(getModules(), IServer.STATE_STARTING);
+			setModuleState(IServer.STATE_STARTING);
 
 			if (deploymentName == null) {
-				server.setModuleState(getModules(), IServer.STATE_STOPPED);
+				setModuleState(IServer.STATE_STOPPED);
 
 				throw CloudErrorUtil
 						.toCoreException("Unable to start application. Missing application deployment name in application deployment information."); //$NON-NLS-1$
@@ -110,6 +122,7 @@ public class RestartOperation extends ApplicationOperation {
 					protected Void doRun(final CloudFoundryOperations client, SubMonitor progress) throws CoreException, OperationCanceledException {
 						CloudFoundryPlugin.trace("Application " + deploymentName + " starting"); //$NON-NLS-1$ //$NON-NLS-2$
 
+						getStatistics().begin(Stage.STAGE);
 						client.stopApplication(deploymentName);
 						// Can be more fine-grained.  Could pass progress to client's stopApplication method.  
 						// For now, we should check for cancel at this point, prior to starting the application
@@ -118,7 +131,8 @@ public class RestartOperation extends ApplicationOperation {
 						}
 
 						StartingInfo info = client.startApplication(deploymentName);
-						
+						getStatistics().end(Stage.STAGE);
+
 						// Similarly, check for cancel at this point
 						if (progress.isCanceled()) {
 							throw new OperationCanceledException(Messages.bind(Messages.OPERATION_CANCELED, getRequestLabel()));
@@ -146,17 +160,19 @@ public class RestartOperation extends ApplicationOperation {
 
 						// Now verify that the application did start
 						try {
+							getStatistics().begin(Stage.START);
 							if (!RestartOperation.this.getBehaviour().waitForStart(client, deploymentName, progress)) {
-								server.setModuleState(getModules(), IServer.STATE_STOPPED);
+								setModuleState(IServer.STATE_STOPPED);
 
 								throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
-										"Starting of " + cloudModule.getDeployedApplicationName() + " timed out")); //$NON-NLS-1$ //$NON-NLS-2$
+										"Starting of " + cloudModule.getDeployedApplicationName() + " timed out or its instances keep crashing")); //$NON-NLS-1$ //$NON-NLS-2$
 							}
 						}
 						catch (InterruptedException e) {
-							server.setModuleState(getModules(), IServer.STATE_STOPPED);
+							setModuleState(IServer.STATE_STOPPED);
 							throw new OperationCanceledException(Messages.bind(Messages.OPERATION_CANCELED, getRequestLabel()));
 						}
+						getStatistics().end(Stage.START);
 						AbstractAppStateTracker curTracker = CloudFoundryPlugin.getAppStateTracker(
 								RestartOperation.this.getBehaviour().getServer().getServerType().getId(), cloudModule);
 						// Check for cancel
@@ -193,7 +209,7 @@ public class RestartOperation extends ApplicationOperation {
 							curTracker.stopTracking(cloudModule, progress);
 						}
 
-						server.setModuleState(getModules(), IServer.STATE_STARTED);
+						setModuleState(IServer.STATE_STARTED);
 
 						return null;
 					}
@@ -201,13 +217,13 @@ public class RestartOperation extends ApplicationOperation {
 			}
 			else {
 				// User has selected to deploy the app in STOP mode
-				server.setModuleState(getModules(), IServer.STATE_STOPPED);
+				setModuleState(IServer.STATE_STOPPED);
 				subMonitor.worked(80);
 			}
 		}
 		catch (CoreException e) {
 			appModule.setErrorStatus(e);
-			server.setModulePublishState(getModules(), IServer.PUBLISH_STATE_UNKNOWN);
+			setModulePublishState(IServer.PUBLISH_STATE_UNKNOWN);
 			throw e;
 		}
 	}
@@ -22,21 +22,25 @@
 package org.cloudfoundry.ide.eclipse.server.core.internal.client;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.cloudfoundry.client.lib.CloudFoundryOperations;
 import org.cloudfoundry.client.lib.UploadStatusCallback;
 import org.cloudfoundry.client.lib.archive.ApplicationArchive;
+import org.cloudfoundry.client.lib.archive.ApplicationArchive.Entry;
 import org.cloudfoundry.client.lib.domain.CloudApplication;
 import org.cloudfoundry.ide.eclipse.server.core.AbstractApplicationDelegate;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ApplicationAction;
-import org.cloudfoundry.ide.eclipse.server.core.internal.CachingApplicationArchive;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryPlugin;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryServer;
 import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher.HashableArchive;
 import org.cloudfoundry.ide.eclipse.server.core.internal.application.ApplicationRegistry;
 import org.cloudfoundry.ide.eclipse.server.core.internal.application.CloudApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.PushStatistics.Stage;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -120,10 +124,12 @@ public class StartOperation extends RestartOperation {
 			// first.
 			appModule.setErrorStatus(null);
 
-			server.setModuleState(getModules(), IServer.STATE_STARTING);
+			setModuleState(IServer.STATE_STARTING);
 
 			final String deploymentName = appModule.getDeploymentInfo().getDeploymentName();
 
+			appModule.setPushStatistics(getStatistics());
+
 			// This request does three things:
 			// 1. Checks if the application external or mapped to a local
 			// project. If mapped to a local project
@@ -144,9 +150,11 @@ public class StartOperation extends RestartOperation {
 				SubMonitor subMonitor = SubMonitor.convert(monitor, 100);
 
 				subMonitor.subTask(generatingArchiveLabel);
+				getStatistics().begin(Stage.ARCHIVE);
 				ApplicationArchive applicationArchive = getBehaviour().generateApplicationArchiveFile(
 						appModule.getDeploymentInfo(), appModule, getModules(), server, incrementalPublish,
 						subMonitor.newChild(20));
+				getStatistics().end(Stage.ARCHIVE);
 				if (applicationArchive == null) {
 					// An app archive must be always available, so if we reached
 					// this point and we have none
@@ -155,22 +163,31 @@ public class StartOperation extends RestartOperation {
 							"Application archive is not available for application: " + deploymentName)); //$NON-NLS-1$
 				}
 
-				// Tell webtools the module has been published
-				getBehaviour().resetPublishState(getModules());
-
-				// update server publish status
-				IModule[] serverModules = server.getModules();
-				boolean allSynched = true;
-				for (IModule serverModule : serverModules) {
-					int modulePublishState = server.getModulePublishState(new IModule[] { serverModule });
-					if (modulePublishState == IServer.PUBLISH_STATE_INCREMENTAL
-							|| modulePublishState == IServer.PUBLISH_STATE_FULL) {
-						allSynched = false;
-					}
+				// Compute hash codes for resource matching while the
+				// application is checked on the server, rather than after
+				getStatistics().begin(Stage.HASH);
+				if (applicationArchive instanceof HashableArchive) {
+					((HashableArchive) applicationArchive).startHashing();
 				}
 
-				if (allSynched) {
-					server.setServerPublishState(IServer.PUBLISH_STATE_NONE);
+				synchronized (getBehaviour().getServerStateLock()) {
+					// Tell webtools the module has been published
+					getBehaviour().resetPublishState(getModules());
+
+					// update server publish status
+					IModule[] serverModules = server.getModules();
+					boolean allSynched = true;
+					for (IModule serverModule : serverModules) {
+						int modulePublishState = server.getModulePublishState(new IModule[] { serverModule });
+						if (modulePublishState == IServer.PUBLISH_STATE_INCREMENTAL
+								|| modulePublishState == IServer.PUBLISH_STATE_FULL) {
+							allSynched = false;
+						}
+					}
+
+					if (allSynched) {
+						server.setServerPublishState(IServer.PUBLISH_STATE_NONE);
+					}
 				}
 
 				subMonitor.worked(10);
@@ -210,9 +227,35 @@ public class StartOperation extends RestartOperation {
 		}
 		catch (CoreException e) {
 			appModule.setErrorStatus(e);
-			server.setModulePublishState(getModules(), IServer.PUBLISH_STATE_UNKNOWN);
+			setModulePublishState(IServer.PUBLISH_STATE_UNKNOWN);
 			throw e;
 		}
+		finally {
+			printStatistics(appModule);
+		}
+	}
+
+	/**
+	 * Shows the timeline and resource counts of the push in the application
+	 * console, including for failed pushes, so that slow stages can be
+	 * identified.
+	 */
+	protected void printStatistics(CloudFoundryApplicationModule appModule) {
+		PushStatistics statistics = getStatistics();
+		CloudFoundryPlugin.trace("Push statistics for " + appModule.getDeployedApplicationName() + ": " //$NON-NLS-1$ //$NON-NLS-2$
+				+ statistics);
+		if (statistics.getTotalDuration() < 0) {
+			return;
+		}
+		try {
+			getBehaviour().printlnToConsole(appModule, statistics.getTimeline());
+			if (statistics.getTotalFiles() > 0) {
+				getBehaviour().printlnToConsole(appModule, statistics.getResourceSummary());
+			}
+		}
+		catch (CoreException e) {
+			CloudFoundryPlugin.logError(e);
+		}
 	}
 
 	/**
@@ -257,64 +300,34 @@ public class StartOperation extends RestartOperation {
 		try {
 			// Now push the application content.
 			if (applicationArchive != null) {
-				// Handle the incremental publish case separately as it
-				// requires
-				// a partial war file generation of only the changed
-				// resources
-				// AFTER
-				// the server determines the list of missing file names.
-				try {
-					if (applicationArchive instanceof CachingApplicationArchive) {
-						final CachingApplicationArchive cachingArchive = (CachingApplicationArchive) applicationArchive;
-						client.uploadApplication(appName, cachingArchive, new UploadStatusCallback() {
-
-							public void onProcessMatchedResources(int length) {
-
-							}
-
-							public void onMatchedFileNames(Set<String> matchedFileNames) {
-								cachingArchive.generatePartialWarFile(matchedFileNames);
-							}
-
-							public void onCheckResources() {
-
-							}
-
-							public boolean onProgress(String status) {
-								return false;
-							}
-						});
-
-						// Once the application has run, do a clean up of the
-						// sha1
-						// cache for deleted resources
-
+				final PushStatistics statistics = getStatistics();
+
+				// Wait for hash codes still being computed, so that hashing
+				// is recorded separately from resource matching. The file
+				// sizes are kept to look up the sizes of the matched files
+				// without iterating the entries again.
+				Map<String, Long> fileSizes = new HashMap<String, Long>();
+				long totalBytes = 0;
+				for (Entry entry : applicationArchive.getEntries()) {
+					if (!entry.isDirectory()) {
+						long size = Math.max(0, entry.getSize());
+						fileSizes.put(entry.getName(), size);
+						totalBytes += size;
 					}
-					else {
-						client.uploadApplication(appName, applicationArchive, new UploadStatusCallback() {
-
-							public void onProcessMatchedResources(int length) {
-
-							}
-
-							public void onMatchedFileNames(Set<String> matchedFileNames) {
-								// try {
-								// printlnToConsole(appModule, ".", false,
-								// false, monitor);
-								// }
-								// catch (CoreException e) {
-								// CloudFoundryPlugin.logError(e);
-								// }
-							}
-
-							public void onCheckResources() {
+				}
+				statistics.end(Stage.HASH);
+				statistics.setArchiveSize(fileSizes.size(), totalBytes);
 
-							}
+				// The client only uploads the archive entries that the server
+				// reports as missing. For the incremental publish case,
+				// these are streamed directly from the changed resources.
+				try {
+					uploadApplication(client, appModule, appName, applicationArchive, fileSizes, monitor);
 
-							public boolean onProgress(String status) {
-								return false;
-							}
-						});
+					if (CloudFoundryPlugin.getDefault() != null) {
+						// Persist the updated sha1 entries so that they are
+						// available after a restart
+						CloudFoundryPlugin.getDefault().getDeployedResourcesCache().save();
 					}
 					// Check for cancel
 					if (monitor.isCanceled()) {
@@ -346,4 +359,91 @@ public class StartOperation extends RestartOperation {
 		}
 
 	}
+
+	/**
+	 * Uploads the application archive, and attempts the upload again if it
+	 * fails with a transient error, like a connection reset on an unreliable
+	 * network, as decided by the {@link UploadRetryPolicy}. Cloud Foundry has
+	 * no API to resume an interrupted upload, so each attempt matches the
+	 * archive resources on the server again and uploads the resources that
+	 * are still missing. The upload progress is reported to the given
+	 * monitor, and cancelling the monitor aborts an upload in progress.
+	 * @param client
+	 * @param appModule
+	 * @param appName
+	 * @param applicationArchive
+	 * @param fileSizes sizes of the files of the archive, by entry name
+	 * @param monitor
+	 * @throws IOException if the last attempt failed with an I/O error
+	 * @throws CoreException if failed to report the attempts
+	 */
+	protected void uploadApplication(CloudFoundryOperations client, CloudFoundryApplicationModule appModule,
+			String appName, ApplicationArchive applicationArchive, final Map<String, Long> fileSizes,
+			IProgressMonitor monitor) throws IOException, CoreException {
+		final PushStatistics statistics = getStatistics();
+		UploadRetryPolicy retryPolicy = new UploadRetryPolicy();
+
+		for (int attempt = 1;; attempt++) {
+			final UploadProgressArchive uploadArchive = new UploadProgressArchive(applicationArchive, monitor);
+			Exception error = null;
+			try {
+				statistics.begin(Stage.MATCH);
+				client.uploadApplication(appName, uploadArchive, new UploadStatusCallback() {
+
+					public void onProcessMatchedResources(int length) {
+						statistics.setUploadedBytes(length);
+						statistics.begin(Stage.UPLOAD);
+						uploadArchive.beginUpload(length);
+					}
+
+					public void onMatchedFileNames(Set<String> matchedFileNames) {
+						int matchedFiles = 0;
+						long matchedBytes = 0;
+						for (String name : matchedFileNames) {
+							Long size = fileSizes.get(name);
+							if (size != null) {
+								matchedFiles++;
+								matchedBytes += size;
+							}
+						}
+						statistics.setMatched(matchedFiles, matchedBytes);
+					}
+
+					public void onCheckResources() {
+						statistics.end(Stage.MATCH);
+					}
+
+					public boolean onProgress(String status) {
+						return false;
+					}
+				});
+				statistics.end(Stage.UPLOAD);
+				return;
+			}
+			catch (IOException e) {
+				error = e;
+			}
+			catch (RuntimeException e) {
+				error = e;
+			}
+
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException(Messages.bind(Messages.OPERATION_CANCELED, getOperationName()));
+			}
+
+			long interval = retryPolicy.getRetryInterval(error, attempt);
+			if (interval < 0) {
+				if (error instanceof IOException) {
+					throw (IOException) error;
+				}
+				throw (RuntimeException) error;
+			}
+
+			String message = NLS.bind(Messages.CONSOLE_UPLOAD_RETRY, new Object[] { error.getMessage(),
+					interval / 1000, attempt + 1, retryPolicy.getMaxAttempts() });
+			CloudFoundryPlugin.logWarning(message);
+			getBehaviour().printlnToConsole(appModule, message);
+			RequestRetryPolicy.sleep(interval, monitor);
+		}
+	}
 }
@@ -34,7 +34,6 @@ import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
-import org.eclipse.wst.server.core.internal.Server;
 
 @SuppressWarnings("restriction")
 class StopApplicationOperation extends AbstractPublishApplicationOperation {
@@ -54,11 +53,9 @@ class StopApplicationOperation extends AbstractPublishApplicationOperation {
 
 	@Override
 	protected void doApplicationOperation(IProgressMonitor monitor) throws CoreException {
-		Server server = (Server) getBehaviour().getServer();
-
 		boolean succeeded = false;
 		try {
-			server.setModuleState(getModules(), IServer.STATE_STOPPING);
+			setModuleState(IServer.STATE_STOPPING);
 
 			CloudFoundryServer cloudServer = getBehaviour().getCloudFoundryServer();
 
@@ -86,7 +83,7 @@ class StopApplicationOperation extends AbstractPublishApplicationOperation {
 				}
 			}.run(subMonitor.newChild(20));
 
-			server.setModuleState(getModules(), IServer.STATE_STOPPED);
+			setModuleState(IServer.STATE_STOPPED);
 			succeeded = true;
 
 			ServerEventHandler.getDefault().fireServerEvent(
@@ -103,7 +100,7 @@ class StopApplicationOperation extends AbstractPublishApplicationOperation {
 		}
 		finally {
 			if (!succeeded) {
-				server.setModuleState(getModules(), IServer.STATE_UNKNOWN);
+				setModuleState(IServer.STATE_UNKNOWN);
 			}
 		}
 
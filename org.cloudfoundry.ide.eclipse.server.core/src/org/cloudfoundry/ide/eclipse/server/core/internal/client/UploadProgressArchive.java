@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+
+import org.cloudfoundry.client.lib.archive.ApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.Messages;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Application archive that reports the progress of an upload to a progress
+ * monitor. The client streams the contents of the archive entries that are
+ * not matched on the server directly into the upload request, so the bytes
+ * read from the entries once the upload has begun are the bytes uploaded.
+ * <p/>
+ * Reading fails with an {@link InterruptedIOException} once the monitor is
+ * cancelled, which aborts an upload in progress.
+ */
+public class UploadProgressArchive implements ApplicationArchive {
+
+	private final ApplicationArchive archive;
+
+	private final IProgressMonitor monitor;
+
+	private SubMonitor progress;
+
+	private long totalBytes;
+
+	private long uploadedBytes;
+
+	private int reportedKilobytes;
+
+	/**
+	 * 
+	 * @param archive whose entries are uploaded
+	 * @param monitor to report the upload progress to
+	 */
+	public UploadProgressArchive(ApplicationArchive archive, IProgressMonitor monitor) {
+		this.archive = archive;
+		this.monitor = monitor;
+	}
+
+	public String getFilename() {
+		return archive.getFilename();
+	}
+
+	/**
+	 * 
+	 * @return entries of the archive, wrapped as they are iterated, as the
+	 * client iterates over the entries several times during an upload
+	 */
+	public Iterable<Entry> getEntries() {
+		final Iterable<Entry> entries = archive.getEntries();
+		return new Iterable<Entry>() {
+			public Iterator<Entry> iterator() {
+				final Iterator<Entry> iterator = entries.iterator();
+				return new Iterator<Entry>() {
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					public Entry next() {
+						return new ProgressEntry(iterator.next());
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Starts reporting the bytes read from the archive entries as uploaded.
+	 * Bytes read before, for example while matching resources, are not
+	 * reported.
+	 * @param totalBytes total uncompressed size of the entries to upload
+	 */
+	public synchronized void beginUpload(long totalBytes) {
+		this.totalBytes = totalBytes;
+		this.uploadedBytes = 0;
+		this.reportedKilobytes = 0;
+		this.progress = SubMonitor.convert(monitor, (int) Math.min(Integer.MAX_VALUE, totalBytes / 1024));
+	}
+
+	/**
+	 * 
+	 * @return bytes uploaded since the upload began
+	 */
+	public synchronized long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	protected synchronized void read(long bytes) throws IOException {
+		if (monitor != null && monitor.isCanceled()) {
+			throw new InterruptedIOException("Upload cancelled"); //$NON-NLS-1$
+		}
+		if (progress == null || bytes <= 0) {
+			return;
+		}
+		uploadedBytes += bytes;
+		int kilobytes = (int) Math.min(Integer.MAX_VALUE, uploadedBytes / 1024);
+		if (kilobytes > reportedKilobytes) {
+			progress.worked(kilobytes - reportedKilobytes);
+			// Refreshing the label for every kilobyte would flood the UI
+			if (kilobytes / 256 != reportedKilobytes / 256) {
+				progress.subTask(NLS.bind(Messages.UPLOAD_PROGRESS, PushStatistics.formatBytes(uploadedBytes),
+						PushStatistics.formatBytes(totalBytes)));
+			}
+			reportedKilobytes = kilobytes;
+		}
+	}
+
+	protected class ProgressEntry implements Entry {
+
+		private final Entry entry;
+
+		public ProgressEntry(Entry entry) {
+			this.entry = entry;
+		}
+
+		public boolean isDirectory() {
+			return entry.isDirectory();
+		}
+
+		public String getName() {
+			return entry.getName();
+		}
+
+		public long getSize() {
+			return entry.getSize();
+		}
+
+		public byte[] getSha1Digest() {
+			return entry.getSha1Digest();
+		}
+
+		public InputStream getInputStream() throws IOException {
+			InputStream stream = entry.getInputStream();
+			return stream != null ? new ProgressInputStream(stream) : null;
+		}
+	}
+
+	protected class ProgressInputStream extends FilterInputStream {
+
+		public ProgressInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				UploadProgressArchive.this.read(1);
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			UploadProgressArchive.this.read(read);
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			UploadProgressArchive.this.read(skipped);
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal.client;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.file.FileSystemException;
+import java.util.zip.ZipException;
+
+import javax.net.ssl.SSLException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+
+/**
+ * Decides whether a failed application upload is attempted again, and how
+ * long to wait before the next attempt. Only transient errors are retried:
+ * I/O errors such as connection resets and timeouts, which are common on slow
+ * or unreliable networks, and gateway errors from the routers in front of the
+ * cloud controller. Errors that would fail again, like unknown hosts,
+ * certificate errors or client errors, are not retried. Neither are errors
+ * reading the local application files, like missing or unreadable files, or
+ * a corrupt archive.
+ * <p/>
+ * The interval between attempts starts at an initial interval and doubles
+ * after each attempt, up to a maximum interval.
+ */
+public class UploadRetryPolicy {
+
+	private final int maxAttempts;
+
+	private final long initialInterval;
+
+	private final long maxInterval;
+
+	public UploadRetryPolicy() {
+		this(CloudOperationsConstants.UPLOAD_ATTEMPTS, CloudOperationsConstants.UPLOAD_RETRY_INTERVAL,
+				CloudOperationsConstants.UPLOAD_MAX_RETRY_INTERVAL);
+	}
+
+	/**
+	 * 
+	 * @param maxAttempts total number of attempts, including the first one
+	 * @param initialInterval interval in milliseconds before the second
+	 * attempt
+	 * @param maxInterval maximum interval in milliseconds between attempts
+	 */
+	public UploadRetryPolicy(int maxAttempts, long initialInterval, long maxInterval) {
+		this.maxAttempts = maxAttempts;
+		this.initialInterval = initialInterval;
+		this.maxInterval = maxInterval;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * 
+	 * @param error that caused the given attempt to fail
+	 * @param attempt number of the failed attempt, starting at 1
+	 * @return interval in milliseconds to wait before attempting the upload
+	 * again, or -1 if the upload should not be attempted again
+	 */
+	public long getRetryInterval(Throwable error, int attempt) {
+		if (attempt >= maxAttempts || !isTransient(error)) {
+			return -1;
+		}
+		long interval = initialInterval;
+		for (int i = 1; i < attempt && interval < maxInterval; i++) {
+			interval *= 2;
+		}
+		return Math.min(interval, maxInterval);
+	}
+
+	/**
+	 * 
+	 * @param error
+	 * @return true if the given error, or any of its causes, is an error that
+	 * may not occur again in a subsequent attempt
+	 */
+	public boolean isTransient(Throwable error) {
+		boolean isTransient = false;
+		for (Throwable cause = error; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+			if (cause instanceof UnknownHostException || cause instanceof SSLException || isLocalFileError(cause)) {
+				return false;
+			}
+			if (cause instanceof IOException) {
+				isTransient = true;
+			}
+			else if (cause instanceof HttpStatusCodeException) {
+				HttpStatus status = ((HttpStatusCodeException) cause).getStatusCode();
+				isTransient |= status == HttpStatus.BAD_GATEWAY || status == HttpStatus.SERVICE_UNAVAILABLE
+						|| status == HttpStatus.GATEWAY_TIMEOUT;
+			}
+		}
+		return isTransient;
+	}
+
+	/**
+	 * 
+	 * @param error
+	 * @return true if the given error is an error accessing a local file,
+	 * which fails again in a subsequent attempt
+	 */
+	protected boolean isLocalFileError(Throwable error) {
+		return error instanceof FileNotFoundException || error instanceof FileSystemException
+				|| error instanceof ZipException;
+	}
+}
@@ -58,6 +58,8 @@ public abstract class CloudRebelAppHandler implements CloudServerListener {
 
 	private static final String ERROR_NO_APP = "No application module found. Application may no longer exist in the Cloud."; //$NON-NLS-1$
 
+	private ExternalRestTemplate restTemplate;
+
 	abstract public void register();
 
 	/**
@@ -137,7 +139,7 @@ public abstract class CloudRebelAppHandler implements CloudServerListener {
 				headers.set("x-rebel-id", "random"); //$NON-NLS-1$ //$NON-NLS-2$
 
 				HttpEntity<Object> requestEntity = new HttpEntity<Object>(headers);
-				ResponseEntity<String> responseEntity = new ExternalRestTemplate().exchange(url, HttpMethod.POST,
+				ResponseEntity<String> responseEntity = getRestTemplate().exchange(url, HttpMethod.POST,
 						requestEntity, String.class);
 
 				return responseEntity != null && responseEntity.getHeaders() != null
@@ -154,6 +156,17 @@ public abstract class CloudRebelAppHandler implements CloudServerListener {
 		return false;
 	}
 
+	/**
+	 * 
+	 * @return rest template reused for all requests sent to remoting agents
+	 */
+	protected synchronized ExternalRestTemplate getRestTemplate() {
+		if (restTemplate == null) {
+			restTemplate = new ExternalRestTemplate();
+		}
+		return restTemplate;
+	}
+
 	@Override
 	public void serverChanged(CloudServerEvent event) {
 
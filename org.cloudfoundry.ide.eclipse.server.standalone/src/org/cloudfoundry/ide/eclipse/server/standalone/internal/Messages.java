@@ -29,8 +29,6 @@ public class Messages extends NLS {
 
 	public static String JavaCloudFoundryArchiver_ERROR_CREATE_PACKAGED_FILE;
 
-	public static String JavaCloudFoundryArchiver_ERROR_CREATE_TEMP_DIR;
-
 	public static String JavaCloudFoundryArchiver_ERROR_JAVA_APP_PACKAGE;
 
 	public static String JavaCloudFoundryArchiver_ERROR_NO_JAVA_PROJ_RESOLVED;
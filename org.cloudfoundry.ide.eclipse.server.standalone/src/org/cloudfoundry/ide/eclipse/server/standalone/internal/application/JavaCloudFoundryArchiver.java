@@ -25,6 +25,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.zip.ZipFile;
@@ -33,11 +35,10 @@ import org.cloudfoundry.client.lib.archive.ApplicationArchive;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryProjectUtil;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryServer;
-import org.cloudfoundry.ide.eclipse.server.core.internal.application.CloudZipApplicationArchive;
+import org.cloudfoundry.ide.eclipse.server.core.internal.application.CachingZipApplicationArchive;
 import org.cloudfoundry.ide.eclipse.server.core.internal.application.JavaWebApplicationDelegate;
 import org.cloudfoundry.ide.eclipse.server.core.internal.client.CloudFoundryApplicationModule;
 import org.cloudfoundry.ide.eclipse.server.standalone.internal.Messages;
-import org.cloudfoundry.ide.eclipse.server.ui.internal.CloudUiUtil;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -55,9 +56,6 @@ import org.eclipse.jdt.ui.jarpackager.IJarBuilder;
 import org.eclipse.jdt.ui.jarpackager.IJarExportRunnable;
 import org.eclipse.jdt.ui.jarpackager.JarPackageData;
 import org.eclipse.osgi.util.NLS;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.Shell;
-import org.eclipse.wst.server.core.IModule;
 import org.springframework.boot.loader.tools.Libraries;
 import org.springframework.boot.loader.tools.Library;
 import org.springframework.boot.loader.tools.LibraryCallback;
@@ -119,118 +117,152 @@ public class JavaCloudFoundryArchiver {
 				handleApplicationDeploymentFailure(Messages.JavaCloudFoundryArchiver_ERROR_NO_PACKAGE_FRAG_ROOTS);
 			}
 
-			JarPackageData jarPackageData = getJarPackageData(roots, mainType,
-					monitor);
-
 			boolean isBoot = CloudFoundryProjectUtil
 					.isSpringBoot(appModule);
 
 			// Search for existing MANIFEST.MF
 			IFile metaFile = getManifest(roots, javaProject);
 
-			// Only use existing manifest files for non-Spring boot, as Spring
-			// boot repackager will
-			// generate it own manifest file.
-			if (!isBoot && metaFile != null) {
-				// If it is not a boot project, use a standard library jar
-				// builder
-				jarPackageData.setJarBuilder(getDefaultLibJarBuilder());
-
-				jarPackageData.setManifestLocation(metaFile.getFullPath());
-				jarPackageData.setSaveManifest(false);
-				jarPackageData.setGenerateManifest(false);
-				// Check manifest accessibility through the jar package data
-				// API
-				// to verify the packaging won't fail
-				if (!jarPackageData.isManifestAccessible()) {
-					handleApplicationDeploymentFailure(NLS
-							.bind(Messages.JavaCloudFoundryArchiver_ERROR_MANIFEST_NOT_ACCESSIBLE,
-									metaFile.getLocation().toString()));
-				}
-
-				InputStream inputStream = null;
-				try {
-
-					inputStream = new FileInputStream(metaFile.getLocation()
-							.toFile());
-					Manifest manifest = new Manifest(inputStream);
-					Attributes att = manifest.getMainAttributes();
-					if (att.getValue("Main-Class") == null) { //$NON-NLS-1$
-						handleApplicationDeploymentFailure(Messages.JavaCloudFoundryArchiver_ERROR_NO_MAIN_CLASS_IN_MANIFEST);
-					}
-				} catch (FileNotFoundException e) {
-					handleApplicationDeploymentFailure(NLS
-							.bind(Messages.JavaCloudFoundryArchiver_ERROR_FAILED_READ_MANIFEST,
-									e.getLocalizedMessage()));
-
-				} catch (IOException e) {
-					handleApplicationDeploymentFailure(NLS
-							.bind(Messages.JavaCloudFoundryArchiver_ERROR_FAILED_READ_MANIFEST,
-									e.getLocalizedMessage()));
-
-				} finally {
-
-					if (inputStream != null) {
-						try {
-							inputStream.close();
-
-						} catch (IOException io) {
-							// Ignore
-						}
-					}
+			// Reuse the jar packaged for a previous push if none of the
+			// packaging inputs have changed
+			PackagedApplicationCache packageCache = PackagedApplicationCache
+					.getCache(appModule.getLocalModule());
+			String fingerprint = PackagedApplicationCache.getFingerprint(
+					javaProject, roots, mainType, !isBoot ? metaFile : null,
+					isBoot);
+
+			synchronized (packageCache.getLock()) {
+				if (packageCache.isUpToDate(fingerprint)) {
+					packagedFile = packageCache.getPackagedFile(fingerprint);
+				} else {
+					packagedFile = createPackagedFile(javaProject, roots,
+							mainType, metaFile, isBoot,
+							packageCache.getPackagedFile(fingerprint), monitor);
+					packageCache.packaged(fingerprint);
 				}
-
-			} else {
-				// Otherwise generate a manifest file. Note that manifest files
-				// are only generated in the temporary jar meant only for
-				// deployment.
-				// The associated Java project is no modified.
-				jarPackageData.setGenerateManifest(true);
-
-				// This ensures that folders in output folders appear at root
-				// level
-				// Example: src/main/resources, which is in the project's
-				// classpath, contains non-Java templates folder and
-				// has output folder target/classes. If not exporting output
-				// folder,
-				// templates will be packaged in the jar using this path:
-				// resources/templates
-				// This may cause problems with the application's dependencies
-				// if they are looking for just /templates at top level of the
-				// jar
-				// If exporting output folders, templates folder will be
-				// packaged at top level in the jar.
-				jarPackageData.setExportOutputFolders(true);
 			}
 
+			// At this stage a packaged file should have been created or found
 			try {
-				packagedFile = packageApplication(jarPackageData, monitor);
-			} catch (CoreException e) {
+				archive = new CachingZipApplicationArchive(new ZipFile(
+						packagedFile), getLibraries(roots));
+			} catch (IOException ioe) {
 				handleApplicationDeploymentFailure(NLS
-						.bind(Messages.JavaCloudFoundryArchiver_ERROR_JAVA_APP_PACKAGE,
-								e.getMessage()));
+						.bind(Messages.JavaCloudFoundryArchiver_ERROR_CREATE_CF_ARCHIVE,
+								ioe.getMessage()));
 			}
+		}
 
-			if (packagedFile == null || !packagedFile.exists()) {
-				handleApplicationDeploymentFailure(Messages.JavaCloudFoundryArchiver_ERROR_NO_PACKAGED_FILE_CREATED);
-			}
+		return archive;
+	}
 
-			if (isBoot) {
-				bootRepackage(roots, packagedFile);
+	/**
+	 * Packages the application into the given jar file, and repackages it as
+	 * a Spring Boot jar if necessary.
+	 * 
+	 * @return packaged jar file
+	 * @throws CoreException
+	 *             if the application could not be packaged
+	 */
+	protected File createPackagedFile(IJavaProject javaProject,
+			IPackageFragmentRoot[] roots, IType mainType, IFile metaFile,
+			boolean isBoot, File jarFile, IProgressMonitor monitor)
+			throws CoreException {
+		JarPackageData jarPackageData = getJarPackageData(roots, mainType,
+				jarFile, monitor);
+
+		// Only use existing manifest files for non-Spring boot, as Spring
+		// boot repackager will
+		// generate it own manifest file.
+		if (!isBoot && metaFile != null) {
+			// If it is not a boot project, use a standard library jar
+			// builder
+			jarPackageData.setJarBuilder(getDefaultLibJarBuilder());
+
+			jarPackageData.setManifestLocation(metaFile.getFullPath());
+			jarPackageData.setSaveManifest(false);
+			jarPackageData.setGenerateManifest(false);
+			// Check manifest accessibility through the jar package data
+			// API
+			// to verify the packaging won't fail
+			if (!jarPackageData.isManifestAccessible()) {
+				handleApplicationDeploymentFailure(NLS
+						.bind(Messages.JavaCloudFoundryArchiver_ERROR_MANIFEST_NOT_ACCESSIBLE,
+								metaFile.getLocation().toString()));
 			}
 
-			// At this stage a packaged file should have been created or found
+			InputStream inputStream = null;
 			try {
-				archive = new CloudZipApplicationArchive(new ZipFile(
-						packagedFile));
-			} catch (IOException ioe) {
+
+				inputStream = new FileInputStream(metaFile.getLocation()
+						.toFile());
+				Manifest manifest = new Manifest(inputStream);
+				Attributes att = manifest.getMainAttributes();
+				if (att.getValue("Main-Class") == null) { //$NON-NLS-1$
+					handleApplicationDeploymentFailure(Messages.JavaCloudFoundryArchiver_ERROR_NO_MAIN_CLASS_IN_MANIFEST);
+				}
+			} catch (FileNotFoundException e) {
 				handleApplicationDeploymentFailure(NLS
-						.bind(Messages.JavaCloudFoundryArchiver_ERROR_CREATE_CF_ARCHIVE,
-								ioe.getMessage()));
+						.bind(Messages.JavaCloudFoundryArchiver_ERROR_FAILED_READ_MANIFEST,
+								e.getLocalizedMessage()));
+
+			} catch (IOException e) {
+				handleApplicationDeploymentFailure(NLS
+						.bind(Messages.JavaCloudFoundryArchiver_ERROR_FAILED_READ_MANIFEST,
+								e.getLocalizedMessage()));
+
+			} finally {
+
+				if (inputStream != null) {
+					try {
+						inputStream.close();
+
+					} catch (IOException io) {
+						// Ignore
+					}
+				}
 			}
+
+		} else {
+			// Otherwise generate a manifest file. Note that manifest files
+			// are only generated in the temporary jar meant only for
+			// deployment.
+			// The associated Java project is no modified.
+			jarPackageData.setGenerateManifest(true);
+
+			// This ensures that folders in output folders appear at root
+			// level
+			// Example: src/main/resources, which is in the project's
+			// classpath, contains non-Java templates folder and
+			// has output folder target/classes. If not exporting output
+			// folder,
+			// templates will be packaged in the jar using this path:
+			// resources/templates
+			// This may cause problems with the application's dependencies
+			// if they are looking for just /templates at top level of the
+			// jar
+			// If exporting output folders, templates folder will be
+			// packaged at top level in the jar.
+			jarPackageData.setExportOutputFolders(true);
 		}
 
-		return archive;
+		File packagedFile = null;
+		try {
+			packagedFile = packageApplication(jarPackageData, monitor);
+		} catch (CoreException e) {
+			handleApplicationDeploymentFailure(NLS
+					.bind(Messages.JavaCloudFoundryArchiver_ERROR_JAVA_APP_PACKAGE,
+							e.getMessage()));
+		}
+
+		if (packagedFile == null || !packagedFile.exists()) {
+			handleApplicationDeploymentFailure(Messages.JavaCloudFoundryArchiver_ERROR_NO_PACKAGED_FILE_CREATED);
+		}
+
+		if (isBoot) {
+			bootRepackage(roots, packagedFile);
+		}
+		return packagedFile;
 	}
 
 	/**
@@ -309,6 +341,24 @@ public class JavaCloudFoundryArchiver {
 		return new JavaPackageFragmentRootHandler(javaProject, cloudServer);
 	}
 
+	/**
+	 * 
+	 * @param roots
+	 * @return local library jars that are packaged with the application
+	 */
+	protected List<File> getLibraries(IPackageFragmentRoot[] roots) {
+		List<File> libraries = new ArrayList<File>();
+		for (IPackageFragmentRoot root : roots) {
+			if (root.isArchive()) {
+				File rootFile = new File(root.getPath().toOSString());
+				if (rootFile.exists()) {
+					libraries.add(rootFile);
+				}
+			}
+		}
+		return libraries;
+	}
+
 	protected void bootRepackage(final IPackageFragmentRoot[] roots,
 			File packagedFile) throws CoreException {
 		Repackager bootRepackager = new Repackager(packagedFile);
@@ -317,17 +367,9 @@ public class JavaCloudFoundryArchiver {
 
 				public void doWithLibraries(LibraryCallback callBack)
 						throws IOException {
-					for (IPackageFragmentRoot root : roots) {
-
-						if (root.isArchive()) {
-
-							File rootFile = new File(root.getPath()
-									.toOSString());
-							if (rootFile.exists()) {
-								callBack.library(new Library(rootFile,
-										LibraryScope.COMPILE));
-							}
-						}
+					for (File rootFile : getLibraries(roots)) {
+						callBack.library(new Library(rootFile,
+								LibraryScope.COMPILE));
 					}
 				}
 			});
@@ -339,15 +381,14 @@ public class JavaCloudFoundryArchiver {
 	}
 
 	protected JarPackageData getJarPackageData(IPackageFragmentRoot[] roots,
-			IType mainType, IProgressMonitor monitor) throws CoreException {
-
-		String filePath = getTempJarPath(appModule.getLocalModule());
+			IType mainType, File jarFile, IProgressMonitor monitor)
+			throws CoreException {
 
-		if (filePath == null) {
+		if (jarFile == null) {
 			handleApplicationDeploymentFailure();
 		}
 
-		IPath location = new Path(filePath);
+		IPath location = new Path(jarFile.getAbsolutePath());
 
 		// Note that if no jar builder is specified in the package data
 		// then a default one is used internally by the data that does NOT
@@ -377,48 +418,41 @@ public class JavaCloudFoundryArchiver {
 		final SubMonitor subProgress = SubMonitor
 				.convert(monitor, progressWork);
 
-		final File[] createdFile = new File[1];
-
-		final CoreException[] error = new CoreException[1];
-		Display.getDefault().syncExec(new Runnable() {
-
-			@Override
-			public void run() {
-				try {
-
-					Shell shell = CloudUiUtil.getShell();
+		// Package in the calling thread, without a parent shell, so that
+		// packaging does not block the UI and several applications can be
+		// packaged concurrently. JarPackageData.createJarExportRunnable
+		// documents a null parent as "no questions should be asked and
+		// dialogs should not be shown". The paths of the JDT jar export that
+		// use the shell were checked, and none of them reach the Display:
+		// - JarFileExportOperation only passes the shell to the jar builder,
+		// and uses it to ask before overwriting a saved manifest or jar
+		// description, neither of which is saved here.
+		// - The jar builders (FatJarRsrcUrlBuilder and the default plain
+		// builder) pass it to their jar writer, which uses it in
+		// JarPackagerUtil.askForOverwritePermission and askToCreateDirectory.
+		// Both return false for a null shell, rather than opening a dialog.
+		// Overwriting is allowed below, and the archive store always creates
+		// the folder of the jar, so neither question is asked. If the jar is
+		// not written anyway, packaging fails as the file does not exist.
+		packageData.setOverwrite(true);
+		IJarExportRunnable runnable = packageData
+				.createJarExportRunnable(null);
+		try {
+			runnable.run(subProgress);
 
-					IJarExportRunnable runnable = packageData
-							.createJarExportRunnable(shell);
-					try {
-						runnable.run(subProgress);
-
-						File file = new File(packageData.getJarLocation()
-								.toString());
-						if (!file.exists()) {
-							handleApplicationDeploymentFailure();
-						} else {
-							createdFile[0] = file;
-						}
-
-					} catch (InvocationTargetException e) {
-						throw CloudErrorUtil.toCoreException(e);
-					} catch (InterruptedException ie) {
-						throw CloudErrorUtil.toCoreException(ie);
-					} finally {
-						subProgress.done();
-					}
-				} catch (CoreException e) {
-					error[0] = e;
-				}
+			File file = new File(packageData.getJarLocation().toString());
+			if (!file.exists()) {
+				handleApplicationDeploymentFailure();
 			}
-
-		});
-		if (error[0] != null) {
-			throw error[0];
+			return file;
+
+		} catch (InvocationTargetException e) {
+			throw CloudErrorUtil.toCoreException(e);
+		} catch (InterruptedException ie) {
+			throw CloudErrorUtil.toCoreException(ie);
+		} finally {
+			subProgress.done();
 		}
-
-		return createdFile[0];
 	}
 
 	protected void handleApplicationDeploymentFailure(String errorMessage)
@@ -435,31 +469,4 @@ public class JavaCloudFoundryArchiver {
 	protected void handleApplicationDeploymentFailure() throws CoreException {
 		handleApplicationDeploymentFailure(null);
 	}
-
-	public static String getTempJarPath(IModule module) throws CoreException {
-		try {
-			File tempFolder = File.createTempFile("tempFolderForJavaAppJar", //$NON-NLS-1$
-					null);
-			tempFolder.delete();
-			tempFolder.mkdirs();
-
-			if (!tempFolder.exists()) {
-				throw CloudErrorUtil
-						.toCoreException(NLS
-								.bind(Messages.JavaCloudFoundryArchiver_ERROR_CREATE_TEMP_DIR,
-										tempFolder.getPath()));
-			}
-
-			File targetFile = new File(tempFolder, module.getName() + ".jar"); //$NON-NLS-1$
-			targetFile.deleteOnExit();
-
-			String path = new Path(targetFile.getAbsolutePath()).toString();
-
-			return path;
-
-		} catch (IOException io) {
-			CloudErrorUtil.toCoreException(io);
-		}
-		return null;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.standalone.internal.application;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.ArchiveStore;
+import org.cloudfoundry.ide.eclipse.server.core.internal.CloudErrorUtil;
+import org.cloudfoundry.ide.eclipse.server.core.internal.FileStat;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.wst.server.core.IModule;
+
+/**
+ * Keeps the packaged jar of a Java application between pushes in the
+ * {@link ArchiveStore}, together with a fingerprint of the inputs it was
+ * packaged from: the names, sizes and modification times of the files in the
+ * application's package fragment roots and their output folders, library
+ * jars, the manifest, and the packaging options. If the inputs have not
+ * changed since the jar was packaged, the jar can be pushed again as is,
+ * without packaging or repackaging the application.
+ * <p/>
+ * Each jar is kept in a folder named after its fingerprint, so that a jar
+ * that is still being pushed is never overwritten by the packaging of a newer
+ * version of the application. A fingerprint is not available if any input was
+ * modified so recently that a subsequent modification may not be visible in
+ * its modification time, in which case the jar is packaged in a temporary
+ * location of the store.
+ */
+public class PackagedApplicationCache {
+
+	private static final String PACKAGES_FOLDER = "packages"; //$NON-NLS-1$
+
+	private static final int FINGERPRINT_VERSION = 1;
+
+	private final ArchiveStore store;
+
+	private final File folder;
+
+	private final String jarName;
+
+	/**
+	 * 
+	 * @param store
+	 *            archive store that keeps the packaged jars
+	 * @param folder
+	 *            entry of the store where packaged jars of the application
+	 *            are kept
+	 * @param jarName
+	 *            file name of the packaged jar
+	 */
+	public PackagedApplicationCache(ArchiveStore store, File folder,
+			String jarName) {
+		this.store = store;
+		this.folder = folder;
+		this.jarName = jarName;
+	}
+
+	/**
+	 * 
+	 * @param module
+	 * @return cache of the packaged jar of the given module, in the default
+	 *         archive store.
+	 * @throws CoreException
+	 *             if no folder can be created for the packaged jar
+	 */
+	public static PackagedApplicationCache getCache(IModule module)
+			throws CoreException {
+		ArchiveStore store = ArchiveStore.getDefault();
+		return new PackagedApplicationCache(store, store.getFolder(
+				PACKAGES_FOLDER, module), module.getName() + ".jar"); //$NON-NLS-1$
+	}
+
+	/**
+	 * 
+	 * @return lock that must be held while checking for and packaging jars,
+	 *         so that concurrent pushes of the same application do not package
+	 *         it into the same location.
+	 */
+	public Object getLock() {
+		return store.getLock(folder);
+	}
+
+	/**
+	 * 
+	 * @param fingerprint
+	 *            fingerprint of the packaging inputs, or null if not available
+	 * @return location where a jar packaged from inputs with the given
+	 *         fingerprint is kept. A new temporary location if the fingerprint
+	 *         is null.
+	 * @throws CoreException
+	 *             if the folder of the jar cannot be created
+	 */
+	public File getPackagedFile(String fingerprint) throws CoreException {
+		return store.getArchive(folder, fingerprint, jarName);
+	}
+
+	/**
+	 * 
+	 * @param fingerprint
+	 *            fingerprint of the current packaging inputs. May be null.
+	 * @return true if a jar was completely packaged from inputs with the given
+	 *         fingerprint.
+	 */
+	public boolean isUpToDate(String fingerprint) {
+		return store.isComplete(folder, fingerprint, jarName);
+	}
+
+	/**
+	 * Records that the jar for the given fingerprint was completely packaged,
+	 * and deletes jars packaged from older inputs.
+	 * 
+	 * @param fingerprint
+	 *            may be null, in which case the jar will be packaged again on
+	 *            the next push.
+	 */
+	public void packaged(String fingerprint) {
+		store.complete(folder, fingerprint);
+	}
+
+	/**
+	 * 
+	 * @param javaProject
+	 * @param roots
+	 *            package fragment roots that are packaged
+	 * @param mainType
+	 * @param manifest
+	 *            user defined manifest, or null if the manifest is generated
+	 * @param isBoot
+	 *            true if the jar is repackaged as a Spring Boot jar
+	 * @return fingerprint of the packaging inputs, or null if an input was
+	 *         modified too recently for the fingerprint to be reliable.
+	 * @throws CoreException
+	 */
+	public static String getFingerprint(IJavaProject javaProject,
+			IPackageFragmentRoot[] roots, IType mainType, IFile manifest,
+			boolean isBoot) throws CoreException {
+		Fingerprint fingerprint = new Fingerprint();
+		fingerprint.add(String.valueOf(FINGERPRINT_VERSION));
+		fingerprint.add(mainType != null ? mainType.getFullyQualifiedName()
+				: null);
+		fingerprint.add(String.valueOf(isBoot));
+		if (manifest != null) {
+			fingerprint.addFile(manifest.getLocation());
+		}
+		for (IPackageFragmentRoot root : roots) {
+			fingerprint.add(root.getPath().toString());
+			if (root.isArchive()) {
+				IResource resource = root.getResource();
+				fingerprint.addFile(resource != null ? resource.getLocation()
+						: root.getPath());
+			} else {
+				IResource resource = root.getResource();
+				if (resource != null) {
+					fingerprint.addFile(resource.getLocation());
+				}
+				IClasspathEntry entry = root.getRawClasspathEntry();
+				IPath output = entry != null ? entry.getOutputLocation()
+						: null;
+				if (output == null) {
+					output = javaProject.getOutputLocation();
+				}
+				IResource outputFolder = ResourcesPlugin.getWorkspace()
+						.getRoot().findMember(output);
+				if (outputFolder != null) {
+					fingerprint.addFile(outputFolder.getLocation());
+				}
+			}
+		}
+		return fingerprint.getValue();
+	}
+
+	static class Fingerprint {
+
+		private final long startTime = System.currentTimeMillis();
+
+		private final MessageDigest digest;
+
+		private long newestModification;
+
+		Fingerprint() throws CoreException {
+			try {
+				digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			} catch (NoSuchAlgorithmException e) {
+				throw CloudErrorUtil.toCoreException(e);
+			}
+		}
+
+		void add(String value) {
+			try {
+				digest.update(String.valueOf(value).getBytes("UTF-8")); //$NON-NLS-1$
+				digest.update((byte) 0);
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Adds the file, or all files in the folder, at the given location
+		 */
+		void addFile(IPath location) {
+			if (location == null) {
+				add(null);
+				return;
+			}
+			File file = location.toFile();
+			add(new Path(file.getAbsolutePath()).toString());
+			addFile(file);
+		}
+
+		private void addFile(File file) {
+			if (file.isDirectory()) {
+				String[] names = file.list();
+				if (names != null) {
+					Arrays.sort(names);
+					for (String name : names) {
+						add(name);
+						addFile(new File(file, name));
+					}
+				}
+			} else {
+				long lastModified = file.lastModified();
+				newestModification = Math.max(newestModification,
+						lastModified);
+				add(String.valueOf(file.length()));
+				add(String.valueOf(lastModified));
+			}
+		}
+
+		String getValue() {
+			if (new FileStat(newestModification, 0, null).isRacy(startTime)) {
+				return null;
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(
+						Character.forDigit(b & 0xf, 16));
+			}
+			return hex.toString();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.framework.TestCase;
+
+public class AdaptiveZipOutputStreamTest extends TestCase {
+
+	private int opened;
+
+	public void testCompressedExtensionIsNotCompressed() throws Exception {
+		byte[] text = getText(1000);
+		ZipInputStream zip = write(Deflater.DEFAULT_COMPRESSION, new String[] { "WEB-INF/lib/lib.jar",
+				"WEB-INF/classes/a.txt" }, new byte[][] { text, text });
+
+		assertEntry(zip, "WEB-INF/lib/lib.jar", false, text);
+		assertEntry(zip, "WEB-INF/classes/a.txt", true, text);
+		assertNull(zip.getNextEntry());
+	}
+
+	public void testIncompressibleSampleIsNotCompressed() throws Exception {
+		byte[] random = new byte[AdaptiveZipOutputStream.SAMPLE_SIZE * 2];
+		new Random(1).nextBytes(random);
+		byte[] text = getText(AdaptiveZipOutputStream.SAMPLE_SIZE * 2);
+		ZipInputStream zip = write(Deflater.DEFAULT_COMPRESSION, new String[] { "data.bin", "data.txt" },
+				new byte[][] { random, text });
+
+		assertEntry(zip, "data.bin", false, random);
+		assertEntry(zip, "data.txt", true, text);
+	}
+
+	public void testShortEntryIsCompressed() throws Exception {
+		byte[] text = getText(100);
+		ZipInputStream zip = write(Deflater.DEFAULT_COMPRESSION, new String[] { "a.txt" }, new byte[][] { text });
+
+		assertEntry(zip, "a.txt", true, text);
+	}
+
+	public void testContentsAreOpenedOnce() throws Exception {
+		byte[] random = new byte[AdaptiveZipOutputStream.SAMPLE_SIZE * 2];
+		new Random(1).nextBytes(random);
+		byte[] text = getText(AdaptiveZipOutputStream.SAMPLE_SIZE + 10);
+		write(Deflater.DEFAULT_COMPRESSION, new String[] { "lib.jar", "data.bin", "data.txt", "a.txt" },
+				new byte[][] { random, random, text, getText(10) });
+
+		assertEquals(4, opened);
+	}
+
+	public void testNoCompression() throws Exception {
+		byte[] text = getText(1000);
+		ZipInputStream zip = write(Deflater.NO_COMPRESSION, new String[] { "a.txt" }, new byte[][] { text });
+
+		assertEntry(zip, "a.txt", false, text);
+	}
+
+	protected ZipInputStream write(int level, String[] names, final byte[][] contents) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		AdaptiveZipOutputStream out = new AdaptiveZipOutputStream(bytes, level);
+		for (int i = 0; i < names.length; i++) {
+			final byte[] content = contents[i];
+			out.writeEntry(new ZipEntry(names[i]), new AdaptiveZipOutputStream.EntryContents() {
+				public InputStream open() {
+					opened++;
+					return new ByteArrayInputStream(content);
+				}
+			});
+		}
+		out.close();
+		return new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	protected void assertEntry(ZipInputStream zip, String name, boolean compressed, byte[] content)
+			throws Exception {
+		ZipEntry entry = zip.getNextEntry();
+		assertNotNull(entry);
+		assertEquals(name, entry.getName());
+		assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = zip.read(buffer)) != -1) {
+			read.write(buffer, 0, n);
+		}
+		assertTrue(Arrays.equals(content, read.toByteArray()));
+		// Sizes are known once the entry is read
+		assertEquals(compressed, entry.getCompressedSize() < entry.getSize());
+	}
+
+	protected byte[] getText(int length) {
+		StringBuilder text = new StringBuilder();
+		while (text.length() < length) {
+			text.append("Cloud Foundry application resource. ");
+		}
+		return text.substring(0, length).getBytes();
+	}
+}
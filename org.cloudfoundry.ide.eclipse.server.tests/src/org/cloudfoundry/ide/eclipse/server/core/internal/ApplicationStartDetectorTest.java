@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.client.lib.ApplicationLogListener;
+import org.cloudfoundry.client.lib.CloudFoundryOperations;
+import org.cloudfoundry.client.lib.NotFinishedStagingException;
+import org.cloudfoundry.client.lib.domain.ApplicationLog;
+import org.cloudfoundry.client.lib.domain.ApplicationLog.MessageType;
+import org.cloudfoundry.client.lib.domain.CloudApplication;
+import org.cloudfoundry.client.lib.domain.InstanceState;
+import org.cloudfoundry.client.lib.domain.InstancesInfo;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.ApplicationStartDetector;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.springframework.http.HttpStatus;
+
+public class ApplicationStartDetectorTest extends TestCase {
+
+	private static final long TIMEOUT = 10 * 1000;
+
+	private static final Object STAGING = new Object();
+
+	public void testWaitsForStagingAndAllInstances() throws Exception {
+		TestClient client = new TestClient(STAGING, instances(InstanceState.STARTING, InstanceState.STARTING),
+				instances(InstanceState.RUNNING, InstanceState.STARTING),
+				instances(InstanceState.RUNNING, InstanceState.RUNNING));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1, 5);
+
+		assertTrue(detector.waitForStart(TIMEOUT, new NullProgressMonitor()));
+		assertEquals(4, detector.getPollCount());
+	}
+
+	public void testFlappingInstanceEndsWait() throws Exception {
+		TestClient client = new TestClient(instances(InstanceState.RUNNING, InstanceState.FLAPPING,
+				InstanceState.STARTING));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1, 5);
+
+		assertFalse(detector.waitForStart(TIMEOUT, new NullProgressMonitor()));
+		assertEquals(1, detector.getPollCount());
+	}
+
+	public void testRunningAndCrashedInstancesAreWaitedFor() throws Exception {
+		// A crashed instance is restarted while the others run
+		TestClient client = new TestClient(instances(InstanceState.RUNNING, InstanceState.CRASHED),
+				instances(InstanceState.RUNNING, InstanceState.STARTING),
+				instances(InstanceState.RUNNING, InstanceState.RUNNING));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1, 5);
+
+		assertTrue(detector.waitForStart(TIMEOUT, new NullProgressMonitor()));
+		assertEquals(3, detector.getPollCount());
+	}
+
+	public void testRunningAndCrashedInstancesTimeout() throws Exception {
+		TestClient client = new TestClient(instances(InstanceState.RUNNING, InstanceState.CRASHED));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1, 5);
+
+		assertFalse(detector.waitForStart(100, new NullProgressMonitor()));
+		assertTrue(detector.getPollCount() > 1);
+	}
+
+	public void testCrashedInstancesAreWaitedFor() throws Exception {
+		// Crashed instances are restarted until they run or keep crashing
+		TestClient client = new TestClient(instances(InstanceState.CRASHED, InstanceState.CRASHED),
+				instances(InstanceState.RUNNING, InstanceState.STARTING),
+				instances(InstanceState.RUNNING, InstanceState.RUNNING));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1, 5);
+
+		assertTrue(detector.waitForStart(TIMEOUT, new NullProgressMonitor()));
+		assertEquals(3, detector.getPollCount());
+	}
+
+	public void testTimeout() throws Exception {
+		TestClient client = new TestClient(instances(InstanceState.STARTING));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1, 5);
+
+		assertFalse(detector.waitForStart(100, new NullProgressMonitor()));
+		assertTrue(detector.getPollCount() > 1);
+	}
+
+	public void testStartMarkerTriggersPoll() throws Exception {
+		TestClient client = new TestClient(instances(InstanceState.STARTING), instances(InstanceState.RUNNING));
+		// Without a start marker, the instances would only be polled again
+		// after the timeout
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", TIMEOUT * 2,
+				TIMEOUT * 2);
+
+		client.logOnPoll = new ApplicationLog("app", "Staging complete", new Date(), MessageType.STDOUT, "STG", "0");
+		long start = System.currentTimeMillis();
+		assertTrue(detector.waitForStart(TIMEOUT, new NullProgressMonitor()));
+		assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+		assertEquals(2, detector.getPollCount());
+	}
+
+	public void testCancel() throws Exception {
+		TestClient client = new TestClient(instances(InstanceState.STARTING));
+		ApplicationStartDetector detector = new ApplicationStartDetector(client.getProxy(), "app", 1000, 1000);
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+
+		try {
+			detector.waitForStart(TIMEOUT, monitor);
+			fail("Expected InterruptedException");
+		}
+		catch (InterruptedException e) {
+			// Expected
+		}
+	}
+
+	protected static InstancesInfo instances(InstanceState... states) {
+		List<Map<String, Object>> attributes = new ArrayList<Map<String, Object>>();
+		for (int i = 0; i < states.length; i++) {
+			Map<String, Object> instance = new HashMap<String, Object>();
+			instance.put("index", i);
+			instance.put("state", states[i].name());
+			attributes.add(instance);
+		}
+		return new InstancesInfo(attributes);
+	}
+
+	/**
+	 * Client stub returning the given instances, or throwing a staging error
+	 * for {@link #STAGING}, on successive polls. The last instances are
+	 * returned for all further polls.
+	 */
+	static class TestClient implements InvocationHandler {
+
+		private final LinkedList<Object> polls = new LinkedList<Object>();
+
+		private ApplicationLogListener listener;
+
+		/**
+		 * Logged once to the log listener while the instances are polled for
+		 * the first time, if not null
+		 */
+		ApplicationLog logOnPoll;
+
+		TestClient(Object... polls) {
+			for (Object poll : polls) {
+				this.polls.add(poll);
+			}
+		}
+
+		CloudFoundryOperations getProxy() {
+			return (CloudFoundryOperations) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { CloudFoundryOperations.class }, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("streamLogs")) {
+				listener = (ApplicationLogListener) args[1];
+				return null;
+			}
+			else if (name.equals("getApplication")) {
+				return new CloudApplication(null, (String) args[0]);
+			}
+			else if (name.equals("getApplicationInstances")) {
+				if (logOnPoll != null && listener != null) {
+					listener.onMessage(logOnPoll);
+					logOnPoll = null;
+				}
+				Object poll = polls.size() > 1 ? polls.removeFirst() : polls.getFirst();
+				if (poll == STAGING) {
+					throw new NotFinishedStagingException(HttpStatus.BAD_REQUEST, "Staging in progress");
+				}
+				return poll;
+			}
+			throw new UnsupportedOperationException(name);
+		}
+	}
+}
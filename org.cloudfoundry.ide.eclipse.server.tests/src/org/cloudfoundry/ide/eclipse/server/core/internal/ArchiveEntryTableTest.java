@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.Node;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.util.ModuleFile;
+import org.eclipse.wst.server.core.util.ModuleFolder;
+
+public class ArchiveEntryTableTest extends TestCase {
+
+	private final ModulePathIndex index = new ModulePathIndex();
+
+	public void testAddedEntriesAreUnresolved() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable();
+		IModuleResource folder = new ModuleFolder(null, "lib", new Path("WEB-INF"));
+		IModuleResource file = file("WEB-INF/lib", "a.jar");
+
+		assertEquals(0, add(table, folder, true, false));
+		assertEquals(1, add(table, file, false, true));
+		assertEquals(2, table.size());
+
+		assertEquals("WEB-INF/lib/", table.getName(0));
+		assertSame(folder, table.getResource(0));
+		assertTrue(table.isDirectory(0));
+		assertFalse(table.isChanged(0));
+
+		assertEquals("WEB-INF/lib/a.jar", table.getName(1));
+		assertSame(file, table.getResource(1));
+		assertFalse(table.isDirectory(1));
+		assertTrue(table.isChanged(1));
+		assertFalse(table.isResolved(1));
+		assertEquals(ArchiveEntryTable.UNDEFINED_SIZE, table.getFileSize(1));
+		assertNull(table.getSha1(1));
+	}
+
+	public void testResolve() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable();
+		add(table, file("", "a.txt"), false, false);
+
+		table.setResolved(0, 42, 1000, sha1(1));
+		assertTrue(table.isResolved(0));
+		assertEquals(42, table.getFileSize(0));
+		assertEquals(1000, table.getLastModified(0));
+		assertTrue(Arrays.equals(sha1(1), table.getSha1(0)));
+	}
+
+	public void testOnlyFirstResolutionIsRecorded() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable();
+		add(table, file("", "a.txt"), false, false);
+
+		table.setResolved(0, 42, 1000, sha1(1));
+		table.setResolved(0, 7, 2000, sha1(2));
+		assertEquals(42, table.getFileSize(0));
+		assertEquals(1000, table.getLastModified(0));
+		assertTrue(Arrays.equals(sha1(1), table.getSha1(0)));
+	}
+
+	public void testResolveWithoutSha1() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable();
+		add(table, file("", "missing.txt"), false, false);
+		add(table, file("", "invalid.txt"), false, false);
+
+		table.setResolved(0, ArchiveEntryTable.UNDEFINED_SIZE, 0, null);
+		assertTrue(table.isResolved(0));
+		assertNull(table.getSha1(0));
+
+		// Hash codes of another length are not recorded
+		table.setResolved(1, 10, 0, new byte[16]);
+		assertTrue(table.isResolved(1));
+		assertNull(table.getSha1(1));
+	}
+
+	public void testSha1sArePackedPerRow() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable(1);
+		for (int i = 0; i < 10; i++) {
+			add(table, file("dir", "file" + i), false, false);
+		}
+		// Resolve out of order, to check that rows do not overlap
+		for (int i = 9; i >= 0; i--) {
+			table.setResolved(i, i, i, sha1(i));
+		}
+		for (int i = 0; i < 10; i++) {
+			assertTrue(Arrays.equals(sha1(i), table.getSha1(i)));
+		}
+	}
+
+	public void testSha1IsCopied() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable();
+		add(table, file("", "a.txt"), false, false);
+
+		byte[] sha1 = sha1(1);
+		table.setResolved(0, 1, 1, sha1);
+		sha1[0] = 99;
+		byte[] recorded = table.getSha1(0);
+		assertTrue(Arrays.equals(sha1(1), recorded));
+
+		recorded[0] = 99;
+		assertTrue(Arrays.equals(sha1(1), table.getSha1(0)));
+	}
+
+	public void testGrowAndTrimKeepRows() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable(2);
+		for (int i = 0; i < 5; i++) {
+			add(table, file("", "file" + i), false, i % 2 == 0);
+		}
+		table.setResolved(3, 3, 3, sha1(3));
+
+		// Capacity is now 8, trimmed to the 5 rows
+		table.trim();
+		assertEquals(5, table.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals("file" + i, table.getName(i));
+			assertEquals(i % 2 == 0, table.isChanged(i));
+			assertEquals(i == 3, table.isResolved(i));
+		}
+		assertTrue(Arrays.equals(sha1(3), table.getSha1(3)));
+
+		// Rows can still be added to a trimmed table
+		assertEquals(5, add(table, file("", "file5"), false, false));
+		assertEquals("file5", table.getName(5));
+		assertTrue(Arrays.equals(sha1(3), table.getSha1(3)));
+	}
+
+	public void testTrimEmptyTable() throws Exception {
+		ArchiveEntryTable table = new ArchiveEntryTable(0);
+		table.trim();
+		assertEquals(0, table.size());
+		assertEquals(0, add(table, file("", "a.txt"), false, false));
+		assertEquals(1, table.size());
+	}
+
+	private int add(ArchiveEntryTable table, IModuleResource resource, boolean directory, boolean changed) {
+		Node path = index.getNode(resource);
+		return table.add(path, resource, directory, changed);
+	}
+
+	private static IModuleResource file(String folder, String name) {
+		return new ModuleFile((File) null, name, new Path(folder));
+	}
+
+	private static byte[] sha1(int seed) {
+		byte[] sha1 = new byte[ArchiveEntryTable.SHA1_LENGTH];
+		for (int i = 0; i < sha1.length; i++) {
+			sha1[i] = (byte) (seed * 31 + i);
+		}
+		return sha1;
+	}
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class ArchiveStoreTest extends TestCase {
+
+	private static final long DAY = 24L * 60L * 60L * 1000L;
+
+	private File root;
+
+	@Override
+	protected void setUp() throws Exception {
+		root = File.createTempFile("archiveStoreTest", "");
+		root.delete();
+		root.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ArchiveStore.delete(root);
+	}
+
+	public void testCompleteDeletesOlderArchives() throws Exception {
+		ArchiveStore store = new ArchiveStore(root, Long.MAX_VALUE, DAY);
+		File folder = new File(root, "war-app");
+		write(store.getArchive(folder, "aaaa", "app.war"), 10);
+		store.complete(folder, "aaaa");
+		assertTrue(store.isComplete(folder, "aaaa", "app.war"));
+		assertFalse(store.isComplete(folder, "bbbb", "app.war"));
+
+		new File(folder, "aaaa").setLastModified(System.currentTimeMillis() - 2 * ArchiveStore.IN_USE_PERIOD);
+		write(store.getArchive(folder, "bbbb", "app.war"), 10);
+		store.complete(folder, "bbbb");
+		assertTrue(store.isComplete(folder, "bbbb", "app.war"));
+		assertFalse(store.isComplete(folder, "aaaa", "app.war"));
+		assertFalse(new File(folder, "aaaa").exists());
+		assertFalse(new File(folder, "aaaa.complete").exists());
+	}
+
+	public void testCompleteKeepsArchivesInUse() throws Exception {
+		ArchiveStore store = new ArchiveStore(root, Long.MAX_VALUE, DAY);
+		File folder = new File(root, "war-app");
+		write(store.getArchive(folder, "aaaa", "app.war"), 10);
+		store.complete(folder, "aaaa");
+
+		// The older archive may still be uploaded by another publish
+		write(store.getArchive(folder, "bbbb", "app.war"), 10);
+		store.complete(folder, "bbbb");
+		assertTrue(store.isComplete(folder, "aaaa", "app.war"));
+		assertTrue(store.isComplete(folder, "bbbb", "app.war"));
+
+		new File(folder, "aaaa").setLastModified(System.currentTimeMillis() - 2 * ArchiveStore.IN_USE_PERIOD);
+		store.complete(folder, "bbbb");
+		assertFalse(store.isComplete(folder, "aaaa", "app.war"));
+		assertTrue(store.isComplete(folder, "bbbb", "app.war"));
+	}
+
+	public void testOpenArchivesAreKept() throws Exception {
+		ArchiveStore store = new ArchiveStore(root, 0, DAY);
+		File folder = new File(root, "war-app");
+		File archive = store.getArchive(folder, "aaaa", "app.war");
+		write(archive, 10);
+		store.complete(folder, "aaaa");
+		store.open(archive);
+
+		// Still uploaded after the in use period
+		long old = System.currentTimeMillis() - 2 * ArchiveStore.IN_USE_PERIOD;
+		new File(folder, "aaaa").setLastModified(old);
+		folder.setLastModified(old);
+		write(store.getArchive(folder, "bbbb", "app.war"), 10);
+		store.complete(folder, "bbbb");
+		assertTrue(store.isComplete(folder, "aaaa", "app.war"));
+		store.cleanup();
+		assertTrue(archive.exists());
+
+		// Released archives are kept for the in use period
+		store.release(archive);
+		store.complete(folder, "bbbb");
+		assertTrue(store.isComplete(folder, "aaaa", "app.war"));
+
+		new File(folder, "aaaa").setLastModified(old);
+		store.complete(folder, "bbbb");
+		assertFalse(store.isComplete(folder, "aaaa", "app.war"));
+	}
+
+	public void testCleanupDeletesExpiredAndTemporaryEntries() throws Exception {
+		ArchiveStore store = new ArchiveStore(root, Long.MAX_VALUE, DAY);
+		long now = System.currentTimeMillis();
+		File expired = createEntry("war-expired", 10, now - 2 * DAY);
+		File temporary = createEntry("tmp-jar1", 10, now - 2 * ArchiveStore.IN_USE_PERIOD);
+		File inUseTemporary = createEntry("tmp-jar2", 10, now);
+		File recent = createEntry("war-recent", 10, now - DAY / 2);
+
+		store.cleanup();
+		assertFalse(expired.exists());
+		assertFalse(temporary.exists());
+		assertTrue(inUseTemporary.exists());
+		assertTrue(recent.exists());
+	}
+
+	public void testCleanupEvictsLeastRecentlyUsedOverQuota() throws Exception {
+		ArchiveStore store = new ArchiveStore(root, 250, DAY);
+		long now = System.currentTimeMillis();
+		File oldest = createEntry("war-a", 100, now - 3 * ArchiveStore.IN_USE_PERIOD);
+		File older = createEntry("war-b", 100, now - 2 * ArchiveStore.IN_USE_PERIOD);
+		File inUse = createEntry("war-c", 100, now);
+
+		store.cleanup();
+		assertFalse(oldest.exists());
+		assertTrue(older.exists());
+		assertTrue(inUse.exists());
+
+		store = new ArchiveStore(root, 50, DAY);
+		store.cleanup();
+		assertFalse(older.exists());
+		// Entries in use are kept even if the quota is exceeded
+		assertTrue(inUse.exists());
+	}
+
+	protected File createEntry(String name, int size, long lastUsed) throws IOException {
+		File entry = new File(root, name);
+		entry.mkdirs();
+		write(new File(entry, "archive"), size);
+		entry.setLastModified(lastUsed);
+		return entry;
+	}
+
+	protected void write(File file, int size) throws IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[size]);
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+
+public class BackgroundResourceHasherTest extends TestCase {
+
+	private File folder;
+
+	private IProject deployed;
+
+	private IProject other;
+
+	private ContentHashStore store;
+
+	private List<Long> scheduled;
+
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("hasher", null);
+		folder.delete();
+		folder.mkdirs();
+		deployed = (IProject) createResource(IProject.class, IResource.PROJECT, null, null);
+		other = (IProject) createResource(IProject.class, IResource.PROJECT, null, null);
+		store = new ContentHashStore(null);
+		scheduled = new ArrayList<Long>();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		folder.delete();
+	}
+
+	public void testChangedFilesOfDeployedProjectsAreQueued() throws Exception {
+		IFile added = createFile(deployed, "added.txt", 10, false);
+		IFile changed = createFile(deployed, "changed.txt", 10, false);
+		IFile touched = createFile(deployed, "touched.txt", 10, false);
+		IFile otherFile = createFile(other, "other.txt", 10, false);
+		TestHasher hasher = new TestHasher(BackgroundResourceHasher.MAX_BYTES_PER_RUN);
+
+		hasher.resourceChanged(event(delta(null, IResourceDelta.CHANGED, 0,
+				delta(deployed, IResourceDelta.CHANGED, 0, delta(added, IResourceDelta.ADDED, 0),
+						delta(changed, IResourceDelta.CHANGED, IResourceDelta.CONTENT),
+						delta(touched, IResourceDelta.CHANGED, 0)),
+				delta(other, IResourceDelta.CHANGED, 0, delta(otherFile, IResourceDelta.ADDED, 0)))));
+
+		assertEquals(Arrays.asList(added, changed), getPending(hasher));
+		assertEquals(Collections.singletonList(BackgroundResourceHasher.DELAY), scheduled);
+	}
+
+	public void testRacyFilesAreQueuedAgain() throws Exception {
+		IFile hashed = createFile(deployed, "hashed.txt", 10, false);
+		IFile racy = createFile(deployed, "racy.txt", 10, true);
+		TestHasher hasher = new TestHasher(BackgroundResourceHasher.MAX_BYTES_PER_RUN);
+		hasher.addPending(hashed);
+		hasher.addPending(racy);
+
+		hasher.hashPending(new NullProgressMonitor());
+
+		assertTrue(isHashed(hashed));
+		assertFalse(isHashed(racy));
+		assertEquals(Collections.singletonList(racy), getPending(hasher));
+		assertEquals(Collections.singletonList(BackgroundResourceHasher.DELAY), scheduled);
+	}
+
+	public void testHashedBytesPerRunAreLimited() throws Exception {
+		IFile first = createFile(deployed, "first.txt", 100, false);
+		IFile second = createFile(deployed, "second.txt", 100, false);
+		IFile third = createFile(deployed, "third.txt", 100, false);
+		TestHasher hasher = new TestHasher(150);
+		hasher.addPending(first);
+		hasher.addPending(second);
+		hasher.addPending(third);
+
+		hasher.hashPending(new NullProgressMonitor());
+
+		// The run stops once the limit is reached
+		assertTrue(isHashed(first));
+		assertTrue(isHashed(second));
+		assertFalse(isHashed(third));
+		assertEquals(1, scheduled.size());
+
+		hasher.hashPending(new NullProgressMonitor());
+
+		assertTrue(isHashed(third));
+		assertEquals(1, scheduled.size());
+	}
+
+	private boolean isHashed(IFile file) {
+		File localFile = file.getLocation().toFile();
+		return store.getHash(ContentHashStore.getKey(localFile), FileStat.of(localFile)) != null;
+	}
+
+	private List<IFile> getPending(BackgroundResourceHasher hasher) {
+		List<IFile> pending = new ArrayList<IFile>();
+		IFile file;
+		while ((file = hasher.nextPending()) != null) {
+			pending.add(file);
+		}
+		return pending;
+	}
+
+	private IFile createFile(IProject project, String name, int size, boolean racy) throws IOException {
+		File file = new File(folder, name);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[size]);
+		}
+		finally {
+			out.close();
+		}
+		if (!racy) {
+			file.setLastModified(System.currentTimeMillis() - FileStat.TIMESTAMP_RESOLUTION * 5);
+		}
+		return (IFile) createResource(IFile.class, IResource.FILE, project, file);
+	}
+
+	private Object createResource(Class<?> type, final int resourceType, final IProject project, final File file) {
+		return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("equals")) {
+					return proxy == args[0];
+				}
+				else if (name.equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				}
+				else if (name.equals("toString")) {
+					return file != null ? file.getName() : "project";
+				}
+				else if (name.equals("getType")) {
+					return resourceType;
+				}
+				else if (name.equals("getProject")) {
+					return project != null ? project : proxy;
+				}
+				else if (name.equals("getLocation")) {
+					return file != null ? new Path(file.getAbsolutePath()) : null;
+				}
+				else if (name.equals("isTeamPrivateMember")) {
+					return false;
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	private IResourceDelta delta(final IResource resource, final int kind, final int flags,
+			final IResourceDelta... children) {
+		return (IResourceDelta) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IResourceDelta.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("getResource")) {
+							// The workspace root
+							return resource != null ? resource : createResource(IResource.class, IResource.ROOT,
+									null, null);
+						}
+						else if (name.equals("getKind")) {
+							return kind;
+						}
+						else if (name.equals("getFlags")) {
+							return flags;
+						}
+						else if (name.equals("accept")) {
+							IResourceDeltaVisitor visitor = (IResourceDeltaVisitor) args[0];
+							if (visitor.visit((IResourceDelta) proxy)) {
+								for (IResourceDelta child : children) {
+									child.accept(visitor);
+								}
+							}
+							return null;
+						}
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+
+	private IResourceChangeEvent event(final IResourceDelta delta) {
+		return (IResourceChangeEvent) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IResourceChangeEvent.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getDelta")) {
+							return delta;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private class TestHasher extends BackgroundResourceHasher {
+
+		TestHasher(long maxBytesPerRun) {
+			super(maxBytesPerRun);
+		}
+
+		@Override
+		protected boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		protected ContentHashStore getContentHashStore() {
+			return store;
+		}
+
+		@Override
+		protected Set<IProject> getDeployedProjects() {
+			return new HashSet<IProject>(Collections.singleton(deployed));
+		}
+
+		@Override
+		protected void schedule(long delay) {
+			scheduled.add(delay);
+		}
+	}
+}
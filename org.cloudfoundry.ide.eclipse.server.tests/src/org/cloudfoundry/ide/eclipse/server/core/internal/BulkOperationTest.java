@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.BulkOperation;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.ICloudFoundryOperation;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+public class BulkOperationTest extends TestCase {
+
+	private static final long TIMEOUT = 10;
+
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	private final AtomicInteger completed = new AtomicInteger();
+
+	public void testOperationsRunConcurrentlyUpToLimit() throws Exception {
+		List<ICloudFoundryOperation> operations = new ArrayList<ICloudFoundryOperation>();
+		for (int i = 0; i < 6; i++) {
+			operations.add(new TestOperation(50, null));
+		}
+
+		new BulkOperation(null, operations, 2, false).run(new NullProgressMonitor());
+		assertEquals(6, completed.get());
+		assertEquals(2, maxRunning.get());
+	}
+
+	public void testSingleErrorIsThrownAsIs() throws Exception {
+		CoreException error = new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
+				"Operation failed"));
+		List<ICloudFoundryOperation> operations = new ArrayList<ICloudFoundryOperation>();
+		operations.add(new TestOperation(0, null));
+		operations.add(new TestOperation(0, error));
+		operations.add(new TestOperation(0, null));
+
+		try {
+			new BulkOperation(null, operations, 3, false).run(new NullProgressMonitor());
+			fail("Expected CoreException");
+		}
+		catch (CoreException e) {
+			assertSame(error, e);
+		}
+		// Failures do not stop the other operations
+		assertEquals(2, completed.get());
+	}
+
+	public void testErrorsAreAggregated() throws Exception {
+		List<ICloudFoundryOperation> operations = new ArrayList<ICloudFoundryOperation>();
+		for (int i = 0; i < 3; i++) {
+			operations.add(new TestOperation(0, new CoreException(new Status(IStatus.ERROR,
+					CloudFoundryPlugin.PLUGIN_ID, "Operation " + i + " failed"))));
+		}
+		// Cancelled operations are not errors
+		operations.add(new TestOperation(0, new OperationCanceledException()));
+
+		try {
+			new BulkOperation(null, operations, 2, false).run(new NullProgressMonitor());
+			fail("Expected CoreException");
+		}
+		catch (CoreException e) {
+			assertTrue(e.getStatus().isMultiStatus());
+			assertEquals(3, e.getStatus().getChildren().length);
+		}
+	}
+
+	public void testInterruptCancelsAndWaitsForOperations() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		final List<ICloudFoundryOperation> operations = new ArrayList<ICloudFoundryOperation>();
+		for (int i = 0; i < 2; i++) {
+			operations.add(new ICloudFoundryOperation() {
+				public void run(IProgressMonitor monitor) throws CoreException {
+					started.countDown();
+					long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+					while (!monitor.isCanceled() && System.currentTimeMillis() < end) {
+						sleep(10);
+					}
+					// Operations may take a while to stop once cancelled
+					sleep(100);
+					completed.incrementAndGet();
+					throw new OperationCanceledException();
+				}
+			});
+		}
+
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		final int[] completedOnReturn = new int[] { -1 };
+		final boolean[] interruptedOnReturn = new boolean[1];
+		Thread caller = new Thread() {
+			@Override
+			public void run() {
+				try {
+					new BulkOperation(null, operations, 2, false).run(monitor);
+				}
+				catch (CoreException e) {
+					// Not expected, checked below
+				}
+				completedOnReturn[0] = completed.get();
+				interruptedOnReturn[0] = Thread.currentThread().isInterrupted();
+			}
+		};
+		caller.start();
+		assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+		caller.interrupt();
+		caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		assertFalse(caller.isAlive());
+		assertTrue(monitor.isCanceled());
+		assertEquals(2, completedOnReturn[0]);
+		assertTrue(interruptedOnReturn[0]);
+	}
+
+	protected static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Operation that takes the given time, and fails with the given error if
+	 * any.
+	 */
+	class TestOperation implements ICloudFoundryOperation {
+
+		private final long duration;
+
+		private final RuntimeException runtimeError;
+
+		private final CoreException error;
+
+		TestOperation(long duration, Exception error) {
+			this.duration = duration;
+			this.error = error instanceof CoreException ? (CoreException) error : null;
+			this.runtimeError = error instanceof RuntimeException ? (RuntimeException) error : null;
+		}
+
+		public void run(IProgressMonitor monitor) throws CoreException {
+			int now = running.incrementAndGet();
+			synchronized (maxRunning) {
+				maxRunning.set(Math.max(maxRunning.get(), now));
+			}
+			try {
+				sleep(duration);
+				if (error != null) {
+					throw error;
+				}
+				if (runtimeError != null) {
+					throw runtimeError;
+				}
+				completed.incrementAndGet();
+			}
+			finally {
+				running.decrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.ConcurrentModulePublisher;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IModule;
+
+public class ConcurrentModulePublisherTest extends TestCase {
+
+	private static final long TIMEOUT = 10;
+
+	private final IModule appA = module("appA");
+
+	private final IModule appB = module("appB");
+
+	private final IModule libA = module("libA");
+
+	private final List<String> published = Collections.synchronizedList(new ArrayList<String>());
+
+	public void testApplicationsArePublishedConcurrently() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		final AtomicInteger overlapping = new AtomicInteger();
+		ConcurrentModulePublisher publisher = new ConcurrentModulePublisher(2) {
+
+			@Override
+			protected void publishModules(List<IModule[]> modules, List<Integer> deltaKinds, MultiStatus status,
+					IProgressMonitor monitor) {
+				started.countDown();
+				try {
+					// Only counted if the other application is published at
+					// the same time
+					if (started.await(TIMEOUT, TimeUnit.SECONDS)) {
+						overlapping.incrementAndGet();
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				record(modules);
+			}
+		};
+
+		MultiStatus multi = newStatus();
+		publisher.publish(modules(), deltaKinds(), multi, new NullProgressMonitor());
+		assertEquals(2, overlapping.get());
+		assertEquals(0, multi.getChildren().length);
+
+		// Modules of the same application are published in order
+		assertEquals(3, published.size());
+		assertTrue(published.indexOf("appA") < published.indexOf("appA/libA"));
+		assertTrue(published.contains("appB"));
+	}
+
+	public void testModulesArePublishedSequentiallyWithoutConcurrency() throws Exception {
+		final List<Thread> threads = new ArrayList<Thread>();
+		ConcurrentModulePublisher publisher = new ConcurrentModulePublisher(1) {
+
+			@Override
+			protected void publishModules(List<IModule[]> modules, List<Integer> deltaKinds, MultiStatus status,
+					IProgressMonitor monitor) {
+				threads.add(Thread.currentThread());
+				record(modules);
+			}
+		};
+
+		publisher.publish(modules(), deltaKinds(), newStatus(), new NullProgressMonitor());
+		// All modules are published at once, in the order given
+		assertEquals(Arrays.asList(Thread.currentThread()), threads);
+		assertEquals(Arrays.asList("appA", "appB", "appA/libA"), published);
+	}
+
+	public void testStatusesAreMerged() throws Exception {
+		ConcurrentModulePublisher publisher = new ConcurrentModulePublisher(2) {
+
+			@Override
+			protected void publishModules(List<IModule[]> modules, List<Integer> deltaKinds, MultiStatus status,
+					IProgressMonitor monitor) {
+				if (modules.get(0)[0] == appA) {
+					status.add(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID, "appA failed"));
+				}
+				else {
+					throw new IllegalStateException("appB failed");
+				}
+			}
+		};
+
+		MultiStatus multi = newStatus();
+		publisher.publish(modules(), deltaKinds(), multi, new NullProgressMonitor());
+
+		List<String> messages = new ArrayList<String>();
+		for (IStatus status : multi.getChildren()) {
+			messages.add(status.getMessage());
+		}
+		Collections.sort(messages);
+		assertEquals(Arrays.asList("appA failed", "appB failed"), messages);
+	}
+
+	public void testInterruptCancelsAndWaitsForApplications() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		final AtomicInteger completed = new AtomicInteger();
+		final ConcurrentModulePublisher publisher = new ConcurrentModulePublisher(2) {
+
+			@Override
+			protected void publishModules(List<IModule[]> modules, List<Integer> deltaKinds, MultiStatus status,
+					IProgressMonitor monitor) {
+				started.countDown();
+				long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+				while (!monitor.isCanceled() && System.currentTimeMillis() < end) {
+					sleep(10);
+				}
+				// Applications may take a while to stop once cancelled
+				sleep(100);
+				completed.incrementAndGet();
+			}
+		};
+
+		final IProgressMonitor monitor = new NullProgressMonitor();
+		final int[] completedOnReturn = new int[] { -1 };
+		final boolean[] interruptedOnReturn = new boolean[1];
+		Thread caller = new Thread() {
+			@Override
+			public void run() {
+				publisher.publish(modules(), deltaKinds(), newStatus(), monitor);
+				completedOnReturn[0] = completed.get();
+				interruptedOnReturn[0] = Thread.currentThread().isInterrupted();
+			}
+		};
+		caller.start();
+		assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+		caller.interrupt();
+		caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+		assertFalse(caller.isAlive());
+		assertTrue(monitor.isCanceled());
+		assertEquals(2, completedOnReturn[0]);
+		assertTrue(interruptedOnReturn[0]);
+	}
+
+	protected void record(List<IModule[]> modules) {
+		for (IModule[] module : modules) {
+			StringBuilder name = new StringBuilder();
+			for (IModule segment : module) {
+				if (name.length() > 0) {
+					name.append('/');
+				}
+				name.append(segment.getName());
+			}
+			published.add(name.toString());
+		}
+	}
+
+	protected List<IModule[]> modules() {
+		List<IModule[]> modules = new ArrayList<IModule[]>();
+		modules.add(new IModule[] { appA });
+		modules.add(new IModule[] { appB });
+		modules.add(new IModule[] { appA, libA });
+		return modules;
+	}
+
+	protected List<Integer> deltaKinds() {
+		return Arrays.asList(1, 1, 1);
+	}
+
+	protected static MultiStatus newStatus() {
+		return new MultiStatus(CloudFoundryPlugin.PLUGIN_ID, 0, "Publish", null);
+	}
+
+	protected static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	protected static IModule module(final String name) {
+		return (IModule) Proxy.newProxyInstance(ConcurrentModulePublisherTest.class.getClassLoader(),
+				new Class<?>[] { IModule.class }, new InvocationHandler() {
+
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("getName".equals(method.getName()) || "getId".equals(method.getName())) {
+							return name;
+						}
+						if ("hashCode".equals(method.getName())) {
+							return System.identityHashCode(proxy);
+						}
+						if ("equals".equals(method.getName())) {
+							return proxy == args[0];
+						}
+						if ("toString".equals(method.getName())) {
+							return name;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
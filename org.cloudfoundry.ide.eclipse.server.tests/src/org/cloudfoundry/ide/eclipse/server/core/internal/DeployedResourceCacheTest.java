@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.ContentHashStore.FileHash;
+import org.cloudfoundry.ide.eclipse.server.core.internal.DeployedResourceCache.CachedDeployedApplication;
+import org.cloudfoundry.ide.eclipse.server.core.internal.DeployedResourceCache.DeployedResourceEntry;
+
+public class DeployedResourceCacheTest extends TestCase {
+
+	private File storageLocation;
+
+	@Override
+	protected void setUp() throws Exception {
+		storageLocation = File.createTempFile("deployedResourcesTest", null);
+		storageLocation.delete();
+		storageLocation.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = storageLocation.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		storageLocation.delete();
+	}
+
+	public void testHashesSurviveNewCacheInstance() throws Exception {
+		byte[] sha1 = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20 };
+		FileStat stat = new FileStat(1000, 42, "key");
+
+		DeployedResourceCache cache = new DeployedResourceCache(storageLocation);
+		cache.getContentHashStore().put("/workspace/lib/a.jar", stat, 5000, sha1);
+		cache.save();
+
+		ContentHashStore restored = new DeployedResourceCache(storageLocation).getContentHashStore();
+		FileHash hash = restored.getHashes().get("/workspace/lib/a.jar");
+		assertNotNull(hash);
+		assertEquals(42, hash.getStat().getSize());
+		assertEquals(1000, hash.getStat().getLastModified());
+		assertEquals("key", hash.getStat().getFileKey());
+		assertEquals(5000, hash.getComputedTime());
+		assertTrue(Arrays.equals(sha1, hash.getSha1()));
+		// Hashes read from disk must be validated before they are used
+		assertFalse(hash.isVerified());
+		assertNotNull(restored.getHash("/workspace/lib/a.jar", stat));
+		assertTrue(hash.isVerified());
+
+		assertNull(restored.getHash("/workspace/lib/a.jar", new FileStat(1000, 43, "key")));
+	}
+
+	public void testHashSharedAcrossApplications() throws Exception {
+		DeployedResourceCache cache = new DeployedResourceCache(storageLocation);
+		FileHash hash = cache.getContentHashStore().put("/workspace/lib/a.jar", new FileStat(1000, 42, null), 5000,
+				new byte[20]);
+
+		CachedDeployedApplication app1 = new CachedDeployedApplication("app1");
+		CachedDeployedApplication app2 = new CachedDeployedApplication("app2");
+		cache.add(app1, new DeployedResourceEntry(hash, "WEB-INF/lib/a.jar"));
+		cache.add(app2, new DeployedResourceEntry(hash, "lib/a.jar"));
+
+		assertSame(cache.getEntry(app1, "WEB-INF/lib/a.jar").getSha1(), cache.getEntry(app2, "lib/a.jar").getSha1());
+		assertNull(cache.getEntry(app1, "lib/a.jar"));
+	}
+
+	public void testInMemoryCacheDoesNotPersist() throws Exception {
+		DeployedResourceCache cache = new DeployedResourceCache();
+		cache.getContentHashStore().put("/workspace/index.html", new FileStat(1, 1, null), 5000, new byte[20]);
+		cache.save();
+
+		assertEquals(0, storageLocation.list().length);
+		assertTrue(new DeployedResourceCache(storageLocation).getContentHashStore().getHashes().isEmpty());
+	}
+
+	public void testEntryValidation() throws Exception {
+		File file = new File(storageLocation, "resource.txt");
+		write(file, "content");
+
+		FileStat stat = FileStat.of(file);
+		assertNotNull(stat);
+		assertEquals(file.length(), stat.getSize());
+
+		DeployedResourceEntry entry = new DeployedResourceEntry(new FileHash(new byte[20], stat,
+				stat.getLastModified() + FileStat.TIMESTAMP_RESOLUTION + 1, false), "resource.txt");
+		assertTrue(entry.isValidFor(FileStat.of(file)));
+		assertTrue(entry.isVerified());
+
+		write(file, "changed content");
+		file.setLastModified(entry.getLastModified() + 2000);
+		assertFalse(entry.isValidFor(FileStat.of(file)));
+
+		file.delete();
+		assertNull(FileStat.of(file));
+		assertFalse(entry.isValidFor(FileStat.of(file)));
+	}
+
+	public void testRacyEntryIsNotValid() throws Exception {
+		File file = new File(storageLocation, "resource.txt");
+		write(file, "content");
+		FileStat stat = FileStat.of(file);
+
+		// Content read in the same time stamp resolution window as the last
+		// modification may not reflect a subsequent modification
+		DeployedResourceEntry entry = new DeployedResourceEntry(new FileHash(new byte[20], stat,
+				stat.getLastModified(), false), "resource.txt");
+		assertFalse(entry.isValidFor(FileStat.of(file)));
+	}
+
+	public void testFileKeyMismatch() throws Exception {
+		FileStat stat = new FileStat(1000, 10, "(dev=1,ino=2)");
+		assertTrue(stat.isSameAs(new FileStat(1000, 10, "(dev=1,ino=2)")));
+		assertTrue(stat.isSameAs(new FileStat(1000, 10, null)));
+		assertFalse(stat.isSameAs(new FileStat(1000, 10, "(dev=1,ino=3)")));
+		assertFalse(stat.isSameAs(new FileStat(1000, 11, "(dev=1,ino=2)")));
+	}
+
+	protected void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+	}
+}
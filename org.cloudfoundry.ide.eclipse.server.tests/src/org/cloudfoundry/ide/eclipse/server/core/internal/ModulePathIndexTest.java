@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.Node;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndex.PathSet;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.eclipse.wst.server.core.util.ModuleFile;
+import org.eclipse.wst.server.core.util.ModuleFolder;
+
+public class ModulePathIndexTest extends TestCase {
+
+	public void testNodesAreAddedOnce() throws Exception {
+		ModulePathIndex index = new ModulePathIndex();
+		Node node = index.getNode(file("WEB-INF/classes", "Foo.class"));
+		// Two parent folders are added before the file
+		assertEquals(2, node.getId());
+		assertEquals(3, index.size());
+
+		// Resources are created again for each publish
+		assertSame(node, index.getNode(file("WEB-INF/classes", "Foo.class")));
+		assertEquals(3, index.size());
+
+		Node sibling = index.getNode(file("WEB-INF/classes", "Bar.class"));
+		assertNotSame(node, sibling);
+		assertEquals(4, index.size());
+		assertEquals(3, sibling.getId());
+	}
+
+	public void testZipNames() throws Exception {
+		ModulePathIndex index = new ModulePathIndex();
+		assertEquals("index.html", index.getZipName(file("", "index.html")));
+		assertEquals("WEB-INF/lib/a.jar", index.getZipName(file("WEB-INF/lib", "a.jar")));
+		assertEquals("WEB-INF/lib/", index.getZipName(folder("WEB-INF", "lib")));
+		assertEquals("/abs/file.txt", index.getZipName(file("/abs", "file.txt")));
+		// Same escaping as IPath.toPortableString()
+		assertEquals("a::b/c.txt", index.getZipName(file("a:b", "c.txt")));
+	}
+
+	public void testFolderAndRelativePathsAreDistinct() throws Exception {
+		ModulePathIndex index = new ModulePathIndex();
+		Node relative = index.getNode(file("dir", "file.txt"));
+		Node absolute = index.getNode(file("/dir", "file.txt"));
+		assertNotSame(relative, absolute);
+
+		// A folder shares the node of its path with files of the same name
+		Node folder = index.getNode(folder("dir", "file.txt"));
+		assertSame(relative, folder);
+		assertEquals("dir/file.txt", folder.getZipName(false));
+		assertEquals("dir/file.txt/", folder.getZipName(true));
+	}
+
+	public void testPathSetMembership() throws Exception {
+		ModulePathIndex index = new ModulePathIndex();
+		PathSet set = index.newPathSet();
+		assertEquals(0, set.size());
+		assertSame(index, set.getIndex());
+
+		set.add(file("a", "1.txt"));
+		set.add(file("a", "1.txt"));
+		set.add(file("b", "2.txt"));
+		assertEquals(2, set.size());
+
+		// Membership is by path, not by resource instance
+		assertTrue(set.contains(file("a", "1.txt")));
+		assertTrue(set.contains(index.getNode(file("b", "2.txt"))));
+		assertFalse(set.contains(file("a", "2.txt")));
+		// Parent folders are in the index, but not in the set
+		assertFalse(set.contains(index.getNode(file("", "a"))));
+	}
+
+	public void testChangedFiles() throws Exception {
+		ModulePathIndex index = new ModulePathIndex();
+		IModuleResourceDelta[] deltas = new IModuleResourceDelta[] { delta(folder("", "dir"),
+				IModuleResourceDelta.CHANGED, delta(file("dir", "changed.txt"), IModuleResourceDelta.CHANGED),
+				delta(file("dir", "added.txt"), IModuleResourceDelta.ADDED),
+				delta(file("dir", "same.txt"), IModuleResourceDelta.NO_CHANGE)) };
+
+		PathSet changed = index.getChangedFiles(deltas);
+		assertEquals(2, changed.size());
+		assertTrue(changed.contains(file("dir", "changed.txt")));
+		assertTrue(changed.contains(file("dir", "added.txt")));
+		assertFalse(changed.contains(file("dir", "same.txt")));
+		// Only files are recorded
+		assertFalse(changed.contains(folder("", "dir")));
+
+		assertEquals(0, index.getChangedFiles(null).size());
+	}
+
+	public void testIsSparse() throws Exception {
+		ModulePathIndex index = new ModulePathIndex();
+		index.setResourceCount(10);
+		for (int i = 0; i < 1044; i++) {
+			index.getNode(file("", "file" + i));
+		}
+		assertFalse(index.isSparse());
+
+		index.getNode(file("", "extra"));
+		assertTrue(index.isSparse());
+
+		index.setResourceCount(11);
+		assertFalse(index.isSparse());
+	}
+
+	public void testIndexIsReusedByModuleId() throws Exception {
+		ModulePathIndex index = ModulePathIndex.getIndex(module("reused"));
+		assertSame(index, ModulePathIndex.getIndex(module("reused")));
+		assertNotSame(index, ModulePathIndex.getIndex(module("other")));
+	}
+
+	public void testSparseIndexIsReplaced() throws Exception {
+		ModulePathIndex index = ModulePathIndex.getIndex(module("sparse"));
+		index.setResourceCount(0);
+		for (int i = 0; i < 1025; i++) {
+			index.getNode(file("", "file" + i));
+		}
+
+		ModulePathIndex replaced = ModulePathIndex.getIndex(module("sparse"));
+		assertNotSame(index, replaced);
+		assertEquals(0, replaced.size());
+		assertSame(replaced, ModulePathIndex.getIndex(module("sparse")));
+	}
+
+	public void testLeastRecentlyUsedIndexIsDiscarded() throws Exception {
+		ModulePathIndex recent = ModulePathIndex.getIndex(module("recent"));
+		ModulePathIndex eldest = ModulePathIndex.getIndex(module("eldest"));
+		for (int i = 0; i < 40; i++) {
+			ModulePathIndex.getIndex(module("module" + i));
+			// Keep one index in use while others are added
+			ModulePathIndex.getIndex(module("recent"));
+		}
+
+		assertSame(recent, ModulePathIndex.getIndex(module("recent")));
+		assertNotSame(eldest, ModulePathIndex.getIndex(module("eldest")));
+	}
+
+	private static IModuleResource file(String folder, String name) {
+		return new ModuleFile((File) null, name, new Path(folder));
+	}
+
+	private static IModuleResource folder(String parent, String name) {
+		return new ModuleFolder(null, name, new Path(parent));
+	}
+
+	private static IModuleResourceDelta delta(final IModuleResource resource, final int kind,
+			final IModuleResourceDelta... children) {
+		return new IModuleResourceDelta() {
+
+			public IModuleResource getModuleResource() {
+				return resource;
+			}
+
+			public int getKind() {
+				return kind;
+			}
+
+			public IModuleResourceDelta[] getAffectedChildren() {
+				return children;
+			}
+
+			public IPath getModuleRelativePath() {
+				return resource.getModuleRelativePath().append(resource.getName());
+			}
+		};
+	}
+
+	private static IModule module(final String id) {
+		return (IModule) Proxy.newProxyInstance(ModulePathIndexTest.class.getClassLoader(),
+				new Class<?>[] { IModule.class }, new InvocationHandler() {
+
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("getId".equals(method.getName())) {
+							return id;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasher.HashableEntry;
+
+public class ParallelResourceHasherTest extends TestCase {
+
+	public void testAllEntriesAreHashed() throws Exception {
+		List<TestEntry> entries = createEntries(50, -1);
+		new ParallelResourceHasher().hash(entries);
+		for (TestEntry entry : entries) {
+			assertTrue(entry.isHashed());
+			assertEquals(1, entry.getAttempts());
+		}
+	}
+
+	public void testFailedEntryDoesNotStopOtherEntries() throws Exception {
+		// The failing entry is in the middle of a batch
+		List<TestEntry> entries = createEntries(50, 3);
+		new ParallelResourceHasher().hash(entries);
+		for (int i = 0; i < entries.size(); i++) {
+			assertEquals(i != 3, entries.get(i).isHashed());
+			assertEquals(1, entries.get(i).getAttempts());
+		}
+	}
+
+	public void testFailedEntryIsHashedAgainByCaller() throws Exception {
+		List<TestEntry> entries = createEntries(10, 0);
+		new ParallelResourceHasher().hash(entries);
+
+		TestEntry failing = entries.get(0);
+		try {
+			failing.getHash();
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			// The error is reported on the thread requesting the hash code
+		}
+		assertEquals(2, failing.getAttempts());
+	}
+
+	public void testNothingToHash() throws Exception {
+		ParallelResourceHasher hasher = new ParallelResourceHasher();
+		assertNull(hasher.start(new ArrayList<TestEntry>()));
+		hasher.await(null);
+	}
+
+	private static List<TestEntry> createEntries(int count, int failing) {
+		List<TestEntry> entries = new ArrayList<TestEntry>();
+		for (int i = 0; i < count; i++) {
+			entries.add(new TestEntry(i == failing));
+		}
+		return entries;
+	}
+
+	private static class TestEntry implements HashableEntry {
+
+		private final boolean fail;
+
+		private final AtomicInteger attempts = new AtomicInteger();
+
+		private volatile boolean hashed;
+
+		TestEntry(boolean fail) {
+			this.fail = fail;
+		}
+
+		public void computeHash() {
+			attempts.incrementAndGet();
+			if (fail) {
+				throw new IllegalStateException("Failed to read entry");
+			}
+			hashed = true;
+		}
+
+		public boolean getHash() {
+			if (!hashed) {
+				computeHash();
+			}
+			return hashed;
+		}
+
+		public boolean isHashed() {
+			return hashed;
+		}
+
+		public int getAttempts() {
+			return attempts.get();
+		}
+	}
+}
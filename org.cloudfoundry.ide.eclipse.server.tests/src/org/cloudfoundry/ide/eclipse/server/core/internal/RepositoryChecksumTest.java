@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.application.RepositoryChecksum;
+
+public class RepositoryChecksumTest extends TestCase {
+
+	private static final String SHA1 = "0123456789abcdef0123456789abcdef01234567";
+
+	private File repository;
+
+	@Override
+	protected void setUp() throws Exception {
+		repository = File.createTempFile("repositoryChecksumTest", null);
+		repository.delete();
+		repository.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(repository);
+	}
+
+	public void testMavenChecksumFile() throws Exception {
+		File jar = new File(repository, "lib-1.0.jar");
+		write(jar, "jar");
+		File checksum = new File(repository, "lib-1.0.jar.sha1");
+		write(checksum, SHA1 + "  lib-1.0.jar\n");
+
+		byte[] sha1 = new RepositoryChecksum(true).getSha1(jar);
+		assertNotNull(sha1);
+		assertEquals(20, sha1.length);
+		assertEquals(0x01, sha1[0]);
+		assertEquals(0x67, sha1[19]);
+
+		write(checksum, "not a checksum");
+		assertNull(new RepositoryChecksum(true).getSha1(jar));
+		assertNull(new RepositoryChecksum(true).getSha1(new File(repository, "missing.jar")));
+	}
+
+	public void testStaleMavenChecksumFile() throws Exception {
+		File jar = new File(repository, "lib-1.0-SNAPSHOT.jar");
+		write(jar, "jar");
+		File checksum = new File(repository, "lib-1.0-SNAPSHOT.jar.sha1");
+		write(checksum, SHA1);
+		// Jar installed locally after the checksum file was downloaded
+		checksum.setLastModified(jar.lastModified() - 10000);
+
+		assertNull(new RepositoryChecksum(true).getSha1(jar));
+		assertNotNull(new RepositoryChecksum(false).getSha1(jar));
+	}
+
+	public void testGradleCacheFolder() throws Exception {
+		// Gradle does not zero-pad hash codes in folder names
+		File folder = new File(repository, "files-2.1/org.example/lib/1.0/" + SHA1.substring(1));
+		folder.mkdirs();
+		File jar = new File(folder, "lib-1.0.jar");
+		write(jar, "jar");
+
+		byte[] sha1 = new RepositoryChecksum(true).getSha1(jar);
+		assertNotNull(sha1);
+		assertEquals(0x01, sha1[0]);
+		assertEquals(0x67, sha1[19]);
+
+		File notCached = new File(repository, "files-2.1/lib-1.0.jar");
+		write(notCached, "jar");
+		assertNull(new RepositoryChecksum(true).getSha1(notCached));
+	}
+
+	protected void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	protected void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.RequestCoalescer;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+public class RequestCoalescerTest extends TestCase {
+
+	private static final long TIMEOUT = 10;
+
+	private ExecutorService executor;
+
+	private RequestCoalescer coalescer;
+
+	@Override
+	protected void setUp() throws Exception {
+		executor = Executors.newCachedThreadPool();
+		coalescer = new RequestCoalescer();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	public void testWaiterSharesResult() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingRequest request = new BlockingRequest(release);
+
+		Future<List<String>> performer = run("getRoutes:a", request, new NullProgressMonitor());
+		request.awaitStarted();
+		Future<List<String>> waiter = run("getRoutes:a", request, new NullProgressMonitor());
+		awaitCoalesced(1);
+
+		release.countDown();
+		assertEquals(Arrays.asList("result 1"), get(performer));
+		assertEquals(Arrays.asList("result 1"), get(waiter));
+		assertEquals(1, request.runs.get());
+		// Each caller can modify the list it receives
+		assertNotSame(get(performer), get(waiter));
+	}
+
+	public void testRequestsWithDifferentKeysAreNotCoalesced() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingRequest request = new BlockingRequest(release);
+
+		Future<List<String>> first = run("getRoutes:a", request, new NullProgressMonitor());
+		Future<List<String>> second = run("getRoutes:b", request, new NullProgressMonitor());
+		release.countDown();
+		get(first);
+		get(second);
+		assertEquals(2, request.runs.get());
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	public void testWaiterSharesError() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingRequest request = new BlockingRequest(release) {
+			@Override
+			public List<String> run() throws CoreException {
+				super.run();
+				throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID, "Request failed"));
+			}
+		};
+
+		Future<List<String>> performer = run("getServices", request, new NullProgressMonitor());
+		request.awaitStarted();
+		Future<List<String>> waiter = run("getServices", request, new NullProgressMonitor());
+		awaitCoalesced(1);
+
+		release.countDown();
+		assertFailsWith(CoreException.class, performer);
+		assertFailsWith(CoreException.class, waiter);
+		assertEquals(1, request.runs.get());
+	}
+
+	public void testCancelledWaiterStopsWaiting() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingRequest request = new BlockingRequest(release);
+
+		Future<List<String>> performer = run("getServices", request, new NullProgressMonitor());
+		request.awaitStarted();
+		IProgressMonitor waiterMonitor = new NullProgressMonitor();
+		Future<List<String>> waiter = run("getServices", request, waiterMonitor);
+		awaitCoalesced(1);
+
+		waiterMonitor.setCanceled(true);
+		assertFailsWith(OperationCanceledException.class, waiter);
+		assertFalse(performer.isDone());
+
+		// The performing caller is not affected
+		release.countDown();
+		assertEquals(Arrays.asList("result 1"), get(performer));
+	}
+
+	public void testWaiterPerformsRequestAgainIfPerformerIsCancelled() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingRequest request = new BlockingRequest(release) {
+			@Override
+			public List<String> run() throws CoreException {
+				List<String> result = super.run();
+				if (runs.get() == 1) {
+					throw new OperationCanceledException();
+				}
+				return result;
+			}
+		};
+
+		Future<List<String>> performer = run("getServices", request, new NullProgressMonitor());
+		request.awaitStarted();
+		Future<List<String>> waiter = run("getServices", request, new NullProgressMonitor());
+		awaitCoalesced(1);
+
+		release.countDown();
+		assertFailsWith(OperationCanceledException.class, performer);
+		assertEquals(Arrays.asList("result 2"), get(waiter));
+		assertEquals(2, request.runs.get());
+	}
+
+	protected Future<List<String>> run(final String key, final RequestCoalescer.Request<List<String>> request,
+			final IProgressMonitor monitor) {
+		return executor.submit(new Callable<List<String>>() {
+			public List<String> call() throws Exception {
+				return coalescer.run(key, request, monitor);
+			}
+		});
+	}
+
+	protected void awaitCoalesced(long count) throws InterruptedException {
+		long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT);
+		while (coalescer.getCoalescedCount() < count) {
+			assertTrue("Request was not coalesced", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	protected <T> T get(Future<T> future) throws Exception {
+		return future.get(TIMEOUT, TimeUnit.SECONDS);
+	}
+
+	protected void assertFailsWith(Class<? extends Throwable> errorClass, Future<?> future) throws Exception {
+		try {
+			get(future);
+			fail("Expected " + errorClass.getSimpleName());
+		}
+		catch (ExecutionException e) {
+			assertTrue(e.getCause().toString(), errorClass.isInstance(e.getCause()));
+		}
+	}
+
+	/**
+	 * Request that blocks until released, and returns a new list each time it
+	 * runs.
+	 */
+	static class BlockingRequest implements RequestCoalescer.Request<List<String>> {
+
+		final AtomicInteger runs = new AtomicInteger();
+
+		private final CountDownLatch release;
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		BlockingRequest(CountDownLatch release) {
+			this.release = release;
+		}
+
+		public List<String> run() throws CoreException {
+			int run = runs.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(TIMEOUT, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+			return new ArrayList<String>(Arrays.asList("result " + run));
+		}
+
+		void awaitStarted() throws InterruptedException {
+			assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+		}
+	}
+}
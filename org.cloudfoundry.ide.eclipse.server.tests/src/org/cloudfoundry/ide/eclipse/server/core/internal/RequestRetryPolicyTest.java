@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.client.lib.CloudFoundryOperations;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.BaseClientRequest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.RequestRetryPolicy;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+
+public class RequestRetryPolicyTest extends TestCase {
+
+	public void testIntervalsGrowWithJitterUpToMaximum() throws Exception {
+		RequestRetryPolicy policy = new TestRetryPolicy(new Random(7), 100, 2000);
+		IOException error = new IOException("Connection reset");
+
+		long previous = 0;
+		for (int i = 0; i < 50; i++) {
+			long interval = policy.getWaitInterval(error, previous);
+			assertTrue(interval >= 100);
+			assertTrue(interval <= Math.min(2000, Math.max(previous, 100) * 3));
+			previous = interval;
+		}
+	}
+
+	public void testErrorsWithoutBackoffAreNotRetried() throws Exception {
+		RequestRetryPolicy policy = new TestRetryPolicy(new Random(), 100, 2000);
+
+		assertEquals(-1, policy.getWaitInterval(new IllegalStateException(), 0));
+		// The cause of core exceptions decides the backoff
+		CoreException coreError = new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID,
+				"Request failed", new IOException("Connection reset")));
+		assertTrue(policy.getWaitInterval(coreError, 0) >= 100);
+	}
+
+	public void testRetriesAreCounted() throws Exception {
+		RequestRetryPolicy policy = new TestRetryPolicy(new Random(), 1, 5);
+		TestRequest request = new TestRequest(policy, 2);
+
+		assertEquals("result", request.runAndWait(new NullProgressMonitor()));
+		assertEquals(3, request.attempts);
+		assertEquals(2, request.getRetryCount());
+		assertEquals(2, policy.getRetryCount());
+		assertTrue(policy.getRetryTime() >= 2);
+	}
+
+	public void testSleepEndsOnCancel() throws Exception {
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		long start = System.currentTimeMillis();
+		try {
+			RequestRetryPolicy.sleep(10000, monitor);
+			fail("Expected sleep to be cancelled");
+		}
+		catch (OperationCanceledException e) {
+			assertTrue(System.currentTimeMillis() - start < 5000);
+		}
+	}
+
+	public void testCancelEndsWait() throws Exception {
+		RequestRetryPolicy policy = new TestRetryPolicy(new Random(), 10000, 10000);
+		TestRequest request = new TestRequest(policy, Integer.MAX_VALUE) {
+			@Override
+			protected long getTotalTimeWait() {
+				return 60000;
+			}
+		};
+		final NullProgressMonitor monitor = new NullProgressMonitor();
+		Timer timer = new Timer();
+		timer.schedule(new TimerTask() {
+			public void run() {
+				monitor.setCanceled(true);
+			}
+		}, 200);
+
+		long start = System.currentTimeMillis();
+		try {
+			request.runAndWait(monitor);
+			fail("Expected request to be cancelled");
+		}
+		catch (OperationCanceledException e) {
+			assertTrue(System.currentTimeMillis() - start < 5000);
+			assertEquals(1, request.attempts);
+			assertEquals(0, request.getRetryCount());
+		}
+		finally {
+			timer.cancel();
+		}
+	}
+
+	static class TestRetryPolicy extends RequestRetryPolicy {
+
+		private final Backoff backoff;
+
+		TestRetryPolicy(Random random, long initialInterval, long maxInterval) {
+			super(random);
+			this.backoff = new Backoff(initialInterval, maxInterval);
+		}
+
+		@Override
+		protected Backoff getBackoff(Throwable error) {
+			return error instanceof IOException ? backoff : null;
+		}
+	}
+
+	/**
+	 * Fails with an I/O error a given number of times before returning a
+	 * result.
+	 */
+	static class TestRequest extends BaseClientRequest<String> {
+
+		private final RequestRetryPolicy policy;
+
+		private final int failures;
+
+		int attempts;
+
+		TestRequest(RequestRetryPolicy policy, int failures) {
+			super("Test request");
+			this.policy = policy;
+			this.failures = failures;
+		}
+
+		String runAndWait(IProgressMonitor monitor) throws CoreException {
+			return runAndWait(null, SubMonitor.convert(monitor));
+		}
+
+		@Override
+		protected String doRun(CloudFoundryOperations client, SubMonitor progress) throws CoreException {
+			if (attempts++ < failures) {
+				throw new CoreException(new Status(IStatus.ERROR, CloudFoundryPlugin.PLUGIN_ID, "Request failed",
+						new IOException("Connection reset")));
+			}
+			return "result";
+		}
+
+		@Override
+		protected RequestRetryPolicy getRetryPolicy() {
+			return policy;
+		}
+
+		@Override
+		protected CloudFoundryOperations getClient(IProgressMonitor monitor) throws CoreException {
+			return null;
+		}
+	}
+}
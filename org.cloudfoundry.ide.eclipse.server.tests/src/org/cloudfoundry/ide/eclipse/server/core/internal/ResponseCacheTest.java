@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.ResponseCache;
+
+public class ResponseCacheTest extends TestCase {
+
+	private static final long TIME_TO_LIVE = 60 * 1000;
+
+	public void testResponsesExpire() throws Exception {
+		ResponseCache cache = new ResponseCache(10);
+		cache.put("getRoutes:domain", "routes", 1, cache.getGeneration("getRoutes:domain"));
+		cache.put("getServices", "services", TIME_TO_LIVE, cache.getGeneration("getServices"));
+
+		Thread.sleep(20);
+		assertNull(cache.get("getRoutes:domain"));
+		assertEquals("services", cache.get("getServices"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	public void testOperationTimeToLiveOverridesRequest() throws Exception {
+		ResponseCache cache = new ResponseCache(10);
+		cache.setTimeToLive("getServices", 0);
+		cache.setTimeToLive("getRoutes", TIME_TO_LIVE);
+
+		cache.put("getServices", "services", TIME_TO_LIVE, cache.getGeneration("getServices"));
+		cache.put("getRoutes:domain", "routes", 1, cache.getGeneration("getRoutes:domain"));
+
+		Thread.sleep(20);
+		assertNull(cache.get("getServices"));
+		assertEquals("routes", cache.get("getRoutes:domain"));
+	}
+
+	public void testInvalidateRemovesAllArgumentsOfOperation() throws Exception {
+		ResponseCache cache = new ResponseCache(10);
+		put(cache, "getRoutes:a", "routes a");
+		put(cache, "getRoutes:b", "routes b");
+		put(cache, "getServices", "services");
+
+		cache.invalidate("getRoutes");
+		assertNull(cache.get("getRoutes:a"));
+		assertNull(cache.get("getRoutes:b"));
+		assertEquals("services", cache.get("getServices"));
+	}
+
+	public void testResponseStartedBeforeInvalidationIsNotCached() throws Exception {
+		ResponseCache cache = new ResponseCache(10);
+		long generation = cache.getGeneration("getRoutes:a");
+		long otherGeneration = cache.getGeneration("getServices");
+
+		// The routes changed while the request was in progress
+		cache.invalidate("getRoutes");
+		cache.put("getRoutes:a", "stale routes", TIME_TO_LIVE, generation);
+		cache.put("getServices", "services", TIME_TO_LIVE, otherGeneration);
+		assertNull(cache.get("getRoutes:a"));
+		assertEquals("services", cache.get("getServices"));
+
+		put(cache, "getRoutes:a", "routes");
+		assertEquals("routes", cache.get("getRoutes:a"));
+	}
+
+	public void testClear() throws Exception {
+		ResponseCache cache = new ResponseCache(10);
+		put(cache, "getServices", "services");
+		long generation = cache.getGeneration("getRoutes:a");
+
+		cache.clear();
+		assertNull(cache.get("getServices"));
+
+		// Responses to requests started before clearing are not cached
+		cache.put("getRoutes:a", "routes", TIME_TO_LIVE, generation);
+		assertNull(cache.get("getRoutes:a"));
+	}
+
+	public void testLeastRecentlyUsedResponseIsEvicted() throws Exception {
+		ResponseCache cache = new ResponseCache(2);
+		put(cache, "getRoutes:a", "routes a");
+		put(cache, "getRoutes:b", "routes b");
+
+		assertEquals("routes a", cache.get("getRoutes:a"));
+		put(cache, "getRoutes:c", "routes c");
+		assertNull(cache.get("getRoutes:b"));
+		assertEquals("routes a", cache.get("getRoutes:a"));
+		assertEquals("routes c", cache.get("getRoutes:c"));
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testListsAreCopied() throws Exception {
+		ResponseCache cache = new ResponseCache(10);
+		List<String> routes = new ArrayList<String>(Arrays.asList("a", "b"));
+		put(cache, "getRoutes:domain", routes);
+		routes.add("c");
+
+		List<String> cached = (List<String>) cache.get("getRoutes:domain");
+		assertEquals(Arrays.asList("a", "b"), cached);
+		cached.clear();
+		assertEquals(Arrays.asList("a", "b"), cache.get("getRoutes:domain"));
+	}
+
+	protected void put(ResponseCache cache, String key, Object value) {
+		cache.put(key, value, TIME_TO_LIVE, cache.getGeneration(key));
+	}
+}
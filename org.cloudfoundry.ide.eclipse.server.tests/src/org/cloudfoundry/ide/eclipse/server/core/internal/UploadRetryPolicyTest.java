@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Pivotal Software, Inc. 
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License, 
+ * Version 2.0 (the "License"); you may not use this file except in compliance 
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *  
+ *  Contributors:
+ *     Pivotal Software, Inc. - initial API and implementation
+ ********************************************************************************/
+package org.cloudfoundry.ide.eclipse.server.core.internal;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.file.AccessDeniedException;
+import java.util.zip.ZipException;
+
+import junit.framework.TestCase;
+
+import org.cloudfoundry.client.lib.CloudFoundryException;
+import org.cloudfoundry.ide.eclipse.server.core.internal.client.UploadRetryPolicy;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+public class UploadRetryPolicyTest extends TestCase {
+
+	public void testIntervalDoublesUpToMaximum() throws Exception {
+		UploadRetryPolicy policy = new UploadRetryPolicy(6, 1000, 5000);
+		IOException error = new SocketException("Connection reset");
+
+		assertEquals(1000, policy.getRetryInterval(error, 1));
+		assertEquals(2000, policy.getRetryInterval(error, 2));
+		assertEquals(4000, policy.getRetryInterval(error, 3));
+		assertEquals(5000, policy.getRetryInterval(error, 4));
+		assertEquals(5000, policy.getRetryInterval(error, 5));
+		// No attempts left
+		assertEquals(-1, policy.getRetryInterval(error, 6));
+	}
+
+	public void testTransientErrors() throws Exception {
+		UploadRetryPolicy policy = new UploadRetryPolicy();
+
+		assertTrue(policy.isTransient(new SocketException("Connection reset")));
+		assertTrue(policy.isTransient(new ResourceAccessException("I/O error", new SocketException(
+				"Broken pipe"))));
+		assertTrue(policy.isTransient(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+		assertTrue(policy.isTransient(new CloudFoundryException(HttpStatus.SERVICE_UNAVAILABLE)));
+
+		assertFalse(policy.isTransient(new ResourceAccessException("I/O error", new UnknownHostException(
+				"api.example.com"))));
+		assertFalse(policy.isTransient(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR)));
+		assertFalse(policy.isTransient(new CloudFoundryException(HttpStatus.BAD_REQUEST)));
+		assertFalse(policy.isTransient(new IllegalStateException()));
+		assertEquals(-1, policy.getRetryInterval(new CloudFoundryException(HttpStatus.NOT_FOUND), 1));
+	}
+
+	public void testLocalFileErrorsAreNotTransient() throws Exception {
+		UploadRetryPolicy policy = new UploadRetryPolicy();
+
+		assertFalse(policy.isTransient(new FileNotFoundException("app.war")));
+		assertFalse(policy.isTransient(new AccessDeniedException("app.war")));
+		assertFalse(policy.isTransient(new ZipException("invalid entry size")));
+		// Also when wrapped by the client
+		assertFalse(policy.isTransient(new ResourceAccessException("I/O error", new FileNotFoundException(
+				"app.war"))));
+		assertEquals(-1, policy.getRetryInterval(new FileNotFoundException("app.war"), 1));
+	}
+}
@@ -22,16 +22,31 @@ package org.cloudfoundry.ide.eclipse.server.tests;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.cloudfoundry.ide.eclipse.server.core.internal.AdaptiveZipOutputStreamTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ApplicationStartDetectorTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ArchiveEntryTableTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ArchiveStoreTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.BackgroundResourceHasherTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.BehaviourOperationsTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.BulkOperationTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryClientConnectionTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryProxyTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryServerBehaviourTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryServerTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudFoundryServicesTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.CloudUtilTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ConcurrentModulePublisherTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.DeployedResourceCacheTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.DeploymentURLTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ModulePathIndexTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ModuleRefreshTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ParallelResourceHasherTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.RepositoryChecksumTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.RequestCoalescerTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.RequestRetryPolicyTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.ResponseCacheTest;
 import org.cloudfoundry.ide.eclipse.server.core.internal.ServerCredentialsStoreTest;
+import org.cloudfoundry.ide.eclipse.server.core.internal.UploadRetryPolicyTest;
 import org.cloudfoundry.ide.eclipse.server.tests.sts.util.ManagedTestSuite;
 
 /**
@@ -56,6 +71,21 @@ public class AllCloudFoundryTests {
 		suite.addTestSuite(ServerCredentialsStoreTest.class);
 		suite.addTestSuite(CloudFoundryServerTest.class);
 		suite.addTestSuite(CloudUtilTest.class);
+		suite.addTestSuite(DeployedResourceCacheTest.class);
+		suite.addTestSuite(RepositoryChecksumTest.class);
+		suite.addTestSuite(AdaptiveZipOutputStreamTest.class);
+		suite.addTestSuite(ArchiveStoreTest.class);
+		suite.addTestSuite(UploadRetryPolicyTest.class);
+		suite.addTestSuite(RequestRetryPolicyTest.class);
+		suite.addTestSuite(ResponseCacheTest.class);
+		suite.addTestSuite(RequestCoalescerTest.class);
+		suite.addTestSuite(BulkOperationTest.class);
+		suite.addTestSuite(ApplicationStartDetectorTest.class);
+		suite.addTestSuite(ParallelResourceHasherTest.class);
+		suite.addTestSuite(ModulePathIndexTest.class);
+		suite.addTestSuite(ArchiveEntryTableTest.class);
+		suite.addTestSuite(ConcurrentModulePublisherTest.class);
+		suite.addTestSuite(BackgroundResourceHasherTest.class);
 
 		suite.addTestSuite(DeploymentURLTest.class);
 		suite.addTestSuite(CloudFoundryServicesTest.class);
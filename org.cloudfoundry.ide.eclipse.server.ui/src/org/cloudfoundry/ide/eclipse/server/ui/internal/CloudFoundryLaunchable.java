@@ -19,9 +19,10 @@
  ********************************************************************************/
 package org.cloudfoundry.ide.eclipse.server.ui.internal;
 
-import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
 
+import org.cloudfoundry.ide.eclipse.server.core.internal.ExternalRestTemplate;
 import org.eclipse.jst.server.core.Servlet;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.wst.server.core.IModule;
@@ -89,27 +90,20 @@ public class CloudFoundryLaunchable extends HttpLaunchable {
             }
             
             private boolean waitForUrlAvaiable(URL moduleUrl, long timeout) {
-                HttpURLConnection conn = null;
-                int code = -1;
+                // Polled through the pooled external HTTP client, so that the
+                // polls reuse one kept alive connection
+                ExternalRestTemplate restTemplate = new ExternalRestTemplate();
                 long interval = timeout/20;
                 for (int i = 0; i < 20; i++) {
                     try {
-                        conn = (HttpURLConnection) moduleUrl.openConnection();
-                        conn.setUseCaches(false);
-                        conn.setRequestMethod("GET"); //$NON-NLS-1$
-                        conn.setReadTimeout(5000);
-                        conn.connect();
-                        code = conn.getResponseCode();
-                        if (code != HttpURLConnection.HTTP_NOT_FOUND) {
+                        if (restTemplate.isAvailable(moduleUrl.toURI())) {
                             return true;
                         }
-                    } catch (Throwable e) {
+                    } catch (URISyntaxException e) {
+                        return false;
+                    } catch (RuntimeException e) {
                         // Do nothing
                     }
-                    if (conn != null) {
-                        conn.disconnect();
-                        conn = null;
-                    }
                     try {
                     	Thread.sleep(interval);
                     } catch (Exception e) {